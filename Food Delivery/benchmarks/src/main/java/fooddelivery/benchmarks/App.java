@@ -0,0 +1,299 @@
+package fooddelivery.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Access to the application classes for the benchmarks.
+ *
+ * The application lives in the unnamed (default) package, which code in a named
+ * package cannot import, and JMH will not generate harnesses for benchmarks in the
+ * default package. Measured calls therefore go through static final method handles,
+ * which the JIT treats as constants and inlines like direct calls. Fixtures are
+ * built with plain reflection because they are only created during setup.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+final class App
+{
+    /** Order.calculateTotalCost() as (Object)double */
+    static final MethodHandle ORDER_TOTAL_COST = virtual("Order", "calculateTotalCost", double.class);
+
+    /** Order.calculateTotalCents() as (Object)long */
+    static final MethodHandle ORDER_TOTAL_CENTS = virtual("Order", "calculateTotalCents", long.class);
+
+    /** Order.calculateMealType() as (Object)Object */
+    static final MethodHandle ORDER_MEAL_TYPE = virtual("Order", "calculateMealType", type("MealType"));
+
+    /** Order.setDeliveryMethod(DeliveryMethod) as (Object,Object)void */
+    static final MethodHandle ORDER_SET_DELIVERY = virtual("Order", "setDeliveryMethod", void.class, type("DeliveryMethod"));
+
+    /** new Order(List, Customer) as (List,Object)Object */
+    static final MethodHandle NEW_ORDER = constructor("Order", List.class, type("Customer"));
+
+    /** Pizza.getPrice() as (Object)double */
+    static final MethodHandle PIZZA_PRICE = virtual("Pizza", "getPrice", double.class);
+
+    /** new Pizza(List) as (List)Object */
+    static final MethodHandle NEW_PIZZA = constructor("Pizza", List.class);
+
+    /** OrderManager.addOrder(Order) as (Object,Object)void */
+    static final MethodHandle MANAGER_ADD = virtual("OrderManager", "addOrder", void.class, type("Order"));
+
+    /** OrderManager.deliverOrder() as (Object)Object */
+    static final MethodHandle MANAGER_DELIVER = virtual("OrderManager", "deliverOrder", type("Order"));
+
+    /** OrderManager.drainTo(int) as (Object,int)List */
+    static final MethodHandle MANAGER_DRAIN = virtual("OrderManager", "drainTo", List.class, int.class);
+
+    /** OrderManager.cancelOrder(long) as (Object,long)Object */
+    static final MethodHandle MANAGER_CANCEL = virtual("OrderManager", "cancelOrder", type("Order"), long.class);
+
+    /** App is only used through its static members */
+    private App()
+    {
+    }
+
+    /**
+     * Returns the first n pizza toppings, cycling through the catalog.
+     *
+     * @param n the number of toppings
+     * @return a list of shared catalog toppings
+     */
+    static List<Object> pizzaToppings(int n)
+    {
+        List<?> catalog = (List<?>) call(call(type("ToppingCatalog"), null, "getDefault"), "getPizzaToppings");
+        List<Object> toppings = new ArrayList<Object>(n);
+        for (int i = 0; i < n; i++)
+        {
+            toppings.add(catalog.get(i % catalog.size()));
+        }
+        return toppings;
+    }
+
+    /**
+     * Builds a pizza with n toppings.
+     *
+     * @param toppings the number of toppings
+     * @return a Pizza
+     */
+    static Object pizza(int toppings)
+    {
+        return construct("Pizza", new Class<?>[] { List.class }, pizzaToppings(toppings));
+    }
+
+    /**
+     * Builds the food items for an order, alternating pizzas and pastas.
+     *
+     * @param items the number of food items
+     * @param toppingsPerPizza the number of toppings on each pizza
+     * @return a list of FoodItems
+     */
+    static List<Object> foodItems(int items, int toppingsPerPizza)
+    {
+        Object catalog = call(type("ToppingCatalog"), null, "getDefault");
+        List<Object> foodItems = new ArrayList<Object>(items);
+        for (int i = 0; i < items; i++)
+        {
+            if (i % 2 == 0)
+            {
+                foodItems.add(pizza(toppingsPerPizza));
+            }
+            else
+            {
+                Object topping = call(type("ToppingCatalog"), catalog, "pastaTopping", "bolognese");
+                foodItems.add(construct("Pasta", new Class<?>[] { type("Topping") }, topping));
+            }
+        }
+        return foodItems;
+    }
+
+    /**
+     * Builds a customer for fixtures.
+     *
+     * @return a Customer
+     */
+    static Object customer()
+    {
+        return construct("Customer", new Class<?>[] { String.class, String.class, String.class },
+                "Benchmark Customer", "0123456789", "1 Benchmark Street");
+    }
+
+    /**
+     * Builds a door-delivery order for a student with the given number of items.
+     *
+     * @param items the number of food items
+     * @param toppingsPerPizza the number of toppings on each pizza
+     * @return an Order
+     */
+    static Object order(int items, int toppingsPerPizza)
+    {
+        Object order = construct("Order", new Class<?>[] { List.class, type("Customer") },
+                foodItems(items, toppingsPerPizza), customer());
+        call(type("Order"), order, "setDeliveryMethod", doorDelivery());
+        Object student = construct("StudentInfo", new Class<?>[] { String.class, String.class }, "Uni", "S123");
+        call(type("Order"), order, "setStudentInfo", student);
+        return order;
+    }
+
+    /**
+     * Builds several orders, each with its own id, since a manager only
+     * queues an order id once at a time.
+     *
+     * @param count the number of orders
+     * @param items the number of food items in each
+     * @param toppingsPerPizza the number of toppings on each pizza
+     * @return the Orders
+     */
+    static Object[] orders(int count, int items, int toppingsPerPizza)
+    {
+        Object[] orders = new Object[count];
+        for (int i = 0; i < count; i++)
+        {
+            orders[i] = order(items, toppingsPerPizza);
+        }
+        return orders;
+    }
+
+    /**
+     * Returns an order's id.
+     *
+     * @param order an Order
+     * @return its id
+     */
+    static long orderId(Object order)
+    {
+        return (Long) call(order, "getId");
+    }
+
+    /**
+     * Returns DeliveryMethod.DOOR_DELIVERY.
+     *
+     * @return the enum constant
+     */
+    static Object doorDelivery()
+    {
+        try
+        {
+            return type("DeliveryMethod").getField("DOOR_DELIVERY").get(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates an OrderManager.
+     *
+     * @param concurrent whether to use the concurrent queue
+     * @return an OrderManager
+     */
+    static Object orderManager(boolean concurrent)
+    {
+        return construct("OrderManager", new Class<?>[] { boolean.class }, concurrent);
+    }
+
+    private static Class<?> type(String name)
+    {
+        try
+        {
+            return Class.forName(name);
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new IllegalStateException("Application class not on the classpath: " + name, e);
+        }
+    }
+
+    private static MethodHandle virtual(String owner, String name, Class<?> returnType, Class<?>... parameters)
+    {
+        try
+        {
+            MethodHandle handle = MethodHandles.publicLookup()
+                    .findVirtual(type(owner), name, MethodType.methodType(returnType, parameters));
+            return handle.asType(erase(handle.type()));
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle constructor(String owner, Class<?>... parameters)
+    {
+        try
+        {
+            MethodHandle handle = MethodHandles.publicLookup()
+                    .findConstructor(type(owner), MethodType.methodType(void.class, parameters));
+            return handle.asType(erase(handle.type()));
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Replaces application types with Object so call sites can use invokeExact */
+    private static MethodType erase(MethodType type)
+    {
+        MethodType erased = type;
+        for (int i = 0; i < type.parameterCount(); i++)
+        {
+            if (isApplicationType(type.parameterType(i)))
+            {
+                erased = erased.changeParameterType(i, Object.class);
+            }
+        }
+        if (isApplicationType(type.returnType()))
+        {
+            erased = erased.changeReturnType(Object.class);
+        }
+        return erased;
+    }
+
+    private static boolean isApplicationType(Class<?> type)
+    {
+        return !type.isPrimitive() && type.getPackageName().isEmpty();
+    }
+
+    private static Object construct(String owner, Class<?>[] parameters, Object... arguments)
+    {
+        try
+        {
+            return type(owner).getConstructor(parameters).newInstance(arguments);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object call(Object target, String name)
+    {
+        return call(target.getClass(), target, name);
+    }
+
+    private static Object call(Class<?> owner, Object target, String name, Object... arguments)
+    {
+        try
+        {
+            for (java.lang.reflect.Method method : owner.getMethods())
+            {
+                if (method.getName().equals(name) && method.getParameterCount() == arguments.length)
+                {
+                    return method.invoke(target, arguments);
+                }
+            }
+            throw new NoSuchMethodException(owner.getName() + "." + name);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package fooddelivery.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures pricing, classification and rendering of a single order.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderBenchmark
+{
+    /** Number of food items in the order */
+    @Param({ "1", "4", "16" })
+    public int items;
+
+    /** Number of toppings on each pizza */
+    @Param({ "3" })
+    public int toppingsPerPizza;
+
+    private Object order;
+
+    private List<Object> foodItems;
+
+    private Object customer;
+
+    private Object doorDelivery;
+
+    @Setup
+    public void setUp()
+    {
+        order = App.order(items, toppingsPerPizza);
+        foodItems = App.foodItems(items, toppingsPerPizza);
+        customer = App.customer();
+        doorDelivery = App.doorDelivery();
+    }
+
+    @Benchmark
+    public double calculateTotalCost() throws Throwable
+    {
+        return (double) App.ORDER_TOTAL_COST.invokeExact(order);
+    }
+
+    @Benchmark
+    public long calculateTotalCents() throws Throwable
+    {
+        return (long) App.ORDER_TOTAL_CENTS.invokeExact(order);
+    }
+
+    @Benchmark
+    public Object calculateMealType() throws Throwable
+    {
+        return (Object) App.ORDER_MEAL_TYPE.invokeExact(order);
+    }
+
+    /** Rendering an order whose text is already cached */
+    @Benchmark
+    public String toStringCached()
+    {
+        return order.toString();
+    }
+
+    /** Rendering an order after a change has cleared its cached text */
+    @Benchmark
+    public String toStringFresh() throws Throwable
+    {
+        App.ORDER_SET_DELIVERY.invokeExact(order, doorDelivery);
+        return order.toString();
+    }
+
+    /** Building an order, which snapshots the items and works out its totals */
+    @Benchmark
+    public Object newOrder() throws Throwable
+    {
+        return (Object) App.NEW_ORDER.invokeExact(foodItems, customer);
+    }
+}
@@ -0,0 +1,158 @@
+package fooddelivery.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures queue throughput of OrderManager.addOrder and deliverOrder,
+ * both on one thread and with several threads sharing a concurrent manager,
+ * and the cost of cancelling orders out of a long backlog.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderManagerBenchmark
+{
+    /** A manager owned by one benchmark thread */
+    @State(Scope.Thread)
+    public static class SingleThreaded
+    {
+        /** Whether the manager uses the concurrent queue */
+        @Param({ "false", "true" })
+        public boolean concurrent;
+
+        Object manager;
+
+        /** Distinct orders, since an order id can only be pending once */
+        Object[] orders;
+
+        @Setup
+        public void setUp()
+        {
+            manager = App.orderManager(concurrent);
+            orders = App.orders(16, 2, 3);
+        }
+    }
+
+    /** A concurrent manager shared by every benchmark thread */
+    @State(Scope.Benchmark)
+    public static class Shared
+    {
+        Object manager;
+
+        @Setup
+        public void setUp()
+        {
+            manager = App.orderManager(true);
+        }
+    }
+
+    /**
+     * Orders owned by one thread of the contended benchmark. Each thread
+     * adds one order before every delivery, so at most one order per thread
+     * is pending and cycling through a few is enough to keep ids unique.
+     */
+    @State(Scope.Thread)
+    public static class ThreadOrders
+    {
+        Object[] orders;
+
+        int next;
+
+        @Setup
+        public void setUp()
+        {
+            orders = App.orders(16, 2, 3);
+        }
+    }
+
+    /** A manager with a long backlog of pending orders */
+    @State(Scope.Thread)
+    public static class Backlog
+    {
+        /** Number of pending orders */
+        @Param({ "50000" })
+        public int pending;
+
+        Object manager;
+
+        Object[] orders;
+
+        long[] ids;
+
+        int next;
+
+        @Setup
+        public void setUp() throws Throwable
+        {
+            manager = App.orderManager(false);
+            orders = App.orders(pending, 2, 3);
+            ids = new long[pending];
+            for (int i = 0; i < pending; i++)
+            {
+                ids[i] = App.orderId(orders[i]);
+                App.MANAGER_ADD.invokeExact(manager, orders[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object addThenDeliver(SingleThreaded state) throws Throwable
+    {
+        App.MANAGER_ADD.invokeExact(state.manager, state.orders[0]);
+        return (Object) App.MANAGER_DELIVER.invokeExact(state.manager);
+    }
+
+    /** Sixteen adds followed by one batched drain */
+    @Benchmark
+    public List<?> addThenDrain(SingleThreaded state) throws Throwable
+    {
+        for (int i = 0; i < 16; i++)
+        {
+            App.MANAGER_ADD.invokeExact(state.manager, state.orders[i]);
+        }
+        return (List<?>) App.MANAGER_DRAIN.invokeExact(state.manager, 16);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object addThenDeliverContended(Shared state, ThreadOrders mine) throws Throwable
+    {
+        App.MANAGER_ADD.invokeExact(state.manager, mine.orders[mine.next++ & 15]);
+        return (Object) App.MANAGER_DELIVER.invokeExact(state.manager);
+    }
+
+    /**
+     * Cancels an order from anywhere in the backlog and submits it again at
+     * the back, so the backlog stays the same size. Cancellation finds the
+     * order by id instead of walking the queue.
+     */
+    @Benchmark
+    public Object cancelAndResubmit(Backlog state) throws Throwable
+    {
+        //A large prime stride visits every order, spread across the queue
+        int i = state.next;
+        state.next = (int) ((i + 7919L) % state.orders.length);
+        Object cancelled = (Object) App.MANAGER_CANCEL.invokeExact(state.manager, state.ids[i]);
+        App.MANAGER_ADD.invokeExact(state.manager, state.orders[i]);
+        return cancelled;
+    }
+}
@@ -0,0 +1,59 @@
+package fooddelivery.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures pizza pricing as the number of toppings grows.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PizzaBenchmark
+{
+    /** Number of toppings on the pizza */
+    @Param({ "0", "1", "4", "16" })
+    public int toppings;
+
+    private Object pizza;
+
+    private List<Object> toppingList;
+
+    @Setup
+    public void setUp()
+    {
+        pizza = App.pizza(toppings);
+        toppingList = App.pizzaToppings(toppings);
+    }
+
+    @Benchmark
+    public double getPrice() throws Throwable
+    {
+        return (double) App.PIZZA_PRICE.invokeExact(pizza);
+    }
+
+    /** Building a pizza, which is where the toppings are now scanned */
+    @Benchmark
+    public Object newPizza() throws Throwable
+    {
+        return (Object) App.NEW_PIZZA.invokeExact(toppingList);
+    }
+}
@@ -0,0 +1,240 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads orders from a file or standard input without any prompts.
+ *
+ * Ingestion runs as a two-stage pipeline: a reader thread parses and
+ * validates each line (see OrderLineParser for the format) and hands
+ * accepted orders over a bounded queue to the thread that adds them to
+ * the OrderManager. Blank lines and lines starting with '#' are skipped;
+ * invalid lines are reported with their line number and skipped.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class BatchOrderIngestor
+{
+    /** How many parsed orders may wait between the two pipeline stages */
+    private static final int HANDOFF_CAPACITY = 4096;
+
+    /** Marker that tells the consumer the reader has finished; id 0 is never given to a real order */
+    private static final Order END_OF_INPUT = new Order(0, 0, List.of(), new Customer("", "", ""));
+
+    /** Parser shared by every line */
+    private final OrderLineParser parser;
+
+    /** Where rejected lines are reported */
+    private final PrintStream errors;
+
+    /** Number of orders accepted by the last ingest */
+    private long accepted;
+
+    /** Number of lines rejected by the last ingest */
+    private long rejected;
+
+    /** Number of lines the last ingest skipped as resubmissions of earlier orders */
+    private long duplicates;
+
+    /**
+     * Constructs an ingestor that reports rejected lines to the given stream.
+     *
+     * @param parser the parser used for each line
+     * @param errors the stream rejected lines are reported to
+     */
+    public BatchOrderIngestor(OrderLineParser parser, PrintStream errors)
+    {
+        this.parser = parser;
+        this.errors = errors;
+    }
+
+    /**
+     * Runs batch mode from the command line and prints a summary.
+     *
+     * @param source a file path, or "-" for standard input
+     * @param manager the manager that receives the orders
+     * @return the process exit code: 0 if every line was accepted, 1 otherwise
+     */
+    public static int run(String source, OrderManager manager)
+    {
+        return run(source, manager, new OrderLineParser());
+    }
+
+    /**
+     * Runs batch mode from the command line with the given parser and prints a summary.
+     *
+     * @param source a file path, or "-" for standard input
+     * @param manager the manager that receives the orders
+     * @param parser the parser for the order lines, e.g. one reading a LiveMenu
+     * @return the process exit code: 0 if every line was accepted, 1 otherwise
+     */
+    public static int run(String source, OrderManager manager, OrderLineParser parser)
+    {
+        BatchOrderIngestor ingestor = new BatchOrderIngestor(parser, System.err);
+
+        try (Reader reader = source.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8))
+        {
+            ingestor.ingest(reader, manager);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Could not read orders from " + source + ": " + e.getMessage());
+            return 2;
+        }
+
+        System.out.println("Accepted " + ingestor.getAccepted() + " orders, rejected " + ingestor.getRejected()
+                + ", skipped " + ingestor.getDuplicates() + " duplicates. "
+                + manager.getPendingCount() + " orders pending.");
+        return ingestor.getRejected() == 0 ? 0 : 1;
+    }
+
+    /**
+     * Reads every line from the reader and adds the valid orders to the manager.
+     *
+     * @param reader the source of order lines
+     * @param manager the manager that receives the orders
+     * @throws IOException if the input cannot be read
+     */
+    public void ingest(Reader reader, OrderManager manager) throws IOException
+    {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        BlockingQueue<Order> handoff = new ArrayBlockingQueue<>(HANDOFF_CAPACITY);
+        IOException[] readFailure = new IOException[1];
+        accepted = 0;
+        rejected = 0;
+        duplicates = 0;
+
+        //Stage 1: parse and validate on a separate thread
+        Thread readerThread = new Thread(() ->
+        {
+            try
+            {
+                String line;
+                int lineNumber = 0;
+                while ((line = lines.readLine()) != null)
+                {
+                    lineNumber++;
+                    if (line.isBlank() || line.startsWith("#")) continue;
+
+                    try
+                    {
+                        handoff.put(parser.parse(line));
+                    }
+                    catch (IllegalArgumentException e)
+                    {
+                        rejected++;
+                        errors.println("Line " + lineNumber + ": " + e.getMessage());
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                readFailure[0] = e;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                putEndOfInput(handoff);
+            }
+        }, "batch-order-reader");
+        //A reader blocked on standard input cannot be interrupted, and must not keep the JVM alive
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        //Stage 2: queue the accepted orders on this thread
+        try
+        {
+            Order order;
+            while ((order = handoff.take()) != END_OF_INPUT)
+            {
+                //A line resent with an earlier line's idempotency key is skipped, not rejected
+                if (manager.addOrderIfAbsent(order) == order.getId())
+                {
+                    accepted++;
+                }
+                else
+                {
+                    duplicates++;
+                }
+            }
+            readerThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while ingesting orders", e);
+        }
+        finally
+        {
+            //Stops a reader waiting on a full handoff if this stage gave up, e.g. because the manager threw
+            readerThread.interrupt();
+        }
+
+        if (readFailure[0] != null)
+        {
+            throw readFailure[0];
+        }
+    }
+
+    /**
+     * Tells the consumer stage that no more orders are coming.
+     *
+     * @param handoff the queue between the two stages
+     */
+    private static void putEndOfInput(BlockingQueue<Order> handoff)
+    {
+        try
+        {
+            handoff.put(END_OF_INPUT);
+        }
+        catch (InterruptedException e)
+        {
+            //The consumer has already given up, so nobody is waiting for the marker
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of orders accepted by the last ingest.
+     *
+     * @return the accepted count
+     */
+    public long getAccepted()
+    {
+        return accepted;
+    }
+
+    /**
+     * Returns the number of lines rejected by the last ingest.
+     *
+     * @return the rejected count
+     */
+    public long getRejected()
+    {
+        return rejected;
+    }
+
+    /**
+     * Returns the number of lines the last ingest skipped as duplicates.
+     *
+     * @return the duplicate count
+     */
+    public long getDuplicates()
+    {
+        return duplicates;
+    }
+}
@@ -0,0 +1,375 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps delivered orders for reporting as columns of primitives instead of
+ * Order objects.
+ *
+ * Each delivered order becomes one row: its id, timestamps, total price in
+ * cents, meal type and delivery method ordinals, item count, a student flag
+ * and a bitset of the catalog toppings it used. An order graph costs several
+ * hundred bytes of headers, references and lists; a row costs a few dozen,
+ * and a report scans each column as one contiguous array.
+ *
+ * Rows are appended under a lock. Reports take a view of the columns under
+ * the same lock and then scan it without one, since rows below the view's
+ * size are never written again.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class ColumnarOrderStore
+{
+    /** Rows allocated before the first growth */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /** Ordinal stored when an order has no delivery method */
+    public static final byte NO_DELIVERY_METHOD = -1;
+
+    /** Catalog whose topping ids index the topping bitsets */
+    private final ToppingCatalog catalog;
+
+    /** Number of longs used by each row's topping bitset */
+    private final int toppingWords;
+
+    /** Order ids */
+    private long[] ids;
+
+    /** When each order was created */
+    private long[] createdAtMillis;
+
+    /** When each order was delivered */
+    private long[] deliveredAtMillis;
+
+    /** Final price of each order in cents, with delivery fee and discount */
+    private long[] totalCents;
+
+    /** MealType ordinal of each order */
+    private byte[] mealTypes;
+
+    /** DeliveryMethod ordinal of each order, or NO_DELIVERY_METHOD */
+    private byte[] deliveryMethods;
+
+    /** Number of food items in each order */
+    private short[] itemCounts;
+
+    /** Whether each order had a student discount */
+    private boolean[] students;
+
+    /** toppingWords longs per row; bit n is set if the order used catalog topping n */
+    private long[] toppings;
+
+    /** Number of rows written */
+    private volatile int size;
+
+    /**
+     * Constructs an empty store for orders using the default topping catalog.
+     */
+    public ColumnarOrderStore()
+    {
+        this(ToppingCatalog.getDefault());
+    }
+
+    /**
+     * Constructs an empty store for orders using the given topping catalog.
+     *
+     * @param catalog the catalog whose toppings are tracked
+     */
+    public ColumnarOrderStore(ToppingCatalog catalog)
+    {
+        this(catalog, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param catalog the catalog whose toppings are tracked
+     * @param initialCapacity the number of rows to allocate up front
+     */
+    public ColumnarOrderStore(ToppingCatalog catalog, int initialCapacity)
+    {
+        if (initialCapacity < 1)
+        {
+            throw new IllegalArgumentException("Capacity must be positive: " + initialCapacity);
+        }
+        this.catalog = catalog;
+        this.toppingWords = (catalog.size() + 63) / 64;
+
+        ids = new long[initialCapacity];
+        createdAtMillis = new long[initialCapacity];
+        deliveredAtMillis = new long[initialCapacity];
+        totalCents = new long[initialCapacity];
+        mealTypes = new byte[initialCapacity];
+        deliveryMethods = new byte[initialCapacity];
+        itemCounts = new short[initialCapacity];
+        students = new boolean[initialCapacity];
+        toppings = new long[initialCapacity * toppingWords];
+    }
+
+    /**
+     * Appends a delivered order as a new row. The order is not referenced
+     * afterwards, so it can be garbage collected.
+     *
+     * @param order the delivered order
+     * @param deliveredAtMillis when the order was delivered
+     * @return the row index of the order
+     */
+    public synchronized int append(Order order, long deliveredAtMillis)
+    {
+        int row = size;
+        if (row == ids.length)
+        {
+            grow();
+        }
+
+        ids[row] = order.getId();
+        createdAtMillis[row] = order.getCreatedAtMillis();
+        this.deliveredAtMillis[row] = deliveredAtMillis;
+        totalCents[row] = order.calculateTotalCents();
+        mealTypes[row] = (byte) order.calculateMealType().ordinal();
+        DeliveryMethod method = order.getDeliveryMethod();
+        deliveryMethods[row] = method == null ? NO_DELIVERY_METHOD : (byte) method.ordinal();
+        List<FoodItem> foodItems = order.getFoodItems();
+        itemCounts[row] = (short) Math.min(foodItems.size(), Short.MAX_VALUE);
+        students[row] = order.getStudentInfo() != null && order.getStudentInfo().isValid();
+
+        int base = row * toppingWords;
+        for (FoodItem item : foodItems)
+        {
+            if (item instanceof Pizza)
+            {
+                for (Topping topping : ((Pizza) item).getToppings())
+                {
+                    setTopping(base, topping);
+                }
+            }
+            else if (item instanceof Pasta)
+            {
+                setTopping(base, ((Pasta) item).getTopping());
+            }
+        }
+
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * Sets a topping's bit in a row, if the topping comes from this store's
+     * catalog, or from a reloaded menu that lists it at the same id.
+     *
+     * @param base index of the row's first bitset word
+     * @param topping the topping used
+     */
+    private void setTopping(int base, Topping topping)
+    {
+        int id = topping.getId();
+        if (id >= 0 && id < catalog.size()
+                && (catalog.get(id) == topping || catalog.get(id).getName().equals(topping.getName())))
+        {
+            toppings[base + (id >>> 6)] |= 1L << id;
+        }
+    }
+
+    /**
+     * Doubles the capacity of every column. Views holding the old arrays
+     * still see the rows they were taken with.
+     */
+    private void grow()
+    {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        createdAtMillis = Arrays.copyOf(createdAtMillis, capacity);
+        deliveredAtMillis = Arrays.copyOf(deliveredAtMillis, capacity);
+        totalCents = Arrays.copyOf(totalCents, capacity);
+        mealTypes = Arrays.copyOf(mealTypes, capacity);
+        deliveryMethods = Arrays.copyOf(deliveryMethods, capacity);
+        itemCounts = Arrays.copyOf(itemCounts, capacity);
+        students = Arrays.copyOf(students, capacity);
+        toppings = Arrays.copyOf(toppings, capacity * toppingWords);
+    }
+
+    /**
+     * Returns the number of rows stored.
+     *
+     * @return the row count
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the catalog whose toppings are tracked.
+     *
+     * @return the topping catalog
+     */
+    public ToppingCatalog getCatalog()
+    {
+        return catalog;
+    }
+
+    /**
+     * Returns the id of the order in a row.
+     *
+     * @param row the row index, below size()
+     * @return the order id
+     */
+    public synchronized long getId(int row)
+    {
+        return ids[row];
+    }
+
+    /**
+     * Returns when the order in a row was created.
+     *
+     * @param row the row index, below size()
+     * @return the creation time in epoch milliseconds
+     */
+    public synchronized long getCreatedAtMillis(int row)
+    {
+        return createdAtMillis[row];
+    }
+
+    /**
+     * Returns when the order in a row was delivered.
+     *
+     * @param row the row index, below size()
+     * @return the delivery time in epoch milliseconds
+     */
+    public synchronized long getDeliveredAtMillis(int row)
+    {
+        return deliveredAtMillis[row];
+    }
+
+    /**
+     * Returns the final price of the order in a row.
+     *
+     * @param row the row index, below size()
+     * @return the total in cents
+     */
+    public synchronized long getTotalCents(int row)
+    {
+        return totalCents[row];
+    }
+
+    /**
+     * Returns the meal type of the order in a row.
+     *
+     * @param row the row index, below size()
+     * @return the meal type
+     */
+    public synchronized MealType getMealType(int row)
+    {
+        return MealType.values()[mealTypes[row]];
+    }
+
+    /**
+     * Returns the delivery method of the order in a row.
+     *
+     * @param row the row index, below size()
+     * @return the delivery method, or null if none was chosen
+     */
+    public synchronized DeliveryMethod getDeliveryMethod(int row)
+    {
+        byte ordinal = deliveryMethods[row];
+        return ordinal == NO_DELIVERY_METHOD ? null : DeliveryMethod.values()[ordinal];
+    }
+
+    /**
+     * Returns the number of food items in the order in a row.
+     *
+     * @param row the row index, below size()
+     * @return the item count
+     */
+    public synchronized int getItemCount(int row)
+    {
+        return itemCounts[row];
+    }
+
+    /**
+     * Returns whether the order in a row had a student discount.
+     *
+     * @param row the row index, below size()
+     * @return true for student orders
+     */
+    public synchronized boolean isStudent(int row)
+    {
+        return students[row];
+    }
+
+    /**
+     * Returns whether the order in a row used a catalog topping.
+     *
+     * @param row the row index, below size()
+     * @param toppingId the topping's catalog id
+     * @return true if any item in the order had the topping
+     */
+    public synchronized boolean hasTopping(int row, int toppingId)
+    {
+        return (toppings[row * toppingWords + (toppingId >>> 6)] & (1L << toppingId)) != 0;
+    }
+
+    /**
+     * Adds up the final price of every stored order.
+     *
+     * @return the total revenue in cents
+     */
+    public long totalRevenueCents()
+    {
+        Columns view = columns();
+        long sum = 0;
+        for (int row = 0; row < view.rows; row++)
+        {
+            sum += view.totalCents[row];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the columns up to the current size, for reports that scan
+     * whole arrays instead of going row by row.
+     *
+     * @return a consistent view of the stored rows
+     */
+    synchronized Columns columns()
+    {
+        return new Columns(size, toppingWords, ids, createdAtMillis, deliveredAtMillis, totalCents,
+                mealTypes, deliveryMethods, itemCounts, students, toppings);
+    }
+
+    /**
+     * The columns of a store as they were when columns() was called.
+     * Only the first rows entries of each array are meaningful.
+     */
+    static final class Columns
+    {
+        final int rows;
+        final int toppingWords;
+        final long[] ids;
+        final long[] createdAtMillis;
+        final long[] deliveredAtMillis;
+        final long[] totalCents;
+        final byte[] mealTypes;
+        final byte[] deliveryMethods;
+        final short[] itemCounts;
+        final boolean[] students;
+        final long[] toppings;
+
+        Columns(int rows, int toppingWords, long[] ids, long[] createdAtMillis, long[] deliveredAtMillis,
+                long[] totalCents, byte[] mealTypes, byte[] deliveryMethods, short[] itemCounts,
+                boolean[] students, long[] toppings)
+        {
+            this.rows = rows;
+            this.toppingWords = toppingWords;
+            this.ids = ids;
+            this.createdAtMillis = createdAtMillis;
+            this.deliveredAtMillis = deliveredAtMillis;
+            this.totalCents = totalCents;
+            this.mealTypes = mealTypes;
+            this.deliveryMethods = deliveryMethods;
+            this.itemCounts = itemCounts;
+            this.students = students;
+            this.toppings = toppings;
+        }
+    }
+}
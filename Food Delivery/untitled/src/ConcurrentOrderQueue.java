@@ -0,0 +1,291 @@
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * A lock-free first-in, first-out queue of orders with a hash index on
+ * order id, for order managers shared between threads.
+ *
+ * Orders wait in a LinkedTransferQueue, so adding and dispatching never
+ * take a lock. A map from order id to queue entry finds any pending order
+ * in constant time. Cancelling an order only drops it from the map; its
+ * entry becomes stale and is skipped when it reaches the head, so nothing
+ * has to search the queue. Changing an order swaps the order held by its
+ * entry, so it keeps its place. Whoever removes an entry from the map owns
+ * the order, which is how dispatch and cancellation agree.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class ConcurrentOrderQueue extends AbstractQueue<Order> implements OrderQueue
+{
+    /** Queued entries in arrival order, including stale ones */
+    private final LinkedTransferQueue<Entry> queue = new LinkedTransferQueue<>();
+
+    /** The live entry of each pending order, by order id */
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Adds an order to the end of the queue.
+     *
+     * @param order the order
+     * @return true if it was added, false if an order with its id is already pending
+     */
+    @Override
+    public boolean offer(Order order)
+    {
+        Entry entry = new Entry(order);
+        if (entries.putIfAbsent(entry.id, entry) != null)
+        {
+            return false;
+        }
+        return queue.offer(entry);
+    }
+
+    /**
+     * Adds an order to the end of the queue.
+     *
+     * @param order the order
+     * @return true
+     * @throws IllegalStateException if an order with its id is already pending
+     */
+    @Override
+    public boolean add(Order order)
+    {
+        if (!offer(order))
+        {
+            throw new IllegalStateException("Order " + order.getId() + " is already in the queue");
+        }
+        return true;
+    }
+
+    @Override
+    public void put(Order order)
+    {
+        add(order);
+    }
+
+    @Override
+    public boolean offer(Order order, long timeout, TimeUnit unit)
+    {
+        //The queue is unbounded, so there is never any need to wait
+        return offer(order);
+    }
+
+    @Override
+    public Order poll()
+    {
+        Entry entry;
+        while ((entry = queue.poll()) != null)
+        {
+            if (claim(entry))
+            {
+                return entry.order;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Order poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Entry entry;
+        while ((entry = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) != null)
+        {
+            if (claim(entry))
+            {
+                return entry.order;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Order take() throws InterruptedException
+    {
+        while (true)
+        {
+            Entry entry = queue.take();
+            if (claim(entry))
+            {
+                return entry.order;
+            }
+        }
+    }
+
+    @Override
+    public Order peek()
+    {
+        Entry entry;
+        while ((entry = queue.peek()) != null)
+        {
+            if (entries.get(entry.id) == entry)
+            {
+                return entry.order;
+            }
+
+            //A stale entry at the head is found first by remove, so dropping it is cheap
+            queue.remove(entry);
+        }
+        return null;
+    }
+
+    @Override
+    public Order get(long orderId)
+    {
+        Entry entry = entries.get(orderId);
+        return entry == null ? null : entry.order;
+    }
+
+    @Override
+    public Order remove(long orderId)
+    {
+        //The entry stays in the queue until it reaches the head and is skipped
+        Entry entry = entries.remove(orderId);
+        return entry == null ? null : entry.order;
+    }
+
+    @Override
+    public Order update(long orderId, UnaryOperator<Order> change)
+    {
+        Entry entry = entries.computeIfPresent(orderId, (id, live) ->
+        {
+            Order changed = change.apply(live.order);
+            if (changed.getId() != orderId)
+            {
+                throw new IllegalArgumentException("Order " + orderId + " cannot be replaced by order " + changed.getId());
+            }
+
+            //The entry keeps its place; a taker claims it through the map, so it sees this order or none
+            live.order = changed;
+            return live;
+        });
+        return entry == null ? null : entry.order;
+    }
+
+    @Override
+    public int size()
+    {
+        return entries.size();
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Order> target)
+    {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Order> target, int maxElements)
+    {
+        int drained = 0;
+        Order order;
+        while (drained < maxElements && (order = poll()) != null)
+        {
+            target.add(order);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Iterates over the queued orders in dispatch order.
+     *
+     * @return a weakly consistent iterator over the pending orders
+     */
+    @Override
+    public Iterator<Order> iterator()
+    {
+        Iterator<Entry> queued = queue.iterator();
+        return new Iterator<Order>()
+        {
+            private Entry next = advance();
+
+            private Entry last;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next != null;
+            }
+
+            @Override
+            public Order next()
+            {
+                if (next == null)
+                {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = advance();
+                return last.order;
+            }
+
+            @Override
+            public void remove()
+            {
+                if (last == null)
+                {
+                    throw new IllegalStateException();
+                }
+
+                //Only this entry, in case the order was taken and added again since
+                entries.remove(last.id, last);
+                last = null;
+            }
+
+            /** Finds the next entry that is still live */
+            private Entry advance()
+            {
+                while (queued.hasNext())
+                {
+                    Entry entry = queued.next();
+                    if (entries.get(entry.id) == entry)
+                    {
+                        return entry;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Takes ownership of an entry from the head of the queue.
+     *
+     * @param entry the entry
+     * @return true if it was still the live entry for its order, false if it
+     *         was cancelled or already dispatched
+     */
+    private boolean claim(Entry entry)
+    {
+        return entries.remove(entry.id, entry);
+    }
+
+    /** A queued order */
+    private static final class Entry
+    {
+        private final long id;
+
+        //Changed in place by update, under the map's lock for this id
+        private volatile Order order;
+
+        Entry(Order order)
+        {
+            this.id = order.getId();
+            this.order = order;
+        }
+    }
+}
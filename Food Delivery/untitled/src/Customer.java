@@ -1,3 +1,5 @@
+import java.io.IOException;
+
 /**
  * Represents a customer who places an order.
  * Stores the customer's name, contact number, and delivery address.
@@ -61,6 +63,17 @@ public class Customer
         return address;
     }
 
+    /**
+     * Writes the same text as toString to the given output.
+     *
+     * @param out where to write the customer
+     * @throws IOException if the output cannot be written
+     */
+    public void appendTo(Appendable out) throws IOException
+    {
+        out.append(name).append(" (").append(contactNumber).append(") - ").append(address);
+    }
+
     /**
      * Returns a string representation of the customer.
      *
@@ -0,0 +1,481 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers customers by contact number, so returning customers are looked
+ * up instead of typed in again and every order of theirs shares one Customer.
+ *
+ * A contact number is exactly ten digits, so it is held as a long. The
+ * registry keeps an open-addressing hash table from that long to where the
+ * customer's record is stored, with no boxing and no per-entry objects. In
+ * front of it sits a size-bounded LRU cache of Customer objects for the
+ * customers seen most recently, so only those are kept on the heap.
+ *
+ * Records are appended to a file, so the registry survives restarts; the
+ * table is rebuilt by scanning the file when it is opened. A changed name
+ * or address is appended as a new record that replaces the old one. Without
+ * a file the records are simply kept in memory.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class CustomerRegistry implements Closeable
+{
+    /** Customers kept in the cache by default */
+    private static final int DEFAULT_CACHE_SIZE = 4096;
+
+    /** Digits in a contact number */
+    private static final int CONTACT_NUMBER_DIGITS = 10;
+
+    /** Longest name or address that can be stored */
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+
+    /** Largest record accepted when scanning the file, to catch corruption */
+    private static final int MAX_RECORD_SIZE = 8 + 2 * (2 + 2 * MAX_STRING_LENGTH);
+
+    /** Size of the buffer used to scan the file when it is opened */
+    private static final int LOAD_BUFFER_SIZE = 1024 * 1024;
+
+    /** Bytes read at once when fetching a record, enough for most customers */
+    private static final int RECORD_READ_SIZE = 256;
+
+    /** Where records are stored, or null when they are kept in memory */
+    private final FileChannel channel;
+
+    /** Records kept in memory when there is no file, indexed by record number */
+    private final List<Customer> memoryRecords;
+
+    /** Contact number to record position (file offset or record number) */
+    private final LongIndex index = new LongIndex();
+
+    /** The customers used most recently, least recent first */
+    private final LinkedHashMap<Long, Customer> cache;
+
+    /** End of the file, where the next record goes */
+    private long fileEnd;
+
+    /**
+     * Constructs a registry that keeps every customer in memory.
+     */
+    public CustomerRegistry()
+    {
+        channel = null;
+        memoryRecords = new ArrayList<Customer>();
+        cache = newCache(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Opens a registry stored in a file, creating the file if needed.
+     *
+     * @param file the registry file
+     * @param cacheSize the most customers kept as objects at once
+     * @throws IOException if the file cannot be opened or read
+     */
+    public CustomerRegistry(Path file, int cacheSize) throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        memoryRecords = null;
+        cache = newCache(cacheSize);
+        load();
+    }
+
+    /**
+     * Opens a registry stored in a file with the default cache size.
+     *
+     * @param file the registry file
+     * @throws IOException if the file cannot be opened or read
+     */
+    public CustomerRegistry(Path file) throws IOException
+    {
+        this(file, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates an access-ordered map that drops its least recently used entry when full.
+     *
+     * @param cacheSize the most entries kept
+     * @return the cache
+     */
+    private static LinkedHashMap<Long, Customer> newCache(int cacheSize)
+    {
+        return new LinkedHashMap<Long, Customer>(cacheSize * 4 / 3 + 1, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Customer> eldest)
+            {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Finds the customer with a contact number.
+     *
+     * @param contactNumber a ten-digit contact number
+     * @return the shared Customer, or null if the number is not registered or not valid
+     * @throws IOException if the record cannot be read
+     */
+    public synchronized Customer find(String contactNumber) throws IOException
+    {
+        long key = toKey(contactNumber);
+        if (key < 0)
+        {
+            return null;
+        }
+
+        Customer customer = cache.get(key);
+        if (customer == null)
+        {
+            long position = index.get(key);
+            if (position < 0)
+            {
+                return null;
+            }
+            customer = channel == null ? memoryRecords.get((int) position) : readRecord(position, key);
+            cache.put(key, customer);
+        }
+        return customer;
+    }
+
+    /**
+     * Returns the registered customer with these details, registering them
+     * first if the number is new or the name or address changed.
+     *
+     * @param name the customer's name
+     * @param contactNumber a ten-digit contact number
+     * @param address the delivery address
+     * @return the shared Customer
+     * @throws IllegalArgumentException if the contact number is not ten digits
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized Customer register(String name, String contactNumber, String address) throws IOException
+    {
+        long key = toKey(contactNumber);
+        if (key < 0)
+        {
+            throw new IllegalArgumentException("Not a contact number: " + contactNumber);
+        }
+
+        Customer existing = find(contactNumber);
+        if (existing != null && existing.getName().equals(name) && existing.getAddress().equals(address))
+        {
+            return existing;
+        }
+
+        Customer customer = new Customer(name, contactNumber, address);
+        long position;
+        if (channel == null)
+        {
+            position = memoryRecords.size();
+            memoryRecords.add(customer);
+        }
+        else
+        {
+            position = fileEnd;
+            fileEnd += appendRecord(key, name, address);
+        }
+        index.put(key, position);
+        cache.put(key, customer);
+        return customer;
+    }
+
+    /**
+     * Returns the number of customers registered.
+     *
+     * @return the customer count
+     */
+    public synchronized int size()
+    {
+        return index.size();
+    }
+
+    /**
+     * Closes the registry file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (channel != null)
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Turns a ten-digit contact number into its numeric key.
+     *
+     * @param contactNumber the contact number
+     * @return the key, or -1 if the text is not exactly ten digits
+     */
+    static long toKey(CharSequence contactNumber)
+    {
+        if (contactNumber.length() != CONTACT_NUMBER_DIGITS)
+        {
+            return -1;
+        }
+
+        long key = 0;
+        for (int i = 0; i < CONTACT_NUMBER_DIGITS; i++)
+        {
+            char c = contactNumber.charAt(i);
+            if (c < '0' || c > '9')
+            {
+                return -1;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+
+    /**
+     * Turns a key back into its ten-digit contact number, leading zeros included.
+     *
+     * @param key the key
+     * @return the contact number
+     */
+    static String fromKey(long key)
+    {
+        char[] digits = new char[CONTACT_NUMBER_DIGITS];
+        for (int i = CONTACT_NUMBER_DIGITS - 1; i >= 0; i--)
+        {
+            digits[i] = (char) ('0' + key % 10);
+            key /= 10;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Scans the file and indexes the latest record for each number. A record
+     * cut short by a crash is dropped from the end of the file.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private void load() throws IOException
+    {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(LOAD_BUFFER_SIZE);
+        buffer.limit(0);
+        long bufferStart = 0;
+        long position = 0;
+
+        while (position + 4 + 8 <= size)
+        {
+            //Refill from this record on when its length and number are not buffered
+            int offset = (int) (position - bufferStart);
+            if (offset + 4 + 8 > buffer.limit())
+            {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), size - position));
+                readFully(buffer, position);
+                buffer.flip();
+                bufferStart = position;
+                offset = 0;
+            }
+
+            int length = buffer.getInt(offset);
+            if (length < 8 || length > MAX_RECORD_SIZE || position + 4 + length > size)
+            {
+                break;
+            }
+            index.put(buffer.getLong(offset + 4), position);
+            position += 4 + length;
+        }
+
+        if (position < size)
+        {
+            channel.truncate(position);
+        }
+        fileEnd = position;
+    }
+
+    /**
+     * Appends one customer record: its length, the number, then the name and address.
+     *
+     * @return the number of bytes written
+     */
+    private int appendRecord(long key, String name, String address) throws IOException
+    {
+        if (name.length() > MAX_STRING_LENGTH || address.length() > MAX_STRING_LENGTH)
+        {
+            throw new IllegalArgumentException("Customer details too long to store");
+        }
+        int length = 8 + 2 + 2 * name.length() + 2 + 2 * address.length();
+
+        ByteBuffer record = ByteBuffer.allocate(4 + length);
+        record.putInt(length).putLong(key);
+        putString(record, name);
+        putString(record, address);
+        record.flip();
+        while (record.hasRemaining())
+        {
+            channel.write(record, fileEnd + record.position());
+        }
+        return 4 + length;
+    }
+
+    /**
+     * Reads the customer record at a file offset.
+     *
+     * @return the customer
+     */
+    private Customer readRecord(long position, long key) throws IOException
+    {
+        //Most records are short, so one read usually gets the whole record
+        ByteBuffer record = ByteBuffer.allocate((int) Math.min(RECORD_READ_SIZE, fileEnd - position));
+        readFully(record, position);
+        int size = 4 + record.getInt(0);
+        if (size > record.capacity())
+        {
+            ByteBuffer whole = ByteBuffer.allocate(size);
+            whole.put(record.flip());
+            readFully(whole, position);
+            record = whole;
+        }
+
+        record.position(4 + 8);
+        String name = getString(record);
+        String address = getString(record);
+        return new Customer(name, fromKey(key), address);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException("Customer registry ends inside a record");
+            }
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, String value)
+    {
+        buffer.putChar((char) value.length());
+        for (int i = 0; i < value.length(); i++)
+        {
+            buffer.putChar(value.charAt(i));
+        }
+    }
+
+    private static String getString(ByteBuffer buffer)
+    {
+        char[] chars = new char[buffer.getChar()];
+        for (int i = 0; i < chars.length; i++)
+        {
+            chars[i] = buffer.getChar();
+        }
+        return new String(chars);
+    }
+
+    /**
+     * An open-addressing hash table from non-negative long keys to long
+     * values, using linear probing over two parallel arrays.
+     */
+    private static final class LongIndex
+    {
+        /** Marks an empty slot; real keys are never negative */
+        private static final long EMPTY = -1;
+
+        /** Keys, indexed by slot */
+        private long[] keys = newKeys(1024);
+
+        /** Values, indexed by slot */
+        private long[] values = new long[1024];
+
+        /** Number of keys stored */
+        private int size;
+
+        /**
+         * Returns the value for a key.
+         *
+         * @return the value, or -1 if the key is absent
+         */
+        long get(long key)
+        {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); ; slot = (slot + 1) & mask)
+            {
+                if (keys[slot] == key)
+                {
+                    return values[slot];
+                }
+                if (keys[slot] == EMPTY)
+                {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * Sets the value for a key, replacing any earlier one.
+         */
+        void put(long key, long value)
+        {
+            //Grow at half full so probe sequences stay short
+            if (size * 2 >= keys.length)
+            {
+                resize(keys.length * 2);
+            }
+
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != EMPTY && keys[slot] != key)
+            {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY)
+            {
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        private void resize(int capacity)
+        {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = newKeys(capacity);
+            values = new long[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++)
+            {
+                if (oldKeys[i] != EMPTY)
+                {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static long[] newKeys(int capacity)
+        {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        private static int slot(long key, int mask)
+        {
+            //Contact numbers share long runs of digits, so mix the bits before masking
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
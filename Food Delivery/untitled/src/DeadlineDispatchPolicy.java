@@ -0,0 +1,123 @@
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches orders by the latest time the kitchen can start them and still
+ * keep the promise made to the customer.
+ *
+ * Each delivery method has a promised time from when the order is placed (for
+ * pickup, when it will be ready; for door delivery, when it will arrive) and a
+ * travel time. The dispatch key is the promised time minus the travel time and
+ * the estimated preparation time, so a door delivery that needs to leave soon
+ * goes ahead of a pickup that is not due for a while.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class DeadlineDispatchPolicy implements DispatchPolicy
+{
+    /** Preparation time of a plain pizza */
+    private static final long PIZZA_PREP_MILLIS = TimeUnit.MINUTES.toMillis(12);
+
+    /** Extra preparation time for each pizza topping */
+    private static final long TOPPING_PREP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Preparation time of a pasta */
+    private static final long PASTA_PREP_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /** Extra time for each item after the first, since items are made side by side */
+    private static final long EXTRA_ITEM_PREP_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    /** Promised time for door delivery, from order to arrival */
+    private final long doorPromiseMillis;
+
+    /** Driving time for a door delivery */
+    private final long doorTravelMillis;
+
+    /** Promised time for pickup, from order to ready */
+    private final long pickupPromiseMillis;
+
+    /**
+     * Constructs a policy with the standard promises: door delivery within
+     * 40 minutes including 20 minutes of driving, pickup ready in 30 minutes.
+     * A door delivery therefore has to leave the kitchen 10 minutes sooner
+     * than a pickup placed at the same time.
+     */
+    public DeadlineDispatchPolicy()
+    {
+        this(TimeUnit.MINUTES.toMillis(40), TimeUnit.MINUTES.toMillis(20), TimeUnit.MINUTES.toMillis(30));
+    }
+
+    /**
+     * Constructs a policy with custom promises.
+     *
+     * @param doorPromiseMillis promised time from order to door delivery
+     * @param doorTravelMillis driving time for a door delivery
+     * @param pickupPromiseMillis promised time from order to ready for pickup
+     */
+    public DeadlineDispatchPolicy(long doorPromiseMillis, long doorTravelMillis, long pickupPromiseMillis)
+    {
+        this.doorPromiseMillis = doorPromiseMillis;
+        this.doorTravelMillis = doorTravelMillis;
+        this.pickupPromiseMillis = pickupPromiseMillis;
+    }
+
+    /**
+     * Returns the latest time the kitchen can start the order and still keep
+     * its promise. Orders without a delivery method yet are treated as pickups.
+     *
+     * @param order the order being queued
+     * @return the latest start time in milliseconds since the epoch
+     */
+    @Override
+    public long dispatchKey(Order order)
+    {
+        return promisedMillis(order) - estimatePrepMillis(order)
+                - (order.getDeliveryMethod() == DeliveryMethod.DOOR_DELIVERY ? doorTravelMillis : 0);
+    }
+
+    /**
+     * Returns the time promised to the customer.
+     *
+     * @param order the order
+     * @return the promised time in milliseconds since the epoch
+     */
+    public long promisedMillis(Order order)
+    {
+        boolean door = order.getDeliveryMethod() == DeliveryMethod.DOOR_DELIVERY;
+        return order.getCreatedAtMillis() + (door ? doorPromiseMillis : pickupPromiseMillis);
+    }
+
+    /**
+     * Returns the driving time allowed for a door delivery.
+     *
+     * @return the travel time in milliseconds
+     */
+    public long getDoorTravelMillis()
+    {
+        return doorTravelMillis;
+    }
+
+    /**
+     * Estimates how long the kitchen needs to prepare an order.
+     * The slowest item sets the pace and each further item adds a little.
+     *
+     * @param order the order
+     * @return the estimated preparation time in milliseconds
+     */
+    public static long estimatePrepMillis(Order order)
+    {
+        List<FoodItem> items = order.getFoodItems();
+        long slowest = 0;
+
+        for (FoodItem item : items)
+        {
+            long prep = item instanceof Pizza
+                    ? PIZZA_PREP_MILLIS + TOPPING_PREP_MILLIS * ((Pizza) item).getToppings().size()
+                    : PASTA_PREP_MILLIS;
+            slowest = Math.max(slowest, prep);
+        }
+
+        return items.isEmpty() ? 0 : slowest + EXTRA_ITEM_PREP_MILLIS * (items.size() - 1);
+    }
+}
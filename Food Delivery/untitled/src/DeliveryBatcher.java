@@ -0,0 +1,436 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Groups door deliveries that are ready to leave the kitchen into
+ * multi-stop driver runs, instead of sending a driver per order.
+ *
+ * Each order is placed in a grid cell by a GridGeocoder. Waiting orders
+ * are indexed by cell, and each cell with orders has a wake-up time in a
+ * heap: the time its oldest order has waited the full batching window, or
+ * straight away once it has enough orders to fill a run. Polling only pops
+ * the cells that are due, so it never rescans every waiting order.
+ *
+ * A due cell sends its oldest orders, topped up with the oldest orders of
+ * the surrounding cells if there is room, and the stops are put in order
+ * by always driving to the nearest one left.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class DeliveryBatcher
+{
+    /** Default time an order waits for others going the same way */
+    private static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(8);
+
+    /** Default most stops on one run */
+    private static final int DEFAULT_MAX_STOPS = 4;
+
+    /** Column and row steps to the cells around a cell, nearest first */
+    private static final int[][] NEIGHBOURS = {
+            {1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    /** Where the kitchen is, as a packed position */
+    private static final long KITCHEN = GridGeocoder.position(0, 0);
+
+    /** Places addresses in grid cells */
+    private final GridGeocoder geocoder;
+
+    /** How long an order waits for others before it goes anyway */
+    private final long windowMillis;
+
+    /** Most stops on one run */
+    private final int maxStops;
+
+    /** Cells that have waiting orders, by packed cell */
+    private final Map<Long, Cell> cells = new HashMap<Long, Cell>();
+
+    /** Every waiting order, by order id */
+    private final Map<Long, Waiting> waiting = new HashMap<Long, Waiting>();
+
+    /** When each cell next needs looking at, earliest first; may hold stale entries */
+    private final PriorityQueue<WakeUp> wakeUps = new PriorityQueue<WakeUp>();
+
+    /** Runs the continuous batching, or null if it was not started */
+    private ScheduledExecutorService runner;
+
+    /**
+     * Constructs a batcher with an 8 minute window and up to 4 stops per run.
+     *
+     * @param geocoder places addresses in grid cells
+     */
+    public DeliveryBatcher(GridGeocoder geocoder)
+    {
+        this(geocoder, DEFAULT_WINDOW_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_MAX_STOPS);
+    }
+
+    /**
+     * Constructs a batcher.
+     *
+     * @param geocoder places addresses in grid cells
+     * @param window how long an order waits for others before it goes anyway
+     * @param unit the unit of the window
+     * @param maxStops the most stops on one run
+     */
+    public DeliveryBatcher(GridGeocoder geocoder, long window, TimeUnit unit, int maxStops)
+    {
+        if (window < 0 || maxStops < 1)
+        {
+            throw new IllegalArgumentException("Batching needs a window of zero or more and at least one stop per run");
+        }
+        this.geocoder = geocoder;
+        this.windowMillis = unit.toMillis(window);
+        this.maxStops = maxStops;
+    }
+
+    /**
+     * Adds a door delivery that is ready to leave now.
+     *
+     * @param order a door delivery order
+     * @return true if it was added, false if it was already waiting
+     * @throws IllegalArgumentException if the order is not a door delivery
+     */
+    public boolean add(Order order)
+    {
+        return add(order, System.currentTimeMillis());
+    }
+
+    /**
+     * Adds a door delivery that is ready to leave at the given time. Orders
+     * are expected to be added in roughly the order they become ready.
+     *
+     * @param order a door delivery order
+     * @param readyAtMillis when the order is ready, in milliseconds since the epoch
+     * @return true if it was added, false if it was already waiting
+     * @throws IllegalArgumentException if the order is not a door delivery
+     */
+    public synchronized boolean add(Order order, long readyAtMillis)
+    {
+        if (order.getDeliveryMethod() != DeliveryMethod.DOOR_DELIVERY)
+        {
+            throw new IllegalArgumentException("Only door deliveries are batched: order " + order.getId());
+        }
+        if (waiting.containsKey(order.getId()))
+        {
+            return false;
+        }
+
+        long position = geocoder.locate(order.getCustomer().getAddress());
+        long cellKey = geocoder.cellOf(position);
+        Cell cell = cells.get(cellKey);
+        if (cell == null)
+        {
+            cell = new Cell(cellKey);
+            cells.put(cellKey, cell);
+        }
+
+        Waiting entry = new Waiting(order, position, cell, readyAtMillis);
+        cell.orders.put(order.getId(), entry);
+        waiting.put(order.getId(), entry);
+        schedule(cell, dueAt(cell));
+        return true;
+    }
+
+    /**
+     * Takes an order out of batching, for example because it was cancelled.
+     *
+     * @param orderId the order's id
+     * @return the order, or null if it was not waiting
+     */
+    public synchronized Order remove(long orderId)
+    {
+        Waiting entry = waiting.get(orderId);
+        if (entry == null)
+        {
+            return null;
+        }
+        take(entry);
+        return entry.order;
+    }
+
+    /**
+     * Returns the number of orders waiting for a run.
+     *
+     * @return the waiting count
+     */
+    public synchronized int size()
+    {
+        return waiting.size();
+    }
+
+    /**
+     * Sends every run that is due: cells whose oldest order has waited the
+     * full window, and cells with enough orders to fill a run.
+     *
+     * @param nowMillis the current time in milliseconds since the epoch
+     * @return the runs to send, in the order they became due
+     */
+    public synchronized List<DeliveryRun> poll(long nowMillis)
+    {
+        List<DeliveryRun> runs = new ArrayList<DeliveryRun>();
+        while (!wakeUps.isEmpty() && wakeUps.peek().atMillis <= nowMillis)
+        {
+            WakeUp wakeUp = wakeUps.poll();
+            Cell cell = wakeUp.cell;
+
+            //Skip wake-ups superseded by an earlier one, and cells emptied since
+            if (wakeUp.atMillis != cell.wakeUpAtMillis || cell.orders.isEmpty())
+            {
+                continue;
+            }
+            cell.wakeUpAtMillis = Long.MAX_VALUE;
+
+            //Orders may have been taken by a neighbouring run since, which can push the time back
+            long due = dueAt(cell);
+            if (due > nowMillis)
+            {
+                schedule(cell, due);
+                continue;
+            }
+
+            runs.add(buildRun(cell));
+            if (!cell.orders.isEmpty())
+            {
+                schedule(cell, dueAt(cell));
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Sends every waiting order now, without waiting for the window, for
+     * example at the end of the day.
+     *
+     * @return the runs to send
+     */
+    public synchronized List<DeliveryRun> drain()
+    {
+        List<DeliveryRun> runs = new ArrayList<DeliveryRun>();
+        for (Cell cell : new ArrayList<Cell>(cells.values()))
+        {
+            //A cell may already have been emptied by a neighbour's run
+            while (!cell.orders.isEmpty())
+            {
+                runs.add(buildRun(cell));
+            }
+        }
+        wakeUps.clear();
+        return runs;
+    }
+
+    /**
+     * Starts polling on a background thread at a fixed rate and hands each
+     * run to the given consumer. Calling this again while running does nothing.
+     *
+     * @param dispatch receives each run, on the batching thread
+     * @param period time between polls
+     * @param unit the unit of the period
+     */
+    public synchronized void start(Consumer<DeliveryRun> dispatch, long period, TimeUnit unit)
+    {
+        if (runner != null)
+        {
+            return;
+        }
+
+        runner = Executors.newSingleThreadScheduledExecutor(task ->
+        {
+            Thread thread = new Thread(task, "delivery-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        runner.scheduleAtFixedRate(() ->
+        {
+            //Runs are handed over outside the lock so a slow consumer does not hold up adds
+            for (DeliveryRun run : poll(System.currentTimeMillis()))
+            {
+                dispatch.accept(run);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops the background polling, if it was started.
+     */
+    public synchronized void stop()
+    {
+        if (runner != null)
+        {
+            runner.shutdown();
+            runner = null;
+        }
+    }
+
+    /**
+     * Works out when a cell next needs a run sent.
+     *
+     * @param cell a cell with waiting orders
+     * @return now-or-earlier if the cell can fill a run, otherwise when its oldest order's window ends
+     */
+    private long dueAt(Cell cell)
+    {
+        Waiting oldest = cell.orders.values().iterator().next();
+        return cell.orders.size() >= maxStops ? Long.MIN_VALUE : oldest.readyAtMillis + windowMillis;
+    }
+
+    /**
+     * Makes sure a cell is looked at no later than the given time.
+     *
+     * @param cell the cell
+     * @param atMillis when it needs looking at
+     */
+    private void schedule(Cell cell, long atMillis)
+    {
+        if (atMillis < cell.wakeUpAtMillis)
+        {
+            cell.wakeUpAtMillis = atMillis;
+            wakeUps.add(new WakeUp(atMillis, cell));
+        }
+    }
+
+    /**
+     * Takes the oldest orders of a cell, then of the cells around it, and
+     * puts them in drop-off order.
+     *
+     * @param cell the cell the run is for
+     * @return the run
+     */
+    private DeliveryRun buildRun(Cell cell)
+    {
+        List<Waiting> stops = new ArrayList<Waiting>(maxStops);
+        takeOldest(cell, stops);
+        for (int i = 0; i < NEIGHBOURS.length && stops.size() < maxStops; i++)
+        {
+            Cell neighbour = cells.get(GridGeocoder.position(
+                    GridGeocoder.x(cell.key) + NEIGHBOURS[i][0], GridGeocoder.y(cell.key) + NEIGHBOURS[i][1]));
+            if (neighbour != null)
+            {
+                takeOldest(neighbour, stops);
+            }
+        }
+
+        //Always drive to the nearest stop left; runs are short, so this is cheap
+        List<Order> route = new ArrayList<Order>(stops.size());
+        long at = KITCHEN;
+        long distance = 0;
+        while (!stops.isEmpty())
+        {
+            int nearest = 0;
+            for (int i = 1; i < stops.size(); i++)
+            {
+                if (GridGeocoder.distance(at, stops.get(i).position) < GridGeocoder.distance(at, stops.get(nearest).position))
+                {
+                    nearest = i;
+                }
+            }
+            Waiting next = stops.remove(nearest);
+            distance += GridGeocoder.distance(at, next.position);
+            at = next.position;
+            route.add(next.order);
+        }
+        return new DeliveryRun(route, distance);
+    }
+
+    /**
+     * Moves a cell's oldest orders onto a run until it is full or the cell is empty.
+     *
+     * @param cell the cell to take from
+     * @param stops the run's stops so far
+     */
+    private void takeOldest(Cell cell, List<Waiting> stops)
+    {
+        Iterator<Waiting> oldestFirst = cell.orders.values().iterator();
+        while (stops.size() < maxStops && oldestFirst.hasNext())
+        {
+            Waiting entry = oldestFirst.next();
+            oldestFirst.remove();
+            waiting.remove(entry.order.getId());
+            stops.add(entry);
+        }
+        if (cell.orders.isEmpty())
+        {
+            cells.remove(cell.key);
+        }
+    }
+
+    /**
+     * Removes one waiting order from the indexes.
+     *
+     * @param entry the waiting order
+     */
+    private void take(Waiting entry)
+    {
+        waiting.remove(entry.order.getId());
+        entry.cell.orders.remove(entry.order.getId());
+        if (entry.cell.orders.isEmpty())
+        {
+            cells.remove(entry.cell.key);
+        }
+    }
+
+    /**
+     * A grid cell and its waiting orders, oldest first.
+     */
+    private static final class Cell
+    {
+        final long key;
+        final LinkedHashMap<Long, Waiting> orders = new LinkedHashMap<Long, Waiting>();
+
+        /** Time of this cell's live wake-up, or Long.MAX_VALUE if none is queued */
+        long wakeUpAtMillis = Long.MAX_VALUE;
+
+        Cell(long key)
+        {
+            this.key = key;
+        }
+    }
+
+    /**
+     * An order waiting for a run, with where it is going.
+     */
+    private static final class Waiting
+    {
+        final Order order;
+        final long position;
+        final Cell cell;
+        final long readyAtMillis;
+
+        Waiting(Order order, long position, Cell cell, long readyAtMillis)
+        {
+            this.order = order;
+            this.position = position;
+            this.cell = cell;
+            this.readyAtMillis = readyAtMillis;
+        }
+    }
+
+    /**
+     * A time a cell needs looking at.
+     */
+    private static final class WakeUp implements Comparable<WakeUp>
+    {
+        final long atMillis;
+        final Cell cell;
+
+        WakeUp(long atMillis, Cell cell)
+        {
+            this.atMillis = atMillis;
+            this.cell = cell;
+        }
+
+        @Override
+        public int compareTo(WakeUp other)
+        {
+            return Long.compare(atMillis, other.atMillis);
+        }
+    }
+}
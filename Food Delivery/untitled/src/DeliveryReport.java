@@ -0,0 +1,385 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Summarises delivered orders: revenue, meal type mix, topping popularity,
+ * student discount share and the door delivery versus pickup split.
+ *
+ * Reports are computed over a ColumnarOrderStore with fork/join. The rows
+ * are split into ranges, each range is tallied into its own accumulator
+ * with no sharing between threads, and the accumulators are merged on the
+ * way back up, so an end-of-day report over millions of orders uses every
+ * core and no locks.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class DeliveryReport
+{
+    /** Rows below which a range is tallied directly instead of being split */
+    private static final int SPLIT_THRESHOLD = 16384;
+
+    /** Number of orders delivered */
+    private final long orderCount;
+
+    /** Total revenue in cents */
+    private final long revenueCents;
+
+    /** Orders per MealType ordinal */
+    private final long[] mealTypeCounts;
+
+    /** Revenue in cents per MealType ordinal */
+    private final long[] mealTypeRevenueCents;
+
+    /** Orders per DeliveryMethod ordinal, with orders that had no method last */
+    private final long[] deliveryMethodCounts;
+
+    /** Orders that had a student discount */
+    private final long studentCount;
+
+    /** Number of orders that used each catalog topping */
+    private final long[] toppingCounts;
+
+    /** Catalog the topping counts refer to */
+    private final ToppingCatalog catalog;
+
+    /**
+     * Constructs a report from a finished tally.
+     *
+     * @param tally the merged tally of every row
+     * @param catalog the catalog the topping counts refer to
+     */
+    private DeliveryReport(Tally tally, ToppingCatalog catalog)
+    {
+        this.orderCount = tally.orderCount;
+        this.revenueCents = tally.revenueCents;
+        this.mealTypeCounts = tally.mealTypeCounts;
+        this.mealTypeRevenueCents = tally.mealTypeRevenueCents;
+        this.deliveryMethodCounts = tally.deliveryMethodCounts;
+        this.studentCount = tally.studentCount;
+        this.toppingCounts = tally.toppingCounts;
+        this.catalog = catalog;
+    }
+
+    /**
+     * Computes a report over every order in a store, on the common fork/join pool.
+     *
+     * @param store the delivered orders
+     * @return the report
+     */
+    public static DeliveryReport of(ColumnarOrderStore store)
+    {
+        return of(store, Long.MIN_VALUE, Long.MAX_VALUE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes a report over the orders delivered in a time window.
+     *
+     * @param store the delivered orders
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @param pool the pool to run the tally on
+     * @return the report
+     */
+    public static DeliveryReport of(ColumnarOrderStore store, long fromMillis, long toMillis, ForkJoinPool pool)
+    {
+        ColumnarOrderStore.Columns columns = store.columns();
+        Tally tally = pool.invoke(new TallyTask(columns, 0, columns.rows, fromMillis, toMillis,
+                store.getCatalog().size()));
+        return new DeliveryReport(tally, store.getCatalog());
+    }
+
+    /**
+     * Returns the number of orders delivered.
+     *
+     * @return the order count
+     */
+    public long getOrderCount()
+    {
+        return orderCount;
+    }
+
+    /**
+     * Returns the total revenue.
+     *
+     * @return the revenue in cents
+     */
+    public long getRevenueCents()
+    {
+        return revenueCents;
+    }
+
+    /**
+     * Returns the number of orders of a meal type.
+     *
+     * @param type the meal type
+     * @return the order count
+     */
+    public long getMealTypeCount(MealType type)
+    {
+        return mealTypeCounts[type.ordinal()];
+    }
+
+    /**
+     * Returns the revenue from orders of a meal type.
+     *
+     * @param type the meal type
+     * @return the revenue in cents
+     */
+    public long getMealTypeRevenueCents(MealType type)
+    {
+        return mealTypeRevenueCents[type.ordinal()];
+    }
+
+    /**
+     * Returns the number of orders delivered by a method.
+     *
+     * @param method the delivery method, or null for orders where none was chosen
+     * @return the order count
+     */
+    public long getDeliveryMethodCount(DeliveryMethod method)
+    {
+        return deliveryMethodCounts[method == null ? DeliveryMethod.values().length : method.ordinal()];
+    }
+
+    /**
+     * Returns the number of orders that had a student discount.
+     *
+     * @return the student order count
+     */
+    public long getStudentCount()
+    {
+        return studentCount;
+    }
+
+    /**
+     * Returns the number of orders that used a topping.
+     *
+     * @param topping a topping from the store's catalog
+     * @return the order count
+     */
+    public long getToppingCount(Topping topping)
+    {
+        int id = topping.getId();
+        return id >= 0 && id < toppingCounts.length && catalog.get(id) == topping ? toppingCounts[id] : 0;
+    }
+
+    /**
+     * Returns the catalog toppings ordered from most to least popular.
+     * Toppings no order used are left out.
+     *
+     * @return the used toppings, most popular first
+     */
+    public List<Topping> getToppingsByPopularity()
+    {
+        List<Topping> used = new ArrayList<Topping>();
+        for (int id = 0; id < toppingCounts.length; id++)
+        {
+            if (toppingCounts[id] > 0)
+            {
+                used.add(catalog.get(id));
+            }
+        }
+        used.sort((a, b) -> Long.compare(toppingCounts[b.getId()], toppingCounts[a.getId()]));
+        return used;
+    }
+
+    /**
+     * Returns a printable summary of the report.
+     *
+     * @return the report text
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder report = new StringBuilder(512);
+        report.append("--- Delivery Report ---\n");
+        report.append("Orders delivered: ").append(orderCount).append('\n');
+        Money.appendTo(report.append("Revenue: $"), revenueCents);
+        if (orderCount > 0)
+        {
+            Money.appendTo(report.append(" (average $"), revenueCents / orderCount).append(')');
+        }
+        report.append('\n');
+
+        report.append("Meal types:");
+        for (MealType type : MealType.values())
+        {
+            report.append(type.ordinal() == 0 ? " " : ", ").append(type).append(' ').append(getMealTypeCount(type));
+            appendShare(report, getMealTypeCount(type));
+            Money.appendTo(report.append(" $"), getMealTypeRevenueCents(type));
+        }
+        report.append('\n');
+
+        report.append("Delivery: door ").append(getDeliveryMethodCount(DeliveryMethod.DOOR_DELIVERY));
+        appendShare(report, getDeliveryMethodCount(DeliveryMethod.DOOR_DELIVERY));
+        report.append(", pickup ").append(getDeliveryMethodCount(DeliveryMethod.PICKUP));
+        appendShare(report, getDeliveryMethodCount(DeliveryMethod.PICKUP));
+        report.append(", not chosen ").append(getDeliveryMethodCount(null)).append('\n');
+
+        report.append("Student discount: ").append(studentCount);
+        appendShare(report, studentCount);
+        report.append('\n');
+
+        report.append("Toppings:");
+        List<Topping> popular = getToppingsByPopularity();
+        if (popular.isEmpty())
+        {
+            report.append(" none");
+        }
+        for (int i = 0; i < popular.size(); i++)
+        {
+            Topping topping = popular.get(i);
+            report.append(i == 0 ? " " : ", ").append(topping.getName()).append(' ')
+                    .append(toppingCounts[topping.getId()]);
+            appendShare(report, toppingCounts[topping.getId()]);
+        }
+        return report.toString();
+    }
+
+    /**
+     * Appends a count's share of all orders, e.g. " (12.5%)".
+     *
+     * @param report the builder to append to
+     * @param count the count
+     */
+    private void appendShare(StringBuilder report, long count)
+    {
+        long tenths = orderCount == 0 ? 0 : (count * 1000 + orderCount / 2) / orderCount;
+        report.append(" (").append(tenths / 10).append('.').append(tenths % 10).append("%)");
+    }
+
+    /**
+     * Running totals for one range of rows. Each fork/join task owns its
+     * tally, so nothing is shared until tallies are merged.
+     */
+    private static final class Tally
+    {
+        long orderCount;
+        long revenueCents;
+        final long[] mealTypeCounts = new long[MealType.values().length];
+        final long[] mealTypeRevenueCents = new long[MealType.values().length];
+        final long[] deliveryMethodCounts = new long[DeliveryMethod.values().length + 1];
+        long studentCount;
+        final long[] toppingCounts;
+
+        Tally(int toppingCount)
+        {
+            toppingCounts = new long[toppingCount];
+        }
+
+        /**
+         * Adds another range's totals into this one.
+         *
+         * @param other the tally to add
+         */
+        void merge(Tally other)
+        {
+            orderCount += other.orderCount;
+            revenueCents += other.revenueCents;
+            add(mealTypeCounts, other.mealTypeCounts);
+            add(mealTypeRevenueCents, other.mealTypeRevenueCents);
+            add(deliveryMethodCounts, other.deliveryMethodCounts);
+            studentCount += other.studentCount;
+            add(toppingCounts, other.toppingCounts);
+        }
+
+        private static void add(long[] into, long[] from)
+        {
+            for (int i = 0; i < into.length; i++)
+            {
+                into[i] += from[i];
+            }
+        }
+    }
+
+    /**
+     * Tallies a range of rows, splitting it in half until it is small enough
+     * to scan directly.
+     */
+    private static final class TallyTask extends RecursiveTask<Tally>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final ColumnarOrderStore.Columns columns;
+        private final int from;
+        private final int to;
+        private final long fromMillis;
+        private final long toMillis;
+        private final int toppingCount;
+
+        TallyTask(ColumnarOrderStore.Columns columns, int from, int to, long fromMillis, long toMillis,
+                int toppingCount)
+        {
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.toppingCount = toppingCount;
+        }
+
+        @Override
+        protected Tally compute()
+        {
+            if (to - from > SPLIT_THRESHOLD)
+            {
+                int middle = (from + to) >>> 1;
+                TallyTask left = new TallyTask(columns, from, middle, fromMillis, toMillis, toppingCount);
+                left.fork();
+                Tally tally = new TallyTask(columns, middle, to, fromMillis, toMillis, toppingCount).compute();
+                tally.merge(left.join());
+                return tally;
+            }
+            return scan();
+        }
+
+        /**
+         * Scans the range column by column into a fresh tally.
+         *
+         * @return the range's totals
+         */
+        private Tally scan()
+        {
+            Tally tally = new Tally(toppingCount);
+            int noMethod = DeliveryMethod.values().length;
+            int words = columns.toppingWords;
+
+            for (int row = from; row < to; row++)
+            {
+                long delivered = columns.deliveredAtMillis[row];
+                if (delivered < fromMillis || delivered >= toMillis)
+                {
+                    continue;
+                }
+
+                long cents = columns.totalCents[row];
+                tally.orderCount++;
+                tally.revenueCents += cents;
+                byte mealType = columns.mealTypes[row];
+                tally.mealTypeCounts[mealType]++;
+                tally.mealTypeRevenueCents[mealType] += cents;
+                byte method = columns.deliveryMethods[row];
+                tally.deliveryMethodCounts[method == ColumnarOrderStore.NO_DELIVERY_METHOD ? noMethod : method]++;
+                if (columns.students[row])
+                {
+                    tally.studentCount++;
+                }
+
+                //Visit only the set bits of the topping bitset
+                for (int word = 0; word < words; word++)
+                {
+                    long bits = columns.toppings[row * words + word];
+                    while (bits != 0)
+                    {
+                        tally.toppingCounts[word * 64 + Long.numberOfTrailingZeros(bits)]++;
+                        bits &= bits - 1;
+                    }
+                }
+            }
+            return tally;
+        }
+    }
+}
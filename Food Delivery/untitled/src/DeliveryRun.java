@@ -0,0 +1,67 @@
+import java.util.List;
+
+/**
+ * One driver's trip: door deliveries close to each other, in the order they
+ * should be dropped off.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class DeliveryRun
+{
+    /** The orders, in drop-off order */
+    private final List<Order> stops;
+
+    /** Driving distance from the kitchen through every stop, in metres */
+    private final long distanceMetres;
+
+    /**
+     * Constructs a run.
+     *
+     * @param stops the orders in drop-off order
+     * @param distanceMetres the driving distance from the kitchen through every stop
+     */
+    public DeliveryRun(List<Order> stops, long distanceMetres)
+    {
+        this.stops = List.copyOf(stops);
+        this.distanceMetres = distanceMetres;
+    }
+
+    /**
+     * Returns the orders on the run.
+     *
+     * @return an unmodifiable list of orders in drop-off order
+     */
+    public List<Order> getStops()
+    {
+        return stops;
+    }
+
+    /**
+     * Returns the driving distance of the run, not counting the way back.
+     *
+     * @return the distance in metres
+     */
+    public long getDistanceMetres()
+    {
+        return distanceMetres;
+    }
+
+    /**
+     * Returns a short description of the run.
+     *
+     * @return the stop count, distance and order ids
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder out = new StringBuilder();
+        out.append("Run of ").append(stops.size()).append(stops.size() == 1 ? " stop, " : " stops, ")
+                .append(distanceMetres).append(" m: orders");
+        for (Order order : stops)
+        {
+            out.append(' ').append(order.getId());
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Decides the order in which pending orders are dispatched.
+ *
+ * Each order is given a dispatch key when it joins the queue, and the order
+ * with the lowest key is dispatched first. Orders with equal keys leave in
+ * the order they arrived, so a policy that gives every order the same key
+ * behaves exactly like the original FIFO queue.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public interface DispatchPolicy
+{
+    /** Plain first-in, first-out dispatch */
+    DispatchPolicy FIFO = order -> 0;
+
+    /**
+     * Works out the dispatch key of an order as it joins the queue.
+     *
+     * @param order the order being queued
+     * @return the key; lower keys are dispatched first
+     */
+    long dispatchKey(Order order);
+}
@@ -0,0 +1,311 @@
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread-safe queue of orders that hands out the order with the lowest
+ * dispatch key first, as decided by a DispatchPolicy.
+ *
+ * The key is worked out once when an order joins the queue and kept next to
+ * it in a binary heap, so adding and removing are O(log n) and the policy is
+ * never called during heap comparisons. Orders with equal keys leave in the
+ * order they arrived.
+ *
+ * A map from order id to heap entry finds any pending order in constant
+ * time. Cancelling an order only drops it from the map, and changing one
+ * puts a new entry with a fresh key in the map and the heap; entries no
+ * longer in the map are stale and are skipped as they reach the top of the
+ * heap, so neither has to search the heap. Whoever removes an entry from
+ * the map owns the order, which is how dispatch and cancellation agree.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class DispatchQueue extends AbstractQueue<Order> implements OrderQueue
+{
+    /** Decides the dispatch key of each order */
+    private final DispatchPolicy policy;
+
+    /** The heap of queued orders and their keys */
+    private final PriorityBlockingQueue<Entry> heap = new PriorityBlockingQueue<>();
+
+    /** The live entry of each pending order, by order id */
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /** Arrival counter used to break ties between equal keys */
+    private final AtomicLong arrivals = new AtomicLong();
+
+    /**
+     * Constructs an empty queue ordered by the given policy.
+     *
+     * @param policy the dispatch policy
+     */
+    public DispatchQueue(DispatchPolicy policy)
+    {
+        this.policy = policy;
+    }
+
+    /**
+     * Adds an order to the queue.
+     *
+     * @param order the order
+     * @return true if it was added, false if an order with its id is already pending
+     */
+    @Override
+    public boolean offer(Order order)
+    {
+        Entry entry = new Entry(policy.dispatchKey(order), arrivals.getAndIncrement(), order);
+        if (entries.putIfAbsent(order.getId(), entry) != null)
+        {
+            return false;
+        }
+        return heap.offer(entry);
+    }
+
+    /**
+     * Adds an order to the queue.
+     *
+     * @param order the order
+     * @return true
+     * @throws IllegalStateException if an order with its id is already pending
+     */
+    @Override
+    public boolean add(Order order)
+    {
+        if (!offer(order))
+        {
+            throw new IllegalStateException("Order " + order.getId() + " is already in the queue");
+        }
+        return true;
+    }
+
+    @Override
+    public void put(Order order)
+    {
+        add(order);
+    }
+
+    @Override
+    public boolean offer(Order order, long timeout, TimeUnit unit)
+    {
+        //The heap is unbounded, so there is never any need to wait
+        return offer(order);
+    }
+
+    @Override
+    public Order poll()
+    {
+        Entry entry;
+        while ((entry = heap.poll()) != null)
+        {
+            if (claim(entry))
+            {
+                return entry.order;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Order poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Entry entry;
+        while ((entry = heap.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) != null)
+        {
+            if (claim(entry))
+            {
+                return entry.order;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Order take() throws InterruptedException
+    {
+        while (true)
+        {
+            Entry entry = heap.take();
+            if (claim(entry))
+            {
+                return entry.order;
+            }
+        }
+    }
+
+    @Override
+    public Order peek()
+    {
+        Entry entry;
+        while ((entry = heap.peek()) != null)
+        {
+            if (entries.get(entry.order.getId()) == entry)
+            {
+                return entry.order;
+            }
+
+            //A stale entry at the top is found first by remove, so dropping it is cheap
+            heap.remove(entry);
+        }
+        return null;
+    }
+
+    @Override
+    public Order get(long orderId)
+    {
+        Entry entry = entries.get(orderId);
+        return entry == null ? null : entry.order;
+    }
+
+    @Override
+    public Order remove(long orderId)
+    {
+        //The entry stays in the heap until it reaches the top and is skipped
+        Entry entry = entries.remove(orderId);
+        return entry == null ? null : entry.order;
+    }
+
+    @Override
+    public Order update(long orderId, UnaryOperator<Order> change)
+    {
+        Entry[] added = new Entry[1];
+        entries.computeIfPresent(orderId, (id, entry) ->
+        {
+            Order changed = change.apply(entry.order);
+            if (changed.getId() != orderId)
+            {
+                throw new IllegalArgumentException("Order " + orderId + " cannot be replaced by order " + changed.getId());
+            }
+
+            //The change may move the order, e.g. a pickup switched to door delivery; its arrival is kept for ties
+            added[0] = new Entry(policy.dispatchKey(changed), entry.arrival, changed);
+            return added[0];
+        });
+        if (added[0] == null)
+        {
+            return null;
+        }
+        heap.offer(added[0]);
+        return added[0].order;
+    }
+
+    @Override
+    public int size()
+    {
+        return entries.size();
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Order> target)
+    {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Order> target, int maxElements)
+    {
+        int drained = 0;
+        Order order;
+        while (drained < maxElements && (order = poll()) != null)
+        {
+            target.add(order);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Iterates over the queued orders in dispatch order. The pending entries
+     * are copied and sorted by key and arrival, so this costs O(n log n).
+     *
+     * @return an iterator over the orders pending when it was created
+     */
+    @Override
+    public Iterator<Order> iterator()
+    {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        Collections.sort(sorted);
+        Iterator<Entry> live = sorted.iterator();
+        return new Iterator<Order>()
+        {
+            private Entry last;
+
+            @Override
+            public boolean hasNext()
+            {
+                return live.hasNext();
+            }
+
+            @Override
+            public Order next()
+            {
+                last = live.next();
+                return last.order;
+            }
+
+            @Override
+            public void remove()
+            {
+                if (last == null)
+                {
+                    throw new IllegalStateException();
+                }
+
+                //Only this entry, in case the order was changed, or taken and added again, since
+                entries.remove(last.order.getId(), last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Takes ownership of an entry from the top of the heap.
+     *
+     * @param entry the entry
+     * @return true if it was still the live entry for its order, false if it
+     *         was cancelled, replaced or already dispatched
+     */
+    private boolean claim(Entry entry)
+    {
+        return entries.remove(entry.order.getId(), entry);
+    }
+
+    /** An order with the key it is ordered by */
+    private static final class Entry implements Comparable<Entry>
+    {
+        private final long key;
+
+        private final long arrival;
+
+        private final Order order;
+
+        Entry(long key, long arrival, Order order)
+        {
+            this.key = key;
+            this.arrival = arrival;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Entry other)
+        {
+            int byKey = Long.compare(key, other.key);
+            return byKey != 0 ? byKey : Long.compare(arrival, other.arrival);
+        }
+    }
+}
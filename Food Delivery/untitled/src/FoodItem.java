@@ -1,8 +1,11 @@
+import java.io.IOException;
+
 /**
  * Abstract base class for all food items (e.g., pizza, pasta).
  * <p>
  * Defines a common base price and enforces implementation of
  * price calculation and meal type identification in subclasses.
+ * Prices are held in whole cents (see Money) so totals are exact.
  * </p>
  *
  * Author: Reyan
@@ -10,16 +13,26 @@
  */
 public abstract class FoodItem
 {
-    /** Shared base price for all food items (e.g., starting price) */
-    protected static final double BASE_PRICE = 11.50;
+    /** Shared base price for all food items in cents (e.g., starting price of $11.50) */
+    protected static final long BASE_PRICE_CENTS = 1150;
 
     /**
-     * Calculates the total price of the food item.
+     * Calculates the total price of the food item in cents.
      * Implemented by each subclass based on its own logic.
      *
+     * @return the total price of the item in cents
+     */
+    public abstract long getPriceCents();
+
+    /**
+     * Returns the total price of the food item in dollars.
+     *
      * @return the total price of the item
      */
-    public abstract double getPrice();
+    public double getPrice()
+    {
+        return Money.toDollars(getPriceCents());
+    }
 
     /**
      * Determines the overall meal classification for the item
@@ -29,6 +42,18 @@ public abstract class FoodItem
      */
     public abstract MealType getMealType();
 
+    /**
+     * Writes the same text as toString to the given output. Subclasses
+     * override this to write their parts directly instead of building a String.
+     *
+     * @param out where to write the item
+     * @throws IOException if the output cannot be written
+     */
+    public void appendTo(Appendable out) throws IOException
+    {
+        out.append(toString());
+    }
+
     /**
      * Returns a human-readable string describing the food item.
      *
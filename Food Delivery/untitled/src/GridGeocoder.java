@@ -0,0 +1,242 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns free-text delivery addresses into positions and grid cells around
+ * the kitchen.
+ *
+ * This is a stand-in for a real geocoding service. Addresses are
+ * normalised (case, punctuation and common abbreviations such as "Street"
+ * and "St"), split into a house number and a street, and the street is
+ * looked up in a local table of where each street starts and which way it
+ * runs. Streets not in the table are placed at a fixed spot worked out from
+ * their name, so orders for the same unknown street still end up together.
+ *
+ * Positions are metres east and north of the kitchen, packed into a long,
+ * and cells are squares of a fixed size on the same grid.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class GridGeocoder
+{
+    /** Default width of a grid cell in metres */
+    private static final int DEFAULT_CELL_METRES = 500;
+
+    /** Distance along a street between consecutive house numbers */
+    private static final int METRES_PER_HOUSE = 8;
+
+    /** Unknown streets are placed within this distance of the kitchen */
+    private static final int UNKNOWN_STREET_RANGE_METRES = 4000;
+
+    /** Streets as {name, x, y, east}: where the street starts in metres from the kitchen, and 1 if it runs east, 0 if north */
+    private static final Object[][] STREETS = {
+            {"high st", -1200, 0, 1},
+            {"station rd", 0, -1500, 0},
+            {"church rd", -600, 400, 1},
+            {"park ave", 300, -800, 0},
+            {"mill ln", 900, 200, 0},
+            {"queen st", -900, -600, 1},
+            {"king st", -900, -300, 1},
+            {"victoria rd", 1500, -1200, 0},
+            {"london rd", -3000, 1200, 1},
+            {"baker st", 200, 700, 1},
+            {"bridge st", -400, -1800, 0},
+            {"green ln", 2100, 600, 0},
+            {"university ave", -2200, -2400, 1},
+            {"college rd", -2500, -2000, 0}};
+
+    /** Long street suffixes and their short forms */
+    private static final Map<String, String> ABBREVIATIONS = Map.of(
+            "street", "st", "road", "rd", "avenue", "ave", "lane", "ln",
+            "drive", "dr", "place", "pl", "crescent", "cres", "court", "ct");
+
+    /** Known streets by normalised name, as {x, y, dx, dy} */
+    private final Map<String, int[]> streets = new HashMap<String, int[]>();
+
+    /** Width of a grid cell in metres */
+    private final int cellMetres;
+
+    /**
+     * Constructs a geocoder with the standard street table and 500 metre cells.
+     */
+    public GridGeocoder()
+    {
+        this(DEFAULT_CELL_METRES);
+    }
+
+    /**
+     * Constructs a geocoder with the standard street table.
+     *
+     * @param cellMetres the width of a grid cell in metres
+     */
+    public GridGeocoder(int cellMetres)
+    {
+        if (cellMetres < 1)
+        {
+            throw new IllegalArgumentException("Grid cells must be at least a metre wide");
+        }
+        this.cellMetres = cellMetres;
+
+        for (Object[] street : STREETS)
+        {
+            boolean east = (Integer) street[3] == 1;
+            streets.put((String) street[0], new int[] {(Integer) street[1], (Integer) street[2], east ? 1 : 0, east ? 0 : 1});
+        }
+    }
+
+    /**
+     * Works out where an address is.
+     *
+     * @param address the free-text address, e.g. "12 Baker Street"
+     * @return the position, packed as by position(x, y)
+     */
+    public long locate(String address)
+    {
+        //Split off a leading house number, then normalise the rest as the street name
+        int i = 0;
+        while (i < address.length() && !Character.isLetterOrDigit(address.charAt(i)))
+        {
+            i++;
+        }
+        int number = 0;
+        while (i < address.length() && Character.isDigit(address.charAt(i)) && number < 100_000)
+        {
+            number = number * 10 + (address.charAt(i++) - '0');
+        }
+
+        //Only the first line of the address names the street
+        int comma = address.indexOf(',', i);
+        String street = normalise(address.substring(i, comma < 0 ? address.length() : comma));
+
+        int[] start = streets.get(street);
+        if (start == null)
+        {
+            //Place the unknown street by its name so every order for it lands in the same spot
+            int hash = street.hashCode() * 0x9E3779B1;
+            int span = 2 * UNKNOWN_STREET_RANGE_METRES + 1;
+            start = new int[] {Math.floorMod(hash, span) - UNKNOWN_STREET_RANGE_METRES,
+                    Math.floorMod(hash >>> 16 ^ hash * 31, span) - UNKNOWN_STREET_RANGE_METRES, 1, 0};
+        }
+
+        int along = number * METRES_PER_HOUSE;
+        return position(start[0] + start[2] * along, start[1] + start[3] * along);
+    }
+
+    /**
+     * Returns the grid cell a position falls in.
+     *
+     * @param position a packed position
+     * @return the cell, packed as by position(column, row)
+     */
+    public long cellOf(long position)
+    {
+        return position(Math.floorDiv(x(position), cellMetres), Math.floorDiv(y(position), cellMetres));
+    }
+
+    /**
+     * Returns the grid cell an address falls in.
+     *
+     * @param address the free-text address
+     * @return the packed cell
+     */
+    public long cellOf(String address)
+    {
+        return cellOf(locate(address));
+    }
+
+    /**
+     * Returns the width of a grid cell.
+     *
+     * @return the cell width in metres
+     */
+    public int getCellMetres()
+    {
+        return cellMetres;
+    }
+
+    /**
+     * Packs a pair of grid coordinates into a long.
+     *
+     * @param x metres (or cells) east of the kitchen
+     * @param y metres (or cells) north of the kitchen
+     * @return the packed pair
+     */
+    public static long position(int x, int y)
+    {
+        return (long) x << 32 | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the east coordinate of a packed pair.
+     *
+     * @param position the packed pair
+     * @return the x coordinate
+     */
+    public static int x(long position)
+    {
+        return (int) (position >> 32);
+    }
+
+    /**
+     * Returns the north coordinate of a packed pair.
+     *
+     * @param position the packed pair
+     * @return the y coordinate
+     */
+    public static int y(long position)
+    {
+        return (int) position;
+    }
+
+    /**
+     * Returns the driving distance between two positions on the street grid.
+     *
+     * @param from a packed position
+     * @param to a packed position
+     * @return the Manhattan distance in metres
+     */
+    public static long distance(long from, long to)
+    {
+        return Math.abs((long) x(from) - x(to)) + Math.abs((long) y(from) - y(to));
+    }
+
+    /**
+     * Reduces a street name to lower-case words separated by single spaces,
+     * with punctuation dropped and the suffix abbreviated.
+     *
+     * @param street the street part of an address
+     * @return the normalised street name
+     */
+    private static String normalise(String street)
+    {
+        StringBuilder out = new StringBuilder(street.length());
+        int wordStart = 0;
+        for (int i = 0; i <= street.length(); i++)
+        {
+            char c = i < street.length() ? street.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c))
+            {
+                if (out.length() > 0 && wordStart == out.length() && out.charAt(out.length() - 1) != ' ')
+                {
+                    out.append(' ');
+                    wordStart = out.length();
+                }
+                out.append(Character.toLowerCase(c));
+            }
+            else if (c != '\'')
+            {
+                //Anything else ends the word; shorten it if it is a known suffix
+                String word = out.substring(wordStart);
+                String shortForm = ABBREVIATIONS.get(word);
+                if (shortForm != null)
+                {
+                    out.setLength(wordStart);
+                    out.append(shortForm);
+                }
+                wordStart = out.length();
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the idempotency keys of recently submitted orders, so a
+ * terminal that retries a submission gets the original order back instead
+ * of queueing it twice.
+ *
+ * Keys are held in a ConcurrentHashMap, so checking a key is one hash
+ * lookup and claiming one is a single putIfAbsent, without any lock shared
+ * by all submissions. Each key expires after a fixed time, and once the
+ * index is full the oldest keys are dropped first; both are cleaned up a
+ * little at a time by the threads adding keys, with no background thread.
+ * The index is not persisted: after a restart every key is new again.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class IdempotencyIndex
+{
+    /** Returned by claim when the key was not seen before */
+    public static final long NEW_KEY = 0;
+
+    /** Keys kept by default, enough for a busy half hour */
+    private static final int DEFAULT_MAX_KEYS = 250_000;
+
+    /** Default time a key is remembered, well past any terminal's retry window */
+    private static final long DEFAULT_TTL_MINUTES = 30;
+
+    /** Most expired or surplus keys a single claim removes */
+    private static final int EVICTIONS_PER_CLAIM = 2;
+
+    /** Order id and expiry time for each live key */
+    private final ConcurrentHashMap<String, Entry> entries;
+
+    /** Keys in the order they were claimed, oldest first, for eviction */
+    private final ConcurrentLinkedQueue<Entry> claimOrder = new ConcurrentLinkedQueue<Entry>();
+
+    /** Most keys kept at once */
+    private final int maxKeys;
+
+    /** How long a key is remembered, in milliseconds */
+    private final long ttlMillis;
+
+    /**
+     * Constructs an empty index with the default size and time to live.
+     */
+    public IdempotencyIndex()
+    {
+        this(DEFAULT_MAX_KEYS, DEFAULT_TTL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param maxKeys the most keys kept at once
+     * @param ttl how long a key is remembered
+     * @param unit the unit of the ttl
+     */
+    public IdempotencyIndex(int maxKeys, long ttl, TimeUnit unit)
+    {
+        if (maxKeys < 1 || ttl < 1)
+        {
+            throw new IllegalArgumentException("Idempotency index needs a positive size and time to live");
+        }
+        this.maxKeys = maxKeys;
+        this.ttlMillis = unit.toMillis(ttl);
+        this.entries = new ConcurrentHashMap<String, Entry>(Math.min(maxKeys, 1 << 16));
+    }
+
+    /**
+     * Claims a key for an order, unless a live claim for it already exists.
+     *
+     * @param key the idempotency key
+     * @param orderId the id of the order being submitted
+     * @return NEW_KEY if the key was claimed for this order, or the id of
+     *         the order that already holds it
+     */
+    public long claim(String key, long orderId)
+    {
+        long now = System.currentTimeMillis();
+        Entry fresh = new Entry(key, orderId, now + ttlMillis);
+
+        Entry existing = entries.putIfAbsent(key, fresh);
+        while (existing != null)
+        {
+            if (existing.expiresAtMillis > now)
+            {
+                return existing.orderId;
+            }
+
+            //The old claim has expired, so take it over; retry if another thread got there first
+            if (entries.replace(key, existing, fresh))
+            {
+                break;
+            }
+            existing = entries.putIfAbsent(key, fresh);
+        }
+
+        claimOrder.add(fresh);
+        evict(now);
+        return NEW_KEY;
+    }
+
+    /**
+     * Releases a claim, for example when the order it was made for could not
+     * be queued after all.
+     *
+     * @param key the idempotency key
+     * @param orderId the order the key was claimed for
+     */
+    public void release(String key, long orderId)
+    {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.orderId == orderId)
+        {
+            entries.remove(key, entry);
+        }
+    }
+
+    /**
+     * Looks up the order holding a key.
+     *
+     * @param key the idempotency key
+     * @return the order id, or NEW_KEY if the key is not held
+     */
+    public long find(String key)
+    {
+        Entry entry = entries.get(key);
+        return entry != null && entry.expiresAtMillis > System.currentTimeMillis() ? entry.orderId : NEW_KEY;
+    }
+
+    /**
+     * Returns the number of keys held, including expired ones not yet cleaned up.
+     *
+     * @return the key count
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Drops a few of the oldest claims if they have expired or the index is over size.
+     *
+     * @param now the current time in milliseconds
+     */
+    private void evict(long now)
+    {
+        for (int i = 0; i < EVICTIONS_PER_CLAIM; i++)
+        {
+            Entry oldest = claimOrder.peek();
+            if (oldest == null || (oldest.expiresAtMillis > now && entries.size() <= maxKeys))
+            {
+                return;
+            }
+            if (claimOrder.remove(oldest))
+            {
+                //Only remove the key if it still maps to this claim, not a newer one
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    /**
+     * One claimed key.
+     */
+    private static final class Entry
+    {
+        final String key;
+        final long orderId;
+        final long expiresAtMillis;
+
+        Entry(String key, long orderId, long expiresAtMillis)
+        {
+            this.key = key;
+            this.orderId = orderId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * A first-in, first-out queue of orders with a hash index on order id.
+ *
+ * Each queued order sits in a node of a doubly-linked list, and a HashMap
+ * from order id to node lets any order be found, unlinked or swapped for a
+ * new version in constant time, wherever it is in the queue. Dispatch still
+ * takes from the head, so cancelling or changing orders does not affect the
+ * order the others leave in. A changed order keeps its place in the queue.
+ *
+ * The list and the index are updated together under one lock, held only for
+ * a few pointer updates per call. The lock is cheap while only one thread
+ * uses the queue; a queue shared between threads should be a
+ * ConcurrentOrderQueue instead.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class IndexedOrderQueue extends AbstractQueue<Order> implements OrderQueue
+{
+    /** Pending orders by id */
+    private final Map<Long, Node> index = new HashMap<Long, Node>();
+
+    /** Guards the list and the index */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Signalled when an order is added */
+    private final Condition notEmpty = lock.newCondition();
+
+    /** Oldest order, next to be dispatched, or null if empty */
+    private Node head;
+
+    /** Newest order, or null if empty */
+    private Node tail;
+
+    /**
+     * Adds an order to the end of the queue.
+     *
+     * @param order the order
+     * @return true if it was added, false if an order with its id is already pending
+     */
+    @Override
+    public boolean offer(Order order)
+    {
+        Node node = new Node(order);
+        lock.lock();
+        try
+        {
+            if (index.putIfAbsent(order.getId(), node) != null)
+            {
+                return false;
+            }
+
+            node.prev = tail;
+            if (tail == null)
+            {
+                head = node;
+            }
+            else
+            {
+                tail.next = node;
+            }
+            tail = node;
+            node.linked = true;
+            notEmpty.signal();
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds an order to the end of the queue.
+     *
+     * @param order the order
+     * @return true
+     * @throws IllegalStateException if an order with its id is already pending
+     */
+    @Override
+    public boolean add(Order order)
+    {
+        if (!offer(order))
+        {
+            throw new IllegalStateException("Order " + order.getId() + " is already in the queue");
+        }
+        return true;
+    }
+
+    @Override
+    public void put(Order order)
+    {
+        add(order);
+    }
+
+    @Override
+    public boolean offer(Order order, long timeout, TimeUnit unit)
+    {
+        //The queue is unbounded, so there is never any need to wait
+        return offer(order);
+    }
+
+    @Override
+    public Order poll()
+    {
+        lock.lock();
+        try
+        {
+            return head == null ? null : unlink(head);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Order poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try
+        {
+            while (head == null)
+            {
+                if (nanos <= 0)
+                {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return unlink(head);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Order take() throws InterruptedException
+    {
+        lock.lockInterruptibly();
+        try
+        {
+            while (head == null)
+            {
+                notEmpty.await();
+            }
+            return unlink(head);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Order peek()
+    {
+        lock.lock();
+        try
+        {
+            return head == null ? null : head.order;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Order get(long orderId)
+    {
+        lock.lock();
+        try
+        {
+            Node node = index.get(orderId);
+            return node == null ? null : node.order;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Order remove(long orderId)
+    {
+        lock.lock();
+        try
+        {
+            Node node = index.get(orderId);
+            return node == null ? null : unlink(node);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Order update(long orderId, UnaryOperator<Order> change)
+    {
+        lock.lock();
+        try
+        {
+            Node node = index.get(orderId);
+            if (node == null)
+            {
+                return null;
+            }
+
+            Order changed = change.apply(node.order);
+            if (changed.getId() != orderId)
+            {
+                throw new IllegalArgumentException("Order " + orderId + " cannot be replaced by order " + changed.getId());
+            }
+            node.order = changed;
+            return changed;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        lock.lock();
+        try
+        {
+            return index.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Order> target)
+    {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Order> target, int maxElements)
+    {
+        //One lock for the whole batch
+        lock.lock();
+        try
+        {
+            int drained = 0;
+            while (drained < maxElements && head != null)
+            {
+                target.add(unlink(head));
+                drained++;
+            }
+            return drained;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Iterates over the queued orders in dispatch order. The iterator walks
+     * the list itself, taking the lock for one step at a time, and skips
+     * orders that leave the queue while it is running.
+     *
+     * @return a weakly consistent iterator over the pending orders
+     */
+    @Override
+    public Iterator<Order> iterator()
+    {
+        return new Iterator<Order>()
+        {
+            private Node next = first();
+
+            private Node last;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next != null;
+            }
+
+            @Override
+            public Order next()
+            {
+                Node node = next;
+                if (node == null)
+                {
+                    throw new NoSuchElementException();
+                }
+
+                lock.lock();
+                try
+                {
+                    //The order is read under the lock, so an update made before this step is seen
+                    Order order = node.order;
+                    Node after = node.next;
+                    while (after != null && !after.linked)
+                    {
+                        after = after.next;
+                    }
+                    next = after;
+                    last = node;
+                    return order;
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void remove()
+            {
+                if (last == null)
+                {
+                    throw new IllegalStateException();
+                }
+
+                lock.lock();
+                try
+                {
+                    //It may have been dispatched or cancelled since it was returned
+                    if (last.linked)
+                    {
+                        unlink(last);
+                    }
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Returns the node at the head of the queue.
+     *
+     * @return the head, or null if the queue is empty
+     */
+    private Node first()
+    {
+        lock.lock();
+        try
+        {
+            return head;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a node out of the list and the index. Called with the lock held.
+     *
+     * @param node the node
+     * @return its order
+     */
+    private Order unlink(Node node)
+    {
+        if (node.prev == null)
+        {
+            head = node.next;
+        }
+        else
+        {
+            node.prev.next = node.next;
+        }
+        if (node.next == null)
+        {
+            tail = node.prev;
+        }
+        else
+        {
+            node.next.prev = node.prev;
+        }
+
+        //Its next pointer is kept so an iterator standing on it can move on
+        node.linked = false;
+        index.remove(node.order.getId());
+        return node.order;
+    }
+
+    /** One queued order and its neighbours */
+    private static final class Node
+    {
+        Order order;
+
+        Node prev;
+
+        Node next;
+
+        //False once the node has been taken out of the list
+        boolean linked;
+
+        Node(Order order)
+        {
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,489 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Moves orders through the kitchen in stages: prep, cook, pack and dispatch.
+ *
+ * Each stage has its own pool of workers and a bounded queue of orders
+ * waiting for it. A worker takes an order from its stage's queue, does the
+ * stage's work on it and puts it in the next stage's queue, waiting if that
+ * queue is full. A slow stage therefore fills the queue in front of it, then
+ * the workers feeding it stop, and so on back to intake, instead of orders
+ * piling up without limit. The queues ahead of the ovens also keep prepared
+ * orders ready, so the cook stage always has work while anything is waiting.
+ *
+ * Orders come in through submit, or are taken from an OrderManager by
+ * feedFrom only when the prep queue has room. The work of each stage is a
+ * Station, so real timings (or real equipment) can be plugged in; by default
+ * prep, cook and pack finish immediately. An order a station fails on leaves
+ * the pipeline and goes to the FailureHandler set with onFailure, or is kept
+ * for drainFailed if there is none, so it is never silently lost.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class KitchenPipeline implements Closeable
+{
+    /** The stages an order goes through, in order */
+    public enum Stage
+    {
+        /** Making the dough and sauces, cutting toppings */
+        PREP,
+
+        /** The ovens and hobs */
+        COOK,
+
+        /** Boxing and bagging */
+        PACK,
+
+        /** Handing over to a driver or the pickup counter */
+        DISPATCH
+    }
+
+    /**
+     * The work a stage does on each order.
+     */
+    @FunctionalInterface
+    public interface Station
+    {
+        /**
+         * Does this stage's work on one order, returning when it is done.
+         *
+         * @param order the order
+         * @throws InterruptedException if interrupted while working
+         */
+        void work(Order order) throws InterruptedException;
+    }
+
+    /**
+     * Receives the orders a station failed on.
+     */
+    @FunctionalInterface
+    public interface FailureHandler
+    {
+        /**
+         * Called on the worker's thread after a station throws. The order has
+         * left the pipeline, so the handler decides whether it is redone.
+         *
+         * @param stage the stage that failed
+         * @param order the order it failed on
+         * @param cause what the station threw
+         */
+        void failed(Stage stage, Order order, RuntimeException cause);
+    }
+
+    /** How often idle workers check whether the pipeline is closing */
+    private static final long POLL_MILLIS = 100;
+
+    /** The configuration and queue of each stage */
+    private final Map<Stage, StageState> stages = new EnumMap<Stage, StageState>(Stage.class);
+
+    /** Orders a station failed on, kept when no FailureHandler is set */
+    private final ConcurrentLinkedQueue<Order> failedOrders = new ConcurrentLinkedQueue<Order>();
+
+    /** Held to add orders to prep, and exclusively by close, so nothing is added once prep may have drained */
+    private final ReentrantReadWriteLock intakeLock = new ReentrantReadWriteLock();
+
+    /** Receives failed orders */
+    private FailureHandler failureHandler = (stage, order, cause) -> failedOrders.add(order);
+
+    /** Thread moving orders from an OrderManager into prep, or null */
+    private Thread feeder;
+
+    /** Whether start has been called */
+    private boolean started;
+
+    /** Set by close to stop taking new orders */
+    private volatile boolean closed;
+
+    /**
+     * Constructs a pipeline with default stage sizes: two prep workers, four
+     * ovens, two packers and one dispatcher.
+     *
+     * @param dispatch the work of the dispatch stage, e.g. handing door
+     *                 deliveries to a DeliveryBatcher
+     */
+    public KitchenPipeline(Station dispatch)
+    {
+        Station none = order ->
+        {
+        };
+        stages.put(Stage.PREP, new StageState(Stage.PREP, 2, 64, none));
+        stages.put(Stage.COOK, new StageState(Stage.COOK, 4, 32, none));
+        stages.put(Stage.PACK, new StageState(Stage.PACK, 2, 32, none));
+        stages.put(Stage.DISPATCH, new StageState(Stage.DISPATCH, 1, 64, dispatch));
+    }
+
+    /**
+     * Sets how a stage is staffed and what it does. Only allowed before start.
+     *
+     * @param stage the stage
+     * @param workers the number of workers (cooks, ovens, packers...)
+     * @param capacity the most orders that can wait for the stage
+     * @param station the work done on each order
+     * @return this pipeline
+     * @throws IllegalStateException if the pipeline has started
+     */
+    public synchronized KitchenPipeline configure(Stage stage, int workers, int capacity, Station station)
+    {
+        if (started)
+        {
+            throw new IllegalStateException("The kitchen is already running");
+        }
+        if (workers < 1 || capacity < 1)
+        {
+            throw new IllegalArgumentException("A stage needs at least one worker and room for one order");
+        }
+        stages.put(stage, new StageState(stage, workers, capacity, station));
+        return this;
+    }
+
+    /**
+     * Sets what happens to an order a station fails on. Only allowed before start.
+     *
+     * @param handler receives each failed order
+     * @return this pipeline
+     * @throws IllegalStateException if the pipeline has started
+     */
+    public synchronized KitchenPipeline onFailure(FailureHandler handler)
+    {
+        if (started)
+        {
+            throw new IllegalStateException("The kitchen is already running");
+        }
+        failureHandler = handler;
+        return this;
+    }
+
+    /**
+     * Starts the workers of every stage.
+     *
+     * @return this pipeline
+     */
+    public synchronized KitchenPipeline start()
+    {
+        if (started)
+        {
+            return this;
+        }
+        started = true;
+
+        FailureHandler failures = failureHandler;
+        for (StageState state : stages.values())
+        {
+            StageState next = state.stage.ordinal() + 1 < Stage.values().length
+                    ? stages.get(Stage.values()[state.stage.ordinal() + 1])
+                    : null;
+            for (int i = 1; i <= state.workers; i++)
+            {
+                Thread thread = new Thread(() -> work(state, next, failures),
+                        "kitchen-" + state.stage.name().toLowerCase() + "-" + i);
+                thread.setDaemon(true);
+                state.threads.add(thread);
+                thread.start();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Starts a thread that takes orders from a manager whenever prep has room.
+     * Orders stay in the manager's queue, where they are journaled and
+     * counted against its pending limit, until the kitchen can take them.
+     *
+     * @param manager a concurrent order manager
+     * @throws IllegalArgumentException if the manager is not concurrent
+     * @throws IllegalStateException if the pipeline is already being fed
+     */
+    public synchronized void feedFrom(OrderManager manager)
+    {
+        if (!manager.isConcurrent())
+        {
+            throw new IllegalArgumentException("The kitchen can only be fed from a concurrent order manager");
+        }
+        if (feeder != null)
+        {
+            throw new IllegalStateException("The kitchen is already being fed");
+        }
+
+        feeder = new Thread(() ->
+        {
+            try
+            {
+                while (!closed)
+                {
+                    Order order = manager.takeOrder(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (order != null)
+                    {
+                        stages.get(Stage.PREP).queue.put(order);
+                    }
+                }
+            }
+            catch (InterruptedException e)
+            {
+                //Stop feeding; an order taken before the interrupt is already in prep
+            }
+        }, "kitchen-intake");
+        feeder.setDaemon(true);
+        feeder.start();
+    }
+
+    /**
+     * Adds an order to prep, waiting for room if prep is full.
+     *
+     * @param order the order
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public void submit(Order order) throws InterruptedException
+    {
+        intakeLock.readLock().lockInterruptibly();
+        try
+        {
+            checkOpen();
+            stages.get(Stage.PREP).queue.put(order);
+        }
+        finally
+        {
+            intakeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an order to prep, waiting up to the given time for room.
+     *
+     * @param order the order
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return true if the order was added, false if prep stayed full
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public boolean offer(Order order, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        intakeLock.readLock().lockInterruptibly();
+        try
+        {
+            checkOpen();
+            return stages.get(Stage.PREP).queue.offer(order, timeout, unit);
+        }
+        finally
+        {
+            intakeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether prep is full, so new orders would have to wait.
+     *
+     * @return true if the kitchen cannot take another order right now
+     */
+    public boolean isSaturated()
+    {
+        return stages.get(Stage.PREP).queue.remainingCapacity() == 0;
+    }
+
+    /**
+     * Returns the number of orders waiting for a stage.
+     *
+     * @param stage the stage
+     * @return the queue length
+     */
+    public int getWaiting(Stage stage)
+    {
+        return stages.get(stage).queue.size();
+    }
+
+    /**
+     * Returns the number of orders a stage has finished.
+     *
+     * @param stage the stage
+     * @return the completed count
+     */
+    public long getCompleted(Stage stage)
+    {
+        return stages.get(stage).completed.sum();
+    }
+
+    /**
+     * Returns the number of orders a stage failed on.
+     *
+     * @param stage the stage
+     * @return the failed count
+     */
+    public long getFailed(Stage stage)
+    {
+        return stages.get(stage).failed.sum();
+    }
+
+    /**
+     * Removes and returns the failed orders kept so far. Orders are only
+     * kept here when no FailureHandler was set.
+     *
+     * @return the failed orders, oldest first
+     */
+    public List<Order> drainFailed()
+    {
+        List<Order> failed = new ArrayList<Order>();
+        Order order;
+        while ((order = failedOrders.poll()) != null)
+        {
+            failed.add(order);
+        }
+        return failed;
+    }
+
+    /**
+     * Stops taking orders and waits for every order already in the kitchen
+     * to be dispatched, stage by stage. A submit or offer still waiting for
+     * room in prep finishes first; any made afterwards are refused.
+     */
+    @Override
+    public void close()
+    {
+        //Waits out submitters that are already adding, so nothing reaches prep after it drains
+        intakeLock.writeLock().lock();
+        try
+        {
+            closed = true;
+        }
+        finally
+        {
+            intakeLock.writeLock().unlock();
+        }
+
+        Thread intake;
+        synchronized (this)
+        {
+            intake = feeder;
+        }
+
+        try
+        {
+            if (intake != null)
+            {
+                intake.join();
+            }
+
+            //Each stage finishes its queue only once the stage before it can add nothing more
+            for (StageState state : stages.values())
+            {
+                state.draining = true;
+                for (Thread thread : state.threads)
+                {
+                    thread.join();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The loop each worker runs: take, work, hand on.
+     *
+     * @param state the worker's stage
+     * @param next the next stage, or null for dispatch
+     * @param failures receives the orders the station fails on
+     */
+    private void work(StageState state, StageState next, FailureHandler failures)
+    {
+        try
+        {
+            while (!state.draining || !state.queue.isEmpty())
+            {
+                Order order = state.queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (order == null)
+                {
+                    continue;
+                }
+
+                try
+                {
+                    state.station.work(order);
+                }
+                catch (RuntimeException e)
+                {
+                    state.failed.increment();
+                    failed(failures, state.stage, order, e);
+                    continue;
+                }
+                state.completed.increment();
+
+                //Waiting here when the next stage is full is what pushes back on the stages before it
+                if (next != null)
+                {
+                    next.queue.put(order);
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Passes a failed order to the handler, keeping the worker alive if the handler throws too.
+     *
+     * @param failures the handler
+     * @param stage the stage that failed
+     * @param order the order it failed on
+     * @param cause what the station threw
+     */
+    private void failed(FailureHandler failures, Stage stage, Order order, RuntimeException cause)
+    {
+        try
+        {
+            failures.failed(stage, order, cause);
+        }
+        catch (RuntimeException e)
+        {
+            failedOrders.add(order);
+            System.err.println("Kitchen failure handler failed on order " + order.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private void checkOpen()
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("The kitchen is closed");
+        }
+    }
+
+    /**
+     * One stage's settings, queue and counters.
+     */
+    private static final class StageState
+    {
+        final Stage stage;
+        final int workers;
+        final Station station;
+        final ArrayBlockingQueue<Order> queue;
+        final List<Thread> threads = new ArrayList<Thread>();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+
+        /** Set once nothing more can arrive, so workers stop when the queue is empty */
+        volatile boolean draining;
+
+        StageState(Stage stage, int workers, int capacity, Station station)
+        {
+            this.stage = stage;
+            this.workers = workers;
+            this.station = station;
+            this.queue = new ArrayBlockingQueue<Order>(capacity);
+        }
+    }
+}
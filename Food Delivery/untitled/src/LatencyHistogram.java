@@ -0,0 +1,221 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent histogram of non-negative values, such as latencies, with
+ * bounded relative error.
+ *
+ * Buckets are log-linear in the style of HdrHistogram: values below 32 get
+ * a bucket each, and every power of two above that is split into 32 equal
+ * buckets, so any recorded value is known to within about 3%. Recording is
+ * a few shifts and two atomic adds, with no allocation.
+ *
+ * To keep threads from fighting over the same cache lines, counts are kept
+ * in several stripes and a thread always records into the same stripe.
+ * Each stripe also holds its own sum and maximum, so a record touches one
+ * stripe only. The stripes are only added together when the histogram is read.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class LatencyHistogram
+{
+    /** Bits of precision kept below the highest set bit */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /** Buckets per power of two */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Largest value tracked exactly; larger values are counted as this */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    /** Number of buckets needed to reach MAX_VALUE */
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    /** Slot after the buckets holding a stripe's sum of values */
+    private static final int SUM = BUCKET_COUNT;
+
+    /** Slot after the sum holding a stripe's largest value */
+    private static final int MAX = BUCKET_COUNT + 1;
+
+    /** Most stripes used, however many processors there are */
+    private static final int MAX_STRIPES = 16;
+
+    /** Per-stripe bucket counts, followed by the stripe's sum and maximum */
+    private final AtomicLongArray[] stripes;
+
+    /** Right shift that turns a thread hash into a stripe index */
+    private final int stripeShift;
+
+    /** Constructs an empty histogram striped for the processors available */
+    public LatencyHistogram()
+    {
+        int stripeCount = 1;
+        while (stripeCount < Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES))
+        {
+            stripeCount <<= 1;
+        }
+
+        stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++)
+        {
+            stripes[i] = new AtomicLongArray(BUCKET_COUNT + 2);
+        }
+        stripeShift = 64 - Integer.numberOfTrailingZeros(stripeCount);
+    }
+
+    /**
+     * Records one value. Negative values are counted as 0 and values above
+     * MAX_VALUE as MAX_VALUE.
+     *
+     * @param value the value to record
+     */
+    public void record(long value)
+    {
+        value = Math.max(0, Math.min(value, MAX_VALUE));
+        AtomicLongArray stripe = stripes[stripe()];
+        stripe.getAndIncrement(bucketIndex(value));
+        stripe.getAndAdd(SUM, value);
+
+        //The maximum rarely changes, so this is usually one plain read
+        long max = stripe.get(MAX);
+        while (value > max && !stripe.compareAndSet(MAX, max, value))
+        {
+            max = stripe.get(MAX);
+        }
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the count
+     */
+    public long getCount()
+    {
+        long total = 0;
+        for (AtomicLongArray stripe : stripes)
+        {
+            for (int i = 0; i < BUCKET_COUNT; i++)
+            {
+                total += stripe.get(i);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return the maximum, or 0 if nothing was recorded
+     */
+    public long getMax()
+    {
+        long max = 0;
+        for (AtomicLongArray stripe : stripes)
+        {
+            max = Math.max(max, stripe.get(MAX));
+        }
+        return max;
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     *
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double getMean()
+    {
+        long sum = 0;
+        for (AtomicLongArray stripe : stripes)
+        {
+            sum += stripe.get(SUM);
+        }
+        long n = getCount();
+        return n == 0 ? 0 : sum / (double) n;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall.
+     * The result is the upper end of the bucket holding that value, so it may
+     * overstate the true value by up to the bucket width, never understate it.
+     *
+     * @param percentile the percentile, 0 to 100
+     * @return the value at the percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (AtomicLongArray stripe : stripes)
+        {
+            for (int i = 0; i < BUCKET_COUNT; i++)
+            {
+                long n = stripe.get(i);
+                counts[i] += n;
+                total += n;
+            }
+        }
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        //Rank of the value wanted, counting from 1
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank)
+            {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Picks this thread's stripe by mixing its id.
+     *
+     * @return the stripe index
+     */
+    private int stripe()
+    {
+        return (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> stripeShift) & (stripes.length - 1);
+    }
+
+    /**
+     * Finds the bucket a value falls in.
+     *
+     * @param value a value from 0 to MAX_VALUE
+     * @return the bucket index
+     */
+    private static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        //Keep the top SUB_BUCKET_BITS + 1 bits; each extra bit of magnitude adds SUB_BUCKETS buckets
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return magnitude * SUB_BUCKETS + (int) (value >>> magnitude);
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket.
+     *
+     * @param index the bucket index
+     * @return the bucket's upper bound
+     */
+    private static long bucketUpperBound(int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+
+        int magnitude = index / SUB_BUCKETS - 1;
+        long top = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << magnitude) - 1;
+    }
+}
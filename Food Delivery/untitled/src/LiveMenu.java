@@ -0,0 +1,172 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * The current menu, loaded from a file and reloaded when the file changes.
+ *
+ * The menu is held as one immutable Menu behind an atomic reference. Readers
+ * call get and use that snapshot for the whole order, without taking any
+ * lock; a reload builds a complete new Menu first and then swaps it in, so
+ * nobody ever sees a half-loaded menu. A file that fails to load leaves the
+ * current menu in place, so a typo while editing prices does not take the
+ * menu down.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class LiveMenu implements Supplier<Menu>, Closeable
+{
+    /** How long the file has to stay unchanged before it is reloaded */
+    private static final long SETTLE_MILLIS = 100;
+
+    /** The menu file */
+    private final Path file;
+
+    /** The menu currently in use */
+    private final AtomicReference<Menu> current;
+
+    /** Watches the menu file's directory, or null if not watching */
+    private WatchService watcher;
+
+    /**
+     * Loads the menu from a file.
+     *
+     * @param file the menu file (see Menu for the format)
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid menu
+     */
+    public LiveMenu(Path file) throws IOException
+    {
+        this.file = file.toAbsolutePath();
+        this.current = new AtomicReference<Menu>(Menu.load(this.file));
+    }
+
+    /**
+     * Returns the menu currently in use. The result never changes, so one
+     * order should take one snapshot and build everything from it.
+     *
+     * @return the current menu
+     */
+    @Override
+    public Menu get()
+    {
+        return current.get();
+    }
+
+    /**
+     * Loads the menu file again and swaps the new menu in.
+     *
+     * @return true if the new menu is now in use, false if the file could not
+     *         be loaded and the old menu is kept
+     */
+    public boolean reload()
+    {
+        Menu menu;
+        try
+        {
+            menu = Menu.load(file);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            System.err.println("Menu " + file + " not reloaded, keeping " + current.get().getName() + ": " + e.getMessage());
+            return false;
+        }
+
+        current.set(menu);
+        System.err.println("Menu reloaded: " + menu);
+        return true;
+    }
+
+    /**
+     * Starts a background thread that reloads the menu whenever the file is
+     * written. Editors often write a file in several steps, so the thread
+     * waits for the file to settle before reloading.
+     *
+     * @throws IOException if the file's directory cannot be watched
+     */
+    public synchronized void watch() throws IOException
+    {
+        if (watcher != null)
+        {
+            return;
+        }
+
+        //Directories are watched rather than files, so this also sees the file being replaced
+        WatchService service = FileSystems.getDefault().newWatchService();
+        file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watcher = service;
+
+        Thread thread = new Thread(() ->
+        {
+            try
+            {
+                while (true)
+                {
+                    if (!touchesFile(service.take()))
+                    {
+                        continue;
+                    }
+
+                    //Swallow the rest of this burst of writes before reading the file
+                    WatchKey more;
+                    while ((more = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null)
+                    {
+                        touchesFile(more);
+                    }
+                    reload();
+                }
+            }
+            catch (InterruptedException | ClosedWatchServiceException e)
+            {
+                //Closed; stop watching
+            }
+        }, "menu-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the menu file. The current menu stays in use.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (watcher != null)
+        {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Reads a key's events and resets it.
+     *
+     * @param key the signalled key
+     * @return true if any event was for the menu file
+     */
+    private boolean touchesFile(WatchKey key)
+    {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            if (file.getFileName().equals(event.context()))
+            {
+                touched = true;
+            }
+        }
+        key.reset();
+        return touched;
+    }
+}
@@ -0,0 +1,592 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A discrete-event simulation of a day's trading, for sizing kitchens and
+ * comparing dispatch strategies offline.
+ *
+ * Usage: java LoadSimulator [--seed N] [--orders N] [--kitchens N]
+ *        [--days N] [--dispatch fifo|deadline]
+ *
+ * Orders arrive between 10:00 and 23:00 at a rate that peaks around lunch
+ * and dinner. Each has a realistic mix of pizzas and pastas, with toppings
+ * from the menu (the ones Main.createPizzaTopping hands out) weighted by
+ * popularity, and goes through the real OrderManager and Order pricing.
+ * A number of kitchen stations each take the next order from the manager
+ * whenever they are free and spend about DeadlineDispatchPolicy's estimate
+ * preparing it.
+ *
+ * Time is simulated, not waited for, so a whole day runs in well under a
+ * second, and the same seed always gives the same day. The report gives
+ * throughput, queue depth, kitchen wait and ready latency percentiles and
+ * how many promises were broken, plus how fast the real code processed the
+ * day on this machine.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class LoadSimulator
+{
+    /** Opening time, in milliseconds after midnight */
+    private static final long OPEN_MILLIS = TimeUnit.HOURS.toMillis(10);
+
+    /** Closing time for new orders, in milliseconds after midnight */
+    private static final long CLOSE_MILLIS = TimeUnit.HOURS.toMillis(23);
+
+    /** Length of a simulated day */
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /** Step used to find the shape of the arrival curve */
+    private static final long CURVE_STEP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Relative popularity of each pizza topping, by name as typed into Main */
+    private static final String[] PIZZA_TOPPINGS = {"cheese", "ham", "mushrooms", "tomato", "pineapple", "seafood"};
+    private static final double[] PIZZA_TOPPING_WEIGHTS = {0.32, 0.22, 0.16, 0.15, 0.09, 0.06};
+
+    /** Chance of each number of pizza toppings, from 0 up */
+    private static final double[] TOPPING_COUNT_WEIGHTS = {0.05, 0.20, 0.35, 0.25, 0.10, 0.05};
+
+    /** Relative popularity of each pasta topping, by name as typed into Main */
+    private static final String[] PASTA_TOPPINGS = {"bolognese", "marinara", "primavera", "tomato"};
+    private static final double[] PASTA_TOPPING_WEIGHTS = {0.40, 0.20, 0.25, 0.15};
+
+    /** Chance of each number of items in an order, from 1 up */
+    private static final double[] ITEM_COUNT_WEIGHTS = {0.45, 0.30, 0.15, 0.07, 0.03};
+
+    /** Share of items that are pizzas rather than pastas */
+    private static final double PIZZA_SHARE = 0.65;
+
+    /** Share of plain pastas among pastas */
+    private static final double PLAIN_PASTA_SHARE = 0.05;
+
+    /** Share of orders for door delivery */
+    private static final double DOOR_SHARE = 0.55;
+
+    /** Share of orders with a student discount */
+    private static final double STUDENT_SHARE = 0.15;
+
+    /** Spread of actual preparation times around the estimate, as a log-normal sigma */
+    private static final double PREP_TIME_SIGMA = 0.2;
+
+    /** Customers in the simulated neighbourhood */
+    private static final int CUSTOMERS = 2000;
+
+    private final long seed;
+    private final int ordersPerDay;
+    private final int kitchens;
+    private final int days;
+    private final boolean deadlineDispatch;
+
+    /**
+     * Constructs a simulator.
+     *
+     * @param seed seed for every random choice, so runs can be repeated
+     * @param ordersPerDay the average number of orders in a day
+     * @param kitchens the number of stations preparing orders side by side
+     * @param days the number of days to simulate
+     * @param deadlineDispatch true to dispatch by DeadlineDispatchPolicy, false for first in, first out
+     */
+    public LoadSimulator(long seed, int ordersPerDay, int kitchens, int days, boolean deadlineDispatch)
+    {
+        if (ordersPerDay < 1 || kitchens < 1 || days < 1)
+        {
+            throw new IllegalArgumentException("Need at least one order, kitchen and day to simulate");
+        }
+        this.seed = seed;
+        this.ordersPerDay = ordersPerDay;
+        this.kitchens = kitchens;
+        this.days = days;
+        this.deadlineDispatch = deadlineDispatch;
+    }
+
+    public static void main(String[] args)
+    {
+        long seed = 1;
+        int ordersPerDay = 1500;
+        int kitchens = 80;
+        int days = 1;
+        boolean deadline = false;
+
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+            switch (args[i])
+            {
+                case "--seed": seed = Long.parseLong(args[i + 1]); break;
+                case "--orders": ordersPerDay = Integer.parseInt(args[i + 1]); break;
+                case "--kitchens": kitchens = Integer.parseInt(args[i + 1]); break;
+                case "--days": days = Integer.parseInt(args[i + 1]); break;
+                case "--dispatch": deadline = args[i + 1].equals("deadline"); break;
+                default:
+                    System.err.println("Usage: java LoadSimulator [--seed N] [--orders N] [--kitchens N]"
+                            + " [--days N] [--dispatch fifo|deadline]");
+                    System.exit(2);
+            }
+        }
+
+        System.out.println(new LoadSimulator(seed, ordersPerDay, kitchens, days, deadline).run());
+    }
+
+    /**
+     * Runs the simulation.
+     *
+     * @return the report
+     */
+    public Report run()
+    {
+        Random random = new Random(seed);
+        OrderManager manager = deadlineDispatch
+                ? new OrderManager(new DeadlineDispatchPolicy())
+                : new OrderManager(false);
+        DeadlineDispatchPolicy promises = new DeadlineDispatchPolicy();
+        List<Customer> customers = customers(random);
+        double[] curve = arrivalCurve();
+        double peakPerMilli = peak(curve);
+
+        Report report = new Report(kitchens, days, deadlineDispatch);
+        PriorityQueue<Event> events = new PriorityQueue<Event>();
+        long[] sequence = {0};
+
+        //The first arrival of each day is scheduled up front; each arrival schedules the next
+        for (int day = 0; day < days; day++)
+        {
+            long start = day * DAY_MILLIS + OPEN_MILLIS;
+            long first = nextArrival(random, start, day * DAY_MILLIS, curve, peakPerMilli);
+            if (first >= 0)
+            {
+                events.add(new Event(first, null, sequence[0]++));
+            }
+        }
+
+        //Preparation times are drawn with the order, so every strategy sees exactly the same day
+        Map<Long, Long> prepMillis = new HashMap<Long, Long>();
+        int idle = kitchens;
+        long nextId = 1;
+        long lastMillis = 0;
+        long wallStart = System.nanoTime();
+        while (!events.isEmpty())
+        {
+            Event event = events.poll();
+            report.advance(event.atMillis - lastMillis, manager.getPendingCount());
+            lastMillis = event.atMillis;
+
+            if (event.order == null)
+            {
+                //An arrival: queue a new order and schedule the next one
+                Order order = randomOrder(random, nextId++, event.atMillis, customers);
+                prepMillis.put(order.getId(), Math.round(DeadlineDispatchPolicy.estimatePrepMillis(order)
+                        * Math.exp(random.nextGaussian() * PREP_TIME_SIGMA)));
+                manager.addOrder(order);
+                report.orderPlaced();
+
+                long dayStart = event.atMillis - event.atMillis % DAY_MILLIS;
+                long next = nextArrival(random, event.atMillis, dayStart, curve, peakPerMilli);
+                if (next >= 0)
+                {
+                    events.add(new Event(next, null, sequence[0]++));
+                }
+            }
+            else
+            {
+                //A station finished an order
+                Order order = event.order;
+                boolean late = event.atMillis > promises.promisedMillis(order) - travelMillis(order, promises);
+                report.orderReady(order, event.atMillis, late);
+                idle++;
+            }
+
+            //Any free station takes the next order the dispatch policy picks
+            while (idle > 0 && manager.getPendingCount() > 0)
+            {
+                Order order = manager.deliverOrder();
+                long prep = prepMillis.remove(order.getId());
+                report.orderStarted(event.atMillis - order.getCreatedAtMillis());
+                events.add(new Event(event.atMillis + prep, order, sequence[0]++));
+                idle--;
+            }
+        }
+        report.finish(System.nanoTime() - wallStart);
+        return report;
+    }
+
+    /**
+     * Works out when the next order arrives after the given time, by
+     * thinning a constant-rate stream down to the arrival curve.
+     *
+     * @param random the random source
+     * @param afterMillis the time of the last arrival
+     * @param dayStart the start of the day being simulated
+     * @param curve orders per millisecond for each step of the day
+     * @param peakPerMilli the highest rate on the curve
+     * @return the arrival time, or -1 if there are no more arrivals today
+     */
+    private static long nextArrival(Random random, long afterMillis, long dayStart, double[] curve, double peakPerMilli)
+    {
+        long at = afterMillis;
+        while (true)
+        {
+            at += Math.max(1, Math.round(-Math.log(1 - random.nextDouble()) / peakPerMilli));
+            if (at >= dayStart + CLOSE_MILLIS)
+            {
+                return -1;
+            }
+            int step = (int) ((at - dayStart - OPEN_MILLIS) / CURVE_STEP_MILLIS);
+            if (random.nextDouble() * peakPerMilli < curve[step])
+            {
+                return at;
+            }
+        }
+    }
+
+    /**
+     * Builds the arrival rate over the opening hours: a quiet background
+     * with a lunch peak around 12:30 and a larger dinner peak around 19:00,
+     * scaled so a day averages ordersPerDay orders.
+     *
+     * @return orders per millisecond for each step from opening time
+     */
+    private double[] arrivalCurve()
+    {
+        double[] curve = new double[(int) ((CLOSE_MILLIS - OPEN_MILLIS) / CURVE_STEP_MILLIS)];
+        double total = 0;
+        for (int i = 0; i < curve.length; i++)
+        {
+            double hour = (OPEN_MILLIS + (i + 0.5) * CURVE_STEP_MILLIS) / (double) TimeUnit.HOURS.toMillis(1);
+            curve[i] = 0.15 + bump(hour, 12.5, 0.75) + 1.4 * bump(hour, 19.0, 1.0);
+            total += curve[i];
+        }
+
+        //Scale so the expected number of arrivals over the day is ordersPerDay
+        double scale = ordersPerDay / (total * CURVE_STEP_MILLIS);
+        for (int i = 0; i < curve.length; i++)
+        {
+            curve[i] *= scale;
+        }
+        return curve;
+    }
+
+    private static double bump(double hour, double centre, double width)
+    {
+        double z = (hour - centre) / width;
+        return Math.exp(-z * z / 2);
+    }
+
+    private static double peak(double[] curve)
+    {
+        double peak = 0;
+        for (double rate : curve)
+        {
+            peak = Math.max(peak, rate);
+        }
+        return peak;
+    }
+
+    /**
+     * Makes up an order the way customers tend to order.
+     *
+     * @param random the random source
+     * @param id the order id
+     * @param atMillis when it is placed
+     * @param customers the customers to pick from
+     * @return the order
+     */
+    private static Order randomOrder(Random random, long id, long atMillis, List<Customer> customers)
+    {
+        int itemCount = 1 + pick(random, ITEM_COUNT_WEIGHTS);
+        List<FoodItem> items = new ArrayList<FoodItem>(itemCount);
+        for (int i = 0; i < itemCount; i++)
+        {
+            if (random.nextDouble() < PIZZA_SHARE)
+            {
+                int toppingCount = pick(random, TOPPING_COUNT_WEIGHTS);
+                List<Topping> toppings = new ArrayList<Topping>(toppingCount);
+                for (int t = 0; t < toppingCount; t++)
+                {
+                    toppings.add(Main.createPizzaTopping(PIZZA_TOPPINGS[pick(random, PIZZA_TOPPING_WEIGHTS)]));
+                }
+                items.add(new Pizza(toppings));
+            }
+            else if (random.nextDouble() < PLAIN_PASTA_SHARE)
+            {
+                items.add(new Pasta(ToppingCatalog.getDefault().noTopping()));
+            }
+            else
+            {
+                items.add(new Pasta(Main.createPastaTopping(PASTA_TOPPINGS[pick(random, PASTA_TOPPING_WEIGHTS)])));
+            }
+        }
+
+        Order order = new Order(id, atMillis, items, customers.get(random.nextInt(customers.size())));
+        order.setDeliveryMethod(random.nextDouble() < DOOR_SHARE ? DeliveryMethod.DOOR_DELIVERY : DeliveryMethod.PICKUP);
+        if (random.nextDouble() < STUDENT_SHARE)
+        {
+            order.setStudentInfo(new StudentInfo("University", "S" + random.nextInt(100_000)));
+        }
+        return order;
+    }
+
+    /**
+     * Picks an index with probability proportional to its weight.
+     *
+     * @param random the random source
+     * @param weights the weights, adding up to about 1
+     * @return the index picked
+     */
+    private static int pick(Random random, double[] weights)
+    {
+        double r = random.nextDouble();
+        for (int i = 0; i < weights.length - 1; i++)
+        {
+            r -= weights[i];
+            if (r < 0)
+            {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static List<Customer> customers(Random random)
+    {
+        List<Customer> customers = new ArrayList<Customer>(CUSTOMERS);
+        for (int i = 0; i < CUSTOMERS; i++)
+        {
+            customers.add(new Customer("Customer " + i, String.format("%010d", 1_000_000_000L + i),
+                    (1 + random.nextInt(300)) + " Simulation Street"));
+        }
+        return customers;
+    }
+
+    /**
+     * Returns how long before the promised time an order has to be ready.
+     *
+     * @param order the order
+     * @param promises the promised times
+     * @return the driving time for door deliveries, otherwise 0
+     */
+    private static long travelMillis(Order order, DeadlineDispatchPolicy promises)
+    {
+        return order.getDeliveryMethod() == DeliveryMethod.DOOR_DELIVERY ? promises.getDoorTravelMillis() : 0;
+    }
+
+    /**
+     * Something that happens at a point in simulated time: an order arriving
+     * (no order yet) or a station finishing one.
+     */
+    private static final class Event implements Comparable<Event>
+    {
+        final long atMillis;
+        final Order order;
+
+        /** Breaks ties between events at the same time, so runs are repeatable */
+        final long sequence;
+
+        Event(long atMillis, Order order, long sequence)
+        {
+            this.atMillis = atMillis;
+            this.order = order;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Event other)
+        {
+            int byTime = Long.compare(atMillis, other.atMillis);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * What happened over a simulation run.
+     */
+    public static final class Report
+    {
+        private final int kitchens;
+        private final int days;
+        private final boolean deadlineDispatch;
+
+        /** Time from being placed to a station starting the order, in seconds */
+        private final LatencyHistogram kitchenWaitSeconds = new LatencyHistogram();
+
+        /** Time from being placed to being ready, in seconds */
+        private final LatencyHistogram readySeconds = new LatencyHistogram();
+
+        /** Orders ready in each simulated hour, grown if the kitchen runs past the last day */
+        private long[] readyPerHour;
+
+        private long placed;
+        private long ready;
+        private long late;
+        private long revenueCents;
+        private int maxDepth;
+        private double depthMillis;
+        private long simulatedMillis;
+        private long wallNanos;
+
+        Report(int kitchens, int days, boolean deadlineDispatch)
+        {
+            this.kitchens = kitchens;
+            this.days = days;
+            this.deadlineDispatch = deadlineDispatch;
+            this.readyPerHour = new long[(int) TimeUnit.DAYS.toHours(days)];
+        }
+
+        void advance(long elapsedMillis, int depth)
+        {
+            depthMillis += (double) depth * elapsedMillis;
+            simulatedMillis += elapsedMillis;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        void orderPlaced()
+        {
+            placed++;
+        }
+
+        void orderStarted(long waitedMillis)
+        {
+            kitchenWaitSeconds.record(waitedMillis / 1000);
+        }
+
+        void orderReady(Order order, long atMillis, boolean late)
+        {
+            ready++;
+            if (late)
+            {
+                this.late++;
+            }
+            revenueCents += order.calculateTotalCents();
+            readySeconds.record((atMillis - order.getCreatedAtMillis()) / 1000);
+            int hour = (int) (atMillis / TimeUnit.HOURS.toMillis(1));
+            if (hour >= readyPerHour.length)
+            {
+                readyPerHour = Arrays.copyOf(readyPerHour, Math.max(hour + 1, readyPerHour.length * 2));
+            }
+            readyPerHour[hour]++;
+        }
+
+        void finish(long wallNanos)
+        {
+            this.wallNanos = wallNanos;
+        }
+
+        /**
+         * Returns the number of orders placed.
+         *
+         * @return the order count
+         */
+        public long getOrdersPlaced()
+        {
+            return placed;
+        }
+
+        /**
+         * Returns the number of orders ready after their promised time.
+         *
+         * @return the late count
+         */
+        public long getLateOrders()
+        {
+            return late;
+        }
+
+        /**
+         * Returns the most orders ready in any one simulated hour.
+         *
+         * @return the peak hourly throughput
+         */
+        public long getPeakOrdersPerHour()
+        {
+            long peak = 0;
+            for (long count : readyPerHour)
+            {
+                peak = Math.max(peak, count);
+            }
+            return peak;
+        }
+
+        /**
+         * Returns the average number of orders waiting, over the simulated time.
+         *
+         * @return the mean queue depth
+         */
+        public double getMeanQueueDepth()
+        {
+            return simulatedMillis == 0 ? 0 : depthMillis / simulatedMillis;
+        }
+
+        /**
+         * Returns the most orders waiting at once.
+         *
+         * @return the maximum queue depth
+         */
+        public int getMaxQueueDepth()
+        {
+            return maxDepth;
+        }
+
+        /**
+         * Returns the distribution of time from order to a kitchen starting it.
+         *
+         * @return waits in seconds
+         */
+        public LatencyHistogram getKitchenWaitSeconds()
+        {
+            return kitchenWaitSeconds;
+        }
+
+        /**
+         * Returns the distribution of time from order to ready.
+         *
+         * @return latencies in seconds
+         */
+        public LatencyHistogram getReadySeconds()
+        {
+            return readySeconds;
+        }
+
+        /**
+         * Returns the report as text.
+         *
+         * @return the report
+         */
+        @Override
+        public String toString()
+        {
+            StringBuilder out = new StringBuilder();
+            out.append("Simulated ").append(days).append(days == 1 ? " day" : " days").append(" with ")
+                    .append(kitchens).append(" kitchen stations, ")
+                    .append(deadlineDispatch ? "deadline" : "FIFO").append(" dispatch\n");
+            out.append("Orders placed: ").append(placed).append(", ready: ").append(ready)
+                    .append(", revenue: $");
+            Money.appendTo(out, revenueCents);
+            out.append('\n');
+            out.append("Peak throughput: ").append(getPeakOrdersPerHour()).append(" orders/hour\n");
+            out.append(String.format("Queue depth: mean %.1f, max %d%n", getMeanQueueDepth(), maxDepth));
+            appendPercentiles(out, "Kitchen wait", kitchenWaitSeconds);
+            appendPercentiles(out, "Order to ready", readySeconds);
+            out.append(String.format("Late orders: %d (%.1f%%)%n", late, ready == 0 ? 0 : 100.0 * late / ready));
+            out.append(String.format("Processed in %.0f ms of real time (%.0f orders/s)",
+                    wallNanos / 1e6, placed / (wallNanos / 1e9)));
+            return out.toString();
+        }
+
+        private static void appendPercentiles(StringBuilder out, String label, LatencyHistogram seconds)
+        {
+            out.append(label).append(" (min): p50 ").append(minutes(seconds.getValueAtPercentile(50)))
+                    .append(", p90 ").append(minutes(seconds.getValueAtPercentile(90)))
+                    .append(", p99 ").append(minutes(seconds.getValueAtPercentile(99)))
+                    .append(", max ").append(minutes(seconds.getMax())).append('\n');
+        }
+
+        private static String minutes(long seconds)
+        {
+            return String.format("%.1f", seconds / 60.0);
+        }
+    }
+}
@@ -1,4 +1,8 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Main driver class for the takeaway order system.
@@ -7,15 +11,186 @@ import java.util.*;
  *
  * Validates all user input to ensure robust operation.
  *
+ * Run with "--batch FILE" (or "--batch -" for standard input) to ingest
+ * orders from a file without any prompts; see BatchOrderIngestor.
+ * Add "--data DIR" to keep pending orders on disk across restarts
+ * (see OrderPersistence), and "--dispatch deadline" to dispatch urgent
+ * orders first instead of in arrival order (see DeadlineDispatchPolicy).
+ * Run with "--serve PORT" to take orders from point-of-sale terminals over
+ * a local socket instead of the menu (see OrderIntakeServer), and add
+ * "--kitchen LIMIT" to send the orders through a KitchenPipeline with at
+ * most LIMIT orders waiting for it, turning terminals away when it is full.
+ * Add "--shards N" to split the served orders over N queues by customer,
+ * each with its own dispatcher and data subdirectory (see ShardedOrderManager).
+ * Queue metrics are published over JMX; add "--metrics SECONDS" to also
+ * print them to standard error (see OrderMetrics). Add "--menu FILE" to
+ * take toppings and prices from a menu file, which is reloaded whenever it
+ * is edited (see Menu and LiveMenu).
+ *
  * Author: Reyan
  * Version: 1.0
  */
 public class Main
 {
+    /** Supplies the menu new orders are built from */
+    private static volatile Supplier<Menu> menus = Menu::getDefault;
+
     public static void main(String[] args)
     {
+        String batchSource = null;
+        int servePort = -1;
+        String dataDirectory = null;
+        boolean deadlineDispatch = false;
+        int metricsSeconds = 0;
+        int kitchenLimit = 0;
+        int shardCount = 0;
+        String menuFile = null;
+
+        //Read the command line options
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("--batch"))
+            {
+                boolean hasSource = i + 1 < args.length && !args[i + 1].startsWith("--");
+                batchSource = hasSource ? args[++i] : "-";
+            }
+            else if (args[i].equals("--serve") && i + 1 < args.length)
+            {
+                servePort = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("--data") && i + 1 < args.length)
+            {
+                dataDirectory = args[++i];
+            }
+            else if (args[i].equals("--dispatch") && i + 1 < args.length
+                    && (args[i + 1].equals("fifo") || args[i + 1].equals("deadline")))
+            {
+                deadlineDispatch = args[++i].equals("deadline");
+            }
+            else if (args[i].equals("--metrics") && i + 1 < args.length)
+            {
+                metricsSeconds = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("--kitchen") && i + 1 < args.length)
+            {
+                kitchenLimit = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("--shards") && i + 1 < args.length)
+            {
+                shardCount = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("--menu") && i + 1 < args.length)
+            {
+                menuFile = args[++i];
+            }
+            else
+            {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(2);
+            }
+        }
+
+        //The menu is loaded before any orders, including the ones restored from disk
+        if (menuFile != null)
+        {
+            try
+            {
+                LiveMenu liveMenu = new LiveMenu(Paths.get(menuFile));
+                liveMenu.watch();
+                menus = liveMenu;
+                System.out.println("Using " + liveMenu.get() + ".");
+            }
+            catch (IOException | IllegalArgumentException e)
+            {
+                System.err.println("Could not load menu " + menuFile + ": " + e.getMessage());
+                System.exit(2);
+            }
+        }
+
+        //Sharded serving gives every shard its own queue and data, so it is set up separately
+        if (shardCount > 0)
+        {
+            if (servePort < 0)
+            {
+                System.err.println("--shards only applies to --serve");
+                System.exit(2);
+            }
+            serveSharded(servePort, shardCount, deadlineDispatch, dataDirectory, metricsSeconds, kitchenLimit);
+            return;
+        }
+
+        OrderManager manager = deadlineDispatch
+                ? new OrderManager(new DeadlineDispatchPolicy())
+                : new OrderManager(batchSource != null || servePort >= 0);
+        //Delivered orders are kept in columns for the day's reports
+        manager.setDeliveredOrders(new ColumnarOrderStore(currentMenu().getCatalog()));
+
+        //Terminals and batch files may resend orders; keys seen recently are not queued twice
+        manager.setIdempotencyIndex(new IdempotencyIndex());
+
+        //Metrics go on before recovery so restored orders count towards the queue depth
+        OrderMetrics metrics = new OrderMetrics();
+        metrics.register("orders");
+        manager.setMetrics(metrics);
+        if (metricsSeconds > 0)
+        {
+            metrics.dumpEvery(System.err, metricsSeconds, TimeUnit.SECONDS);
+        }
+        OrderPersistence persistence = null;
+        if (dataDirectory != null)
+        {
+            try
+            {
+                persistence = new OrderPersistence(Paths.get(dataDirectory), manager, currentMenu().getCatalog());
+                System.out.println("Restored " + persistence.getRecoveredCount() + " pending orders from "
+                        + dataDirectory + ".");
+            }
+            catch (IOException e)
+            {
+                System.err.println("Could not open order data " + dataDirectory + ": " + e.getMessage());
+                System.exit(2);
+            }
+        }
+
+        //Headless batch mode skips the menu entirely
+        if (batchSource != null)
+        {
+            if (persistence != null)
+            {
+                persistence.compactEvery(30, TimeUnit.SECONDS);
+            }
+            int exitCode = BatchOrderIngestor.run(batchSource, manager, new OrderLineParser(menus));
+            closePersistence(persistence);
+            System.exit(exitCode);
+        }
+
+        //Server mode runs until the process is stopped
+        if (servePort >= 0)
+        {
+            serve(servePort, manager, persistence, kitchenLimit);
+            return;
+        }
+
+        //Returning customers are remembered with the orders when there is a data directory
+        CustomerRegistry customers = new CustomerRegistry();
+        if (dataDirectory != null)
+        {
+            try
+            {
+                customers = new CustomerRegistry(Paths.get(dataDirectory).resolve("customers.dat"));
+            }
+            catch (IOException e)
+            {
+                System.err.println("Could not open the customer registry, customers will not be remembered: "
+                        + e.getMessage());
+            }
+        }
+
+        //Door deliveries wait briefly so drivers can take several nearby orders at once
+        DeliveryBatcher batcher = new DeliveryBatcher(new GridGeocoder());
+        manager.setDeliveryBatcher(batcher);
+
         Scanner scanner = new Scanner(System.in);
-        OrderManager manager = new OrderManager();
         boolean running = true;
 
         while (running)
@@ -25,35 +200,29 @@ public class Main
             System.out.println("1. Enter new order");
             System.out.println("2. Deliver next order");
             System.out.println("3. View all orders");
-            System.out.println("4. Exit");
+            System.out.println("4. Delivery report");
+            System.out.println("5. Cancel an order");
+            System.out.println("6. Exit");
             System.out.print("Select: ");
 
-            int choice = getValidatedIntInput(scanner, 1, 4);
+            int choice = getValidatedIntInput(scanner, 1, 6);
 
             switch (choice)
             {
                 case 1:
-                    Order order = buildOrder(scanner);
+                    Order order = buildOrder(scanner, customers);
                     manager.addOrder(order);
-                    System.out.println("Order added successfully!");
+                    System.out.println("Order " + order.getId() + " added successfully!");
                     break;
 
                 case 2:
-                    Order nextOrder = manager.deliverOrder();
-                    if (nextOrder != null)
+                    //The details are asked for first so the order is recorded with them
+                    if (manager.getPendingCount() > 0)
                     {
-                        //Delivery method selection
-                        System.out.println("Select delivery method:");
-                        System.out.println("1. Door Delivery ($5 Charge)");
-                        System.out.println("2. Pickup");
-                        System.out.print("Choose: ");
-                        int methodChoice = getValidatedIntInput(scanner, 1, 2);
-                        DeliveryMethod method = (methodChoice == 1) ? DeliveryMethod.DOOR_DELIVERY : DeliveryMethod.PICKUP;
-                        nextOrder.setDeliveryMethod(method);
-
                         //Student discount eligibility
                         System.out.print("Are you a student? (yes/no): ");
                         String studentAnswer = scanner.nextLine().trim().toLowerCase();
+                        StudentInfo studentInfo = null;
 
                         if (studentAnswer.equals("yes"))
                         {
@@ -79,8 +248,7 @@ public class Main
 
                                 if (!uni.isEmpty() && !sid.isEmpty())
                                 {
-                                    StudentInfo studentInfo = new StudentInfo(uni, sid);
-                                    nextOrder.setStudentInfo(studentInfo);
+                                    studentInfo = new StudentInfo(uni, sid);
                                     break;
                                 }
                                 else
@@ -91,7 +259,21 @@ public class Main
                         }
 
                         //Show the final delivered order with summary
-                        System.out.println("Delivered order:\n" + nextOrder);
+                        //The delivery method was chosen when the order was taken
+                        Order nextOrder = manager.deliverOrder(null, studentInfo);
+                        if (nextOrder != null)
+                        {
+                            System.out.println("Delivered order:\n" + nextOrder);
+                            if (nextOrder.getDeliveryMethod() == DeliveryMethod.DOOR_DELIVERY)
+                            {
+                                System.out.println("Waiting for a driver with nearby deliveries.");
+                            }
+                            printRuns(batcher.poll(System.currentTimeMillis()));
+                        }
+                        else
+                        {
+                            System.out.println("No orders to deliver.");
+                        }
                     }
                     else
                     {
@@ -104,19 +286,304 @@ public class Main
                     break;
 
                 case 4:
+                    System.out.println(DeliveryReport.of(manager.getDeliveredOrders()));
+                    break;
+
+                case 5:
+                    System.out.print("Order number to cancel: ");
+                    String cancelInput = scanner.nextLine().trim();
+                    try
+                    {
+                        Order cancelled = manager.cancelOrder(Long.parseLong(cancelInput));
+                        System.out.println(cancelled != null
+                                ? "Cancelled order:\n" + cancelled
+                                : "Order " + cancelInput + " is not waiting to be delivered.");
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        System.out.println("Please enter an order number.");
+                    }
+                    break;
+
+                case 6:
                     running = false;
+                    printRuns(batcher.drain());
                     System.out.println("Exiting system. Goodbye!");
                     break;
             }
         }
 
         scanner.close();
+        try
+        {
+            customers.close();
+        }
+        catch (IOException e)
+        {
+            System.err.println("Could not close the customer registry: " + e.getMessage());
+        }
+        closePersistence(persistence);
+    }
+
+    /**
+     * Runs the order intake server until the process is stopped, saving the
+     * pending orders on the way out.
+     *
+     * @param port the port to listen on
+     * @param manager the concurrent manager that receives the orders
+     * @param persistence the open data directory, or null
+     * @param kitchenLimit the most orders waiting for the kitchen, or 0 to leave orders queued
+     */
+    private static void serve(int port, OrderManager manager, OrderPersistence persistence, int kitchenLimit)
+    {
+        try
+        {
+            OrderIntakeServer server = new OrderIntakeServer(port, manager, new OrderLineParser(menus));
+            if (persistence != null)
+            {
+                persistence.compactEvery(30, TimeUnit.SECONDS);
+            }
+
+            DeliveryBatcher batcher = kitchenLimit > 0 ? new DeliveryBatcher(new GridGeocoder()) : null;
+            KitchenPipeline kitchen = kitchenLimit > 0 ? startKitchen(manager, kitchenLimit, batcher) : null;
+
+            Runtime.getRuntime().addShutdownHook(new Thread(() ->
+            {
+                try
+                {
+                    server.close();
+                }
+                catch (IOException e)
+                {
+                    System.err.println("Could not stop the intake server: " + e.getMessage());
+                }
+                if (kitchen != null)
+                {
+                    kitchen.close();
+                    batcher.stop();
+                    printRuns(batcher.drain());
+                }
+                closePersistence(persistence);
+            }));
+
+            System.out.println("Taking orders on port " + server.getPort() + ". Press Ctrl+C to stop.");
+            Thread.currentThread().join();
+        }
+        catch (IOException e)
+        {
+            System.err.println("Could not start the intake server: " + e.getMessage());
+            System.exit(2);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the order intake server with the orders split over several shards
+     * until the process is stopped. Every shard keeps its pending orders in
+     * its own "shard-N" subdirectory of the data directory, and with a kitchen
+     * one dispatcher per shard feeds it, stealing from busier shards when its
+     * own is empty.
+     *
+     * @param port the port to listen on
+     * @param shardCount the number of shards
+     * @param deadlineDispatch true to dispatch each shard by DeadlineDispatchPolicy
+     * @param dataDirectory the data directory, or null to keep orders in memory
+     * @param metricsSeconds seconds between metrics printouts, or 0 for none
+     * @param kitchenLimit the most orders waiting for the kitchen, or 0 to leave orders queued
+     */
+    private static void serveSharded(int port, int shardCount, boolean deadlineDispatch, String dataDirectory,
+                                     int metricsSeconds, int kitchenLimit)
+    {
+        ShardedOrderManager manager = new ShardedOrderManager(shardCount,
+                deadlineDispatch ? new DeadlineDispatchPolicy() : null);
+
+        //The shards share the delivered store, the idempotency keys and the metrics
+        ColumnarOrderStore deliveredOrders = new ColumnarOrderStore(currentMenu().getCatalog());
+        IdempotencyIndex idempotencyKeys = new IdempotencyIndex();
+        OrderMetrics metrics = new OrderMetrics();
+        metrics.register("orders");
+        if (metricsSeconds > 0)
+        {
+            metrics.dumpEvery(System.err, metricsSeconds, TimeUnit.SECONDS);
+        }
+
+        List<OrderPersistence> persistence = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++)
+        {
+            OrderManager shard = manager.getShard(i);
+            shard.setDeliveredOrders(deliveredOrders);
+            shard.setIdempotencyIndex(idempotencyKeys);
+            shard.setMetrics(metrics);
+            if (dataDirectory != null)
+            {
+                try
+                {
+                    persistence.add(new OrderPersistence(Paths.get(dataDirectory).resolve("shard-" + i), shard,
+                            currentMenu().getCatalog()));
+                }
+                catch (IOException e)
+                {
+                    System.err.println("Could not open order data " + dataDirectory + ": " + e.getMessage());
+                    System.exit(2);
+                }
+            }
+        }
+        if (dataDirectory != null)
+        {
+            System.out.println("Restored " + manager.getPendingCount() + " pending orders from "
+                    + dataDirectory + ".");
+        }
+
+        try
+        {
+            OrderIntakeServer server = new OrderIntakeServer(port, manager, new OrderLineParser(menus));
+            for (OrderPersistence shardPersistence : persistence)
+            {
+                shardPersistence.compactEvery(30, TimeUnit.SECONDS);
+            }
+
+            DeliveryBatcher batcher = kitchenLimit > 0 ? new DeliveryBatcher(new GridGeocoder()) : null;
+            KitchenPipeline kitchen = kitchenLimit > 0 ? openKitchen(batcher) : null;
+            if (kitchen != null)
+            {
+                manager.setPendingLimit(kitchenLimit, 2, TimeUnit.SECONDS);
+                manager.startDispatchers(shardCount, order ->
+                {
+                    try
+                    {
+                        kitchen.submit(order);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            Runtime.getRuntime().addShutdownHook(new Thread(() ->
+            {
+                try
+                {
+                    server.close();
+                    if (kitchen != null)
+                    {
+                        //The dispatchers stop before the kitchen closes so none submits to a closed kitchen
+                        manager.stop();
+                        kitchen.close();
+                        batcher.stop();
+                        printRuns(batcher.drain());
+                    }
+                }
+                catch (IOException e)
+                {
+                    System.err.println("Could not stop the intake server: " + e.getMessage());
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                for (OrderPersistence shardPersistence : persistence)
+                {
+                    closePersistence(shardPersistence);
+                }
+            }));
+
+            System.out.println("Taking orders on port " + server.getPort() + " in " + shardCount
+                    + " shards. Press Ctrl+C to stop.");
+            Thread.currentThread().join();
+        }
+        catch (IOException e)
+        {
+            System.err.println("Could not start the intake server: " + e.getMessage());
+            System.exit(2);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
-     * Builds an order by collecting customer info and food item choices.
+     * Starts a kitchen that takes orders from the manager as fast as it can
+     * work, and hands door deliveries to a batcher that prints driver runs.
      *
-     * Validates name, contact number, and address.
+     * @param manager the concurrent manager the orders wait in
+     * @param kitchenLimit the most orders waiting for the kitchen
+     * @param batcher groups the door deliveries into runs
+     * @return the running kitchen
+     */
+    private static KitchenPipeline startKitchen(OrderManager manager, int kitchenLimit, DeliveryBatcher batcher)
+    {
+        manager.setPendingLimit(kitchenLimit, 2, TimeUnit.SECONDS);
+        KitchenPipeline kitchen = openKitchen(batcher);
+        kitchen.feedFrom(manager);
+        return kitchen;
+    }
+
+    /**
+     * Starts a kitchen whose dispatch stage hands door deliveries to a
+     * batcher that prints driver runs.
+     *
+     * @param batcher groups the door deliveries into runs
+     * @return the running kitchen, not yet fed any orders
+     */
+    private static KitchenPipeline openKitchen(DeliveryBatcher batcher)
+    {
+        batcher.start(run -> System.out.println("Driver dispatched: " + run), 1, TimeUnit.SECONDS);
+
+        return new KitchenPipeline(order ->
+        {
+            if (order.getDeliveryMethod() == DeliveryMethod.DOOR_DELIVERY)
+            {
+                batcher.add(order);
+            }
+        }).onFailure((stage, order, cause) ->
+        {
+            //The whole order is printed so the staff can make it again by hand
+            System.err.println("Kitchen " + stage.name().toLowerCase() + " failed on order " + order.getId()
+                    + " (" + cause.getMessage() + "), please redo it:\n" + order);
+        }).start();
+    }
+
+    /**
+     * Prints the driver runs that are ready to go.
+     *
+     * @param runs the runs, possibly none
+     */
+    private static void printRuns(List<DeliveryRun> runs)
+    {
+        for (DeliveryRun run : runs)
+        {
+            System.out.println("Driver dispatched: " + run);
+        }
+    }
+
+    /**
+     * Snapshots the pending orders so the next start is quick, then closes the data directory.
+     *
+     * @param persistence the open data directory, or null
+     */
+    private static void closePersistence(OrderPersistence persistence)
+    {
+        if (persistence == null) return;
+
+        try
+        {
+            persistence.compact();
+            persistence.close();
+        }
+        catch (IOException e)
+        {
+            System.err.println("Could not save pending orders: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Builds an order by collecting customer info and food item choices,
+     * for a customer who is not looked up in a registry.
      *
      * @param scanner Scanner object for input
      *
@@ -124,17 +591,25 @@ public class Main
      */
     public static Order buildOrder(Scanner scanner)
     {
-        System.out.println("\n--- Enter Customer Details ---");
+        return buildOrder(scanner, new CustomerRegistry());
+    }
 
-        //The Name validation
-        String name = "";
-        while (true)
-        {
-            System.out.print("Customer name: ");
-            name = scanner.nextLine().trim();
-            if (!name.isEmpty()) break;
-            System.out.println("Name cannot be empty. Please enter a valid name.");
-        }
+    /**
+     * Builds an order by collecting customer info, food item choices and
+     * the delivery method.
+     *
+     * The contact number is asked for first. A returning customer's details
+     * come from the registry and only need confirming; a new customer's
+     * validated name and address are added to it.
+     *
+     * @param scanner Scanner object for input
+     * @param customers the registry of known customers
+     *
+     * @return completed Order object
+     */
+    public static Order buildOrder(Scanner scanner, CustomerRegistry customers)
+    {
+        System.out.println("\n--- Enter Customer Details ---");
 
         //Contact number validation should be exactly 10 digits
         String number = "";
@@ -142,21 +617,68 @@ public class Main
         {
             System.out.print("Contact number (10 digits): ");
             number = scanner.nextLine().trim();
-            if (number.matches("\\d{10}")) break;
-            System.out.println("Invalid number. Must be exactly 10 digits.");
+            ValidationError error = OrderValidator.checkContactNumber(number);
+            if (error == null) break;
+            System.out.println(error.getMessage());
         }
 
-        //Address validation
-        String address = "";
-        while (true)
+        //Returning customers only confirm the details on file
+        Customer customer = null;
+        try
         {
-            System.out.print("Delivery address: ");
-            address = scanner.nextLine().trim();
-            if (!address.isEmpty()) break;
-            System.out.println("Address cannot be empty. Please enter a valid address.");
+            Customer known = customers.find(number);
+            if (known != null)
+            {
+                System.out.println("Welcome back, " + known.getName() + " (" + known.getAddress() + ").");
+                System.out.print("Use these details? (yes/no): ");
+                if (scanner.nextLine().trim().equalsIgnoreCase("yes"))
+                {
+                    customer = known;
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println("Could not look the customer up: " + e.getMessage());
         }
 
-        Customer customer = new Customer(name, number, address);
+        if (customer == null)
+        {
+            //The Name validation
+            String name = "";
+            while (true)
+            {
+                System.out.print("Customer name: ");
+                name = scanner.nextLine().trim();
+                ValidationError error = OrderValidator.checkName(name);
+                if (error == null) break;
+                System.out.println(error.getMessage());
+            }
+
+            //Address validation
+            String address = "";
+            while (true)
+            {
+                System.out.print("Delivery address: ");
+                address = scanner.nextLine().trim();
+                ValidationError error = OrderValidator.checkAddress(address);
+                if (error == null) break;
+                System.out.println(error.getMessage());
+            }
+
+            try
+            {
+                customer = customers.register(name, number, address);
+            }
+            catch (IOException e)
+            {
+                System.out.println("Could not save the customer details: " + e.getMessage());
+                customer = new Customer(name, number, address);
+            }
+        }
+
+        //The whole order is priced from the menu as it is now, even if it is reloaded meanwhile
+        Menu menu = currentMenu();
         List<FoodItem> foodItems = new ArrayList<>();
 
         //Food item selection loop
@@ -177,51 +699,54 @@ public class Main
                 case 1:
                     //Adding the Pizza with toppings
                     List<Topping> toppings = new ArrayList<>();
-                    System.out.println("Enter toppings (ham, cheese, pineapple, mushrooms, tomato, seafood)");
+                    System.out.println("Enter toppings (" + toppingNames(menu.getCatalog().getPizzaToppings()) + ")");
                     System.out.println("Hit enter immediately to skip (vegan). Type 'done' when finished.");
 
                     while (true)
                     {
                         System.out.print("Topping: ");
-                        String toppingName = scanner.nextLine().toLowerCase().trim();
+                        //Matched in place, ignoring case and surrounding spaces
+                        String toppingName = scanner.nextLine();
+                        int end = toppingName.length();
 
-                        if (toppingName.equals("") || toppingName.equals("done")) break;
+                        if (OrderValidator.isBlank(toppingName, 0, end)
+                                || OrderValidator.matchesWord(toppingName, 0, end, "done")) break;
 
-                        Topping topping = createPizzaTopping(toppingName);
+                        Topping topping = OrderValidator.findPizzaTopping(menu.getCatalog(), toppingName, 0, end);
                         if (topping != null)
                         {
                             toppings.add(topping);
                         }
                         else
                         {
-                            System.out.println("Invalid topping.");
+                            System.out.println(ValidationError.UNKNOWN_PIZZA_TOPPING.getMessage());
                         }
                     }
 
-                    foodItems.add(new Pizza(toppings));
+                    foodItems.add(menu.newPizza(toppings));
                     break;
 
                 case 2:
                     //Adding the Pasta
-                    System.out.println("Choose pasta topping (bolognese, marinara, primavera, tomato)");
+                    System.out.println("Choose pasta topping (" + toppingNames(menu.getCatalog().getPastaToppings()) + ")");
                     System.out.println("Type 'none' to skip (vegan): ");
-                    String pastaToppingName = scanner.nextLine().toLowerCase().trim();
+                    String pastaToppingName = scanner.nextLine();
+                    int end = pastaToppingName.length();
 
-                    if (pastaToppingName.equals("none"))
+                    if (OrderValidator.matchesWord(pastaToppingName, 0, end, "none"))
                     {
-                        Topping emptyTopping = new Topping("No topping", 0.00, MealType.VEGAN);
-                        foodItems.add(new Pasta(emptyTopping));
+                        foodItems.add(menu.newPasta(menu.getCatalog().noTopping()));
                     }
                     else
                     {
-                        Topping pastaTopping = createPastaTopping(pastaToppingName);
+                        Topping pastaTopping = OrderValidator.findPastaTopping(menu.getCatalog(), pastaToppingName, 0, end);
                         if (pastaTopping != null)
                         {
-                            foodItems.add(new Pasta(pastaTopping));
+                            foodItems.add(menu.newPasta(pastaTopping));
                         }
                         else
                         {
-                            System.out.println("Invalid pasta topping.");
+                            System.out.println(ValidationError.UNKNOWN_PASTA_TOPPING.getMessage());
                         }
                     }
                     break;
@@ -232,45 +757,66 @@ public class Main
             }
         }
 
-        return new Order(foodItems, customer);
+        //Delivery method selection, so a deadline dispatch policy can order the queue by it
+        System.out.println("Select delivery method:");
+        System.out.println("1. Door Delivery ($5 Charge)");
+        System.out.println("2. Pickup");
+        System.out.print("Choose: ");
+        int methodChoice = getValidatedIntInput(scanner, 1, 2);
+
+        Order order = new Order(foodItems, customer);
+        order.setDeliveryMethod(methodChoice == 1 ? DeliveryMethod.DOOR_DELIVERY : DeliveryMethod.PICKUP);
+        return order;
+    }
+
+    /**
+     * Lists topping names for a prompt, e.g. "ham, cheese".
+     *
+     * @param toppings the toppings on offer
+     * @return the lower-case names separated by commas
+     */
+    private static String toppingNames(List<Topping> toppings)
+    {
+        StringJoiner names = new StringJoiner(", ");
+        for (Topping topping : toppings)
+        {
+            names.add(topping.getName().toLowerCase());
+        }
+        return names.toString();
+    }
+
+    /**
+     * Returns the menu in use right now. Take it once per order and build the
+     * whole order from it.
+     *
+     * @return the current menu snapshot
+     */
+    public static Menu currentMenu()
+    {
+        return menus.get();
     }
 
     /**
-     *Creates a pizza topping object from a topping name.
+     * Looks up the shared pizza topping for a topping name.
      *
      * @param name Topping name input by user
-     * @return Topping object or null if invalid
+     * @return the catalog Topping or null if invalid
      */
     public static Topping createPizzaTopping(String name)
     {
-        switch (name)
-        {
-            case "ham": return new Topping("Ham", 2.00, MealType.MEAT);
-            case "cheese": return new Topping("Cheese", 2.00, MealType.VEGETARIAN);
-            case "pineapple": return new Topping("Pineapple", 2.50, MealType.VEGETARIAN);
-            case "mushrooms": return new Topping("Mushrooms", 2.00, MealType.VEGETARIAN);
-            case "tomato": return new Topping("Tomato", 2.00, MealType.VEGAN);
-            case "seafood": return new Topping("Seafood", 3.50, MealType.MEAT);
-            default: return null;
-        }
+        //Toppings are shared from the catalog rather than created per order
+        return currentMenu().pizzaTopping(name);
     }
 
     /**
-     * Creates a pasta topping object from a topping name.
+     * Looks up the shared pasta topping for a topping name.
      *
      * @param name Topping name input by user
-     * @return Topping object or null if invalid
+     * @return the catalog Topping or null if invalid
      */
     public static Topping createPastaTopping(String name)
     {
-        switch (name)
-        {
-            case "bolognese": return new Topping("Bolognese", 5.20, MealType.MEAT);
-            case "marinara": return new Topping("Marinara", 6.80, MealType.MEAT);
-            case "primavera": return new Topping("Primavera", 5.20, MealType.VEGETARIAN);
-            case "tomato": return new Topping("Tomato", 4.00, MealType.VEGAN);
-            default: return null;
-        }
+        return currentMenu().pastaTopping(name);
     }
 
     /**
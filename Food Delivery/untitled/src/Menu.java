@@ -0,0 +1,283 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One version of the menu: the toppings on offer and what a plain pizza and
+ * a plain pasta cost.
+ *
+ * A menu never changes once it is built. When prices change a new Menu is
+ * loaded and swapped in (see LiveMenu), so an order built from one menu
+ * keeps that menu's prices however the menu changes afterwards.
+ *
+ * Menus are kept in text files with one "key = value" setting per line:
+ * <pre>
+ * # Blank lines and lines starting with '#' are ignored
+ * name = Spring menu
+ * pizza base = 11.50
+ * pasta base = 11.50
+ * pizza topping = Ham, 2.00, meat
+ * pasta topping = Bolognese, 5.20, meat
+ * </pre>
+ * Toppings are given as name, price and meal type, and keep the order they
+ * are listed in, so the same toppings listed in the same order get the same
+ * ids from one version of the file to the next. Base prices that are left
+ * out are the standard $11.50.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public final class Menu
+{
+    /** The standard menu */
+    private static final Menu DEFAULT = new Menu("Standard menu", ToppingCatalog.getDefault(),
+            FoodItem.BASE_PRICE_CENTS, FoodItem.BASE_PRICE_CENTS);
+
+    /** Name shown for the menu */
+    private final String name;
+
+    /** The toppings on offer */
+    private final ToppingCatalog catalog;
+
+    /** Price of a pizza before toppings, in cents */
+    private final long pizzaBasePriceCents;
+
+    /** Price of a pasta before its topping, in cents */
+    private final long pastaBasePriceCents;
+
+    /**
+     * Constructs a menu.
+     *
+     * @param name the name shown for the menu
+     * @param catalog the toppings on offer
+     * @param pizzaBasePriceCents the price of a pizza before toppings, in cents
+     * @param pastaBasePriceCents the price of a pasta before its topping, in cents
+     */
+    public Menu(String name, ToppingCatalog catalog, long pizzaBasePriceCents, long pastaBasePriceCents)
+    {
+        this.name = name;
+        this.catalog = catalog;
+        this.pizzaBasePriceCents = pizzaBasePriceCents;
+        this.pastaBasePriceCents = pastaBasePriceCents;
+    }
+
+    /**
+     * Returns the standard menu, with the default topping catalog and base prices.
+     *
+     * @return the default menu
+     */
+    public static Menu getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Reads a menu file.
+     *
+     * @param file the menu file, in the format described above
+     * @return the menu, named after the file if it has no name setting
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line of the file is not valid
+     */
+    public static Menu load(Path file) throws IOException
+    {
+        return parse(Files.readAllLines(file, StandardCharsets.UTF_8), String.valueOf(file.getFileName()));
+    }
+
+    /**
+     * Parses the lines of a menu file.
+     *
+     * @param lines the lines, in the format described above
+     * @param defaultName the name to use if there is no name setting
+     * @return the menu
+     * @throws IllegalArgumentException if a line is not valid, naming the line
+     */
+    public static Menu parse(List<String> lines, String defaultName)
+    {
+        String name = defaultName;
+        long pizzaBase = FoodItem.BASE_PRICE_CENTS;
+        long pastaBase = FoodItem.BASE_PRICE_CENTS;
+        List<Topping> pizzaToppings = new ArrayList<Topping>();
+        List<Topping> pastaToppings = new ArrayList<Topping>();
+
+        for (int i = 0; i < lines.size(); i++)
+        {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#"))
+            {
+                continue;
+            }
+
+            int equals = line.indexOf('=');
+            if (equals < 0)
+            {
+                throw invalidLine(i, "expected \"key = value\"");
+            }
+            String key = line.substring(0, equals).trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+            String value = line.substring(equals + 1).trim();
+
+            try
+            {
+                switch (key)
+                {
+                    case "name":
+                        name = value;
+                        break;
+                    case "pizza base":
+                        pizzaBase = Money.parse(value);
+                        break;
+                    case "pasta base":
+                        pastaBase = Money.parse(value);
+                        break;
+                    case "pizza topping":
+                        pizzaToppings.add(parseTopping(value));
+                        break;
+                    case "pasta topping":
+                        pastaToppings.add(parseTopping(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown setting \"" + key + "\"");
+                }
+            }
+            catch (IllegalArgumentException e)
+            {
+                //Includes the NumberFormatException from a bad price
+                throw invalidLine(i, e.getMessage());
+            }
+        }
+
+        //The catalog rejects duplicate names, which would make lookups ambiguous
+        return new Menu(name, new ToppingCatalog(pizzaToppings, pastaToppings), pizzaBase, pastaBase);
+    }
+
+    /**
+     * Returns the name of the menu.
+     *
+     * @return the menu name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the toppings on offer.
+     *
+     * @return the topping catalog
+     */
+    public ToppingCatalog getCatalog()
+    {
+        return catalog;
+    }
+
+    /**
+     * Returns the price of a pizza before toppings.
+     *
+     * @return the base price in cents
+     */
+    public long getPizzaBasePriceCents()
+    {
+        return pizzaBasePriceCents;
+    }
+
+    /**
+     * Returns the price of a pasta before its topping.
+     *
+     * @return the base price in cents
+     */
+    public long getPastaBasePriceCents()
+    {
+        return pastaBasePriceCents;
+    }
+
+    /**
+     * Looks up a pizza topping on this menu.
+     *
+     * @param name the topping name, already trimmed and lower-cased
+     * @return the shared Topping, or null if the menu has no such pizza topping
+     */
+    public Topping pizzaTopping(String name)
+    {
+        return catalog.pizzaTopping(name);
+    }
+
+    /**
+     * Looks up a pasta topping on this menu.
+     *
+     * @param name the topping name, already trimmed and lower-cased
+     * @return the shared Topping, or null if the menu has no such pasta topping
+     */
+    public Topping pastaTopping(String name)
+    {
+        return catalog.pastaTopping(name);
+    }
+
+    /**
+     * Makes a pizza at this menu's prices.
+     *
+     * @param toppings toppings from this menu
+     * @return the pizza
+     */
+    public Pizza newPizza(List<Topping> toppings)
+    {
+        return new Pizza(toppings, pizzaBasePriceCents);
+    }
+
+    /**
+     * Makes a pasta at this menu's prices.
+     *
+     * @param topping a pasta topping from this menu, or its empty topping
+     * @return the pasta
+     */
+    public Pasta newPasta(Topping topping)
+    {
+        return new Pasta(topping, pastaBasePriceCents);
+    }
+
+    /**
+     * Returns a short description of the menu.
+     *
+     * @return the name, topping counts and base prices
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder out = new StringBuilder(name).append(": ")
+                .append(catalog.getPizzaToppings().size()).append(" pizza toppings, ")
+                .append(catalog.getPastaToppings().size()).append(" pasta toppings, pizza $");
+        Money.appendTo(out, pizzaBasePriceCents).append(", pasta $");
+        return Money.appendTo(out, pastaBasePriceCents).toString();
+    }
+
+    /**
+     * Parses a "name, price, type" topping.
+     */
+    private static Topping parseTopping(String value)
+    {
+        String[] parts = value.split(",");
+        if (parts.length != 3 || parts[0].trim().isEmpty())
+        {
+            throw new IllegalArgumentException("expected \"name, price, type\"");
+        }
+
+        MealType type;
+        try
+        {
+            type = MealType.valueOf(parts[2].trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("unknown meal type \"" + parts[2].trim() + "\"");
+        }
+        return new Topping(-1, parts[0].trim(), Money.parse(parts[1].trim()), type);
+    }
+
+    private static IllegalArgumentException invalidLine(int index, String problem)
+    {
+        return new IllegalArgumentException("Line " + (index + 1) + " of the menu: " + problem);
+    }
+}
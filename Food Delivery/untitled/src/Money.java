@@ -0,0 +1,176 @@
+import java.io.IOException;
+
+/**
+ * Helper methods for exact money arithmetic.
+ *
+ * Amounts are held as a primitive long number of cents, so adding prices is
+ * exact and no objects are allocated. Rounding only happens when a percentage
+ * discount is applied, and always rounds half up to the nearest cent.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public final class Money
+{
+    /** Number of cents in one dollar */
+    public static final long CENTS_PER_DOLLAR = 100;
+
+    /** Money is only used through its static methods */
+    private Money()
+    {
+    }
+
+    /**
+     * Converts a dollar amount to cents, rounding to the nearest cent.
+     *
+     * @param dollars the amount in dollars (e.g. 2.50)
+     * @return the amount in cents (e.g. 250)
+     */
+    public static long fromDollars(double dollars)
+    {
+        return Math.round(dollars * CENTS_PER_DOLLAR);
+    }
+
+    /**
+     * Converts an amount in cents to dollars, for display or legacy callers.
+     *
+     * @param cents the amount in cents
+     * @return the amount in dollars
+     */
+    public static double toDollars(long cents)
+    {
+        return cents / (double) CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Parses a decimal dollar amount such as "11.50" or "5" into cents.
+     * At most two decimal places are allowed.
+     *
+     * @param text the amount to parse
+     * @return the amount in cents
+     * @throws NumberFormatException if the text is not a valid amount
+     */
+    public static long parse(String text)
+    {
+        int length = text.length();
+        if (length == 0)
+        {
+            throw new NumberFormatException("Empty amount");
+        }
+
+        long cents = 0;
+        int decimals = -1;
+        boolean hasDigit = false;
+        for (int i = 0; i < length; i++)
+        {
+            char c = text.charAt(i);
+            if (c == '.' && decimals < 0)
+            {
+                decimals = 0;
+            }
+            else if (c >= '0' && c <= '9' && decimals < 2)
+            {
+                cents = cents * 10 + (c - '0');
+                hasDigit = true;
+                if (decimals >= 0) decimals++;
+            }
+            else
+            {
+                throw new NumberFormatException("Invalid amount: " + text);
+            }
+        }
+
+        if (!hasDigit)
+        {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+
+        //Scale up to whole cents if fewer than two decimals were given
+        for (int i = Math.max(decimals, 0); i < 2; i++)
+        {
+            cents *= 10;
+        }
+        return cents;
+    }
+
+    /**
+     * Takes a percentage off an amount.
+     * The result is rounded half up to the nearest cent, so 20% off 1.13 is 0.90.
+     *
+     * @param cents the amount in cents (not negative)
+     * @param percent the discount percentage, 0 to 100
+     * @return the discounted amount in cents
+     */
+    public static long applyDiscount(long cents, int percent)
+    {
+        return (cents * (100 - percent) + 50) / 100;
+    }
+
+    /**
+     * Appends an amount as dollars with two decimal places (e.g. "12.05")
+     * without going through String.format.
+     *
+     * @param output the builder to append to
+     * @param cents the amount in cents
+     * @return the same builder
+     */
+    public static StringBuilder appendTo(StringBuilder output, long cents)
+    {
+        if (cents < 0)
+        {
+            output.append('-');
+            cents = -cents;
+        }
+
+        long fraction = cents % CENTS_PER_DOLLAR;
+        output.append(cents / CENTS_PER_DOLLAR).append('.');
+        if (fraction < 10)
+        {
+            output.append('0');
+        }
+        return output.append(fraction);
+    }
+
+    /**
+     * Writes an amount as dollars with two decimal places (e.g. "12.05") to any
+     * output, one character at a time so no String is created.
+     *
+     * @param output where to write the amount
+     * @param cents the amount in cents
+     * @throws IOException if the output cannot be written
+     */
+    public static void appendTo(Appendable output, long cents) throws IOException
+    {
+        if (cents < 0)
+        {
+            output.append('-');
+            cents = -cents;
+        }
+
+        //Write the whole dollars most significant digit first
+        long dollars = cents / CENTS_PER_DOLLAR;
+        long scale = 1;
+        while (scale <= dollars / 10)
+        {
+            scale *= 10;
+        }
+        for (; scale > 0; scale /= 10)
+        {
+            output.append((char) ('0' + dollars / scale % 10));
+        }
+
+        long fraction = cents % CENTS_PER_DOLLAR;
+        output.append('.').append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+
+    /**
+     * Formats an amount as dollars with two decimal places (e.g. "12.05").
+     *
+     * @param cents the amount in cents
+     * @return the formatted amount
+     */
+    public static String format(long cents)
+    {
+        return appendTo(new StringBuilder(12), cents).toString();
+    }
+}
@@ -1,22 +1,57 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a customer's order which includes food items, delivery method,
  * customer details, and optional student discount information.
  *
  * Calculates total cost based on items, delivery fee, and applicable discount.
+ * All amounts are exact whole cents (see Money).
  * Determines the overall meal classification (MEAT, VEGETARIAN, or VEGAN).
  *
+ * The item list is an immutable snapshot, so the item subtotal and meal type
+ * are calculated once at construction. The rendered text is cached until the
+ * delivery method or student details change.
+ *
+ * Every order gets a unique id when it is created, which is how the
+ * journal and other indexes refer to it.
+ *
  * Author: Reyan
  * Version: 1.0
  */
 public class Order
 {
+    /** Source of order ids, shared by every order in this process */
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    /** Unique id of this order */
+    private final long id;
+
+    /** Wall-clock time the order was placed, in milliseconds since the epoch */
+    private final long createdAtMillis;
+
     /** List of food items in the order */
-    private List<FoodItem> foodItems;
+    private final List<FoodItem> foodItems;
 
     /** Customer who placed the order */
-    private Customer customer;
+    private final Customer customer;
+
+    /** Sum of the food item prices in cents, calculated once at construction */
+    private final long itemsTotalCents;
+
+    /** Overall meal classification, calculated once at construction */
+    private final MealType mealType;
+
+    /** System.nanoTime when the order was last queued, or 0 if it was never timed */
+    private long enqueuedAtNanos;
+
+    /** Key the submitting terminal uses to recognise retries, or null */
+    private String idempotencyKey;
+
+    /** Cached result of toString, cleared whenever the order details change */
+    private String description;
 
     /** Selected delivery method */
     private DeliveryMethod deliveryMethod;
@@ -24,8 +59,11 @@ public class Order
     /** Student discount details */
     private StudentInfo studentInfo;
 
-    /** Fixed fee applied for door delivery option */
-    private static final double DOOR_DELIVERY_FEE = 5.00;
+    /** Fixed fee in cents applied for door delivery option */
+    static final long DOOR_DELIVERY_FEE_CENTS = 500;
+
+    /** Percentage taken off the total for students */
+    static final int STUDENT_DISCOUNT_PERCENT = 20;
 
     /**
      * Constructs an Order object with food items and customer details.
@@ -35,8 +73,119 @@ public class Order
      */
     public Order(List<FoodItem> foodItems, Customer customer)
     {
-        this.foodItems = foodItems;
+        this(NEXT_ID.getAndIncrement(), System.currentTimeMillis(), foodItems, customer);
+    }
+
+    /**
+     * Constructs an Order with a known id, used when orders are restored from disk.
+     *
+     * @param id the id the order was originally given
+     * @param createdAtMillis the time the order was originally placed
+     * @param foodItems list of food items ordered
+     * @param customer customer who placed the order
+     */
+    Order(long id, long createdAtMillis, List<FoodItem> foodItems, Customer customer)
+    {
+        this.id = id;
+        this.createdAtMillis = createdAtMillis;
+
+        //Snapshot the items so the cached totals always match them
+        this.foodItems = List.copyOf(foodItems);
         this.customer = customer;
+        this.itemsTotalCents = calculateItemsTotalCents(this.foodItems);
+        this.mealType = calculateMealType(this.foodItems);
+    }
+
+    /**
+     * Makes sure ids handed to new orders are greater than the given id,
+     * so orders restored from disk never share an id with new ones.
+     *
+     * @param usedId an id that is already taken
+     */
+    static void reserveIdsThrough(long usedId)
+    {
+        NEXT_ID.accumulateAndGet(usedId + 1, Math::max);
+    }
+
+    /**
+     * Makes a copy of this order with different food items, for a customer
+     * changing an order that has not left yet. The copy keeps the id, the
+     * creation and queueing times, the customer and every delivery detail.
+     *
+     * @param foodItems the new list of food items
+     * @return the changed order
+     */
+    public Order withFoodItems(List<FoodItem> foodItems)
+    {
+        Order changed = new Order(id, createdAtMillis, foodItems, customer);
+        changed.enqueuedAtNanos = enqueuedAtNanos;
+        changed.idempotencyKey = idempotencyKey;
+        changed.deliveryMethod = deliveryMethod;
+        changed.studentInfo = studentInfo;
+        return changed;
+    }
+
+    /**
+     * Returns the unique id of this order.
+     *
+     * @return the order id
+     */
+    public long getId()
+    {
+        return id;
+    }
+
+    /**
+     * Returns the time the order was placed.
+     *
+     * @return milliseconds since the epoch
+     */
+    public long getCreatedAtMillis()
+    {
+        return createdAtMillis;
+    }
+
+    /**
+     * Records when the order was put in a queue, for wait time metrics.
+     * Called before the order is queued, so whoever takes it sees the time.
+     *
+     * @param nanos the System.nanoTime of queueing
+     */
+    void markEnqueued(long nanos)
+    {
+        enqueuedAtNanos = nanos;
+    }
+
+    /**
+     * Returns when the order was last queued.
+     *
+     * @return the System.nanoTime of queueing, or 0 if it was never timed
+     */
+    public long getEnqueuedAtNanos()
+    {
+        return enqueuedAtNanos;
+    }
+
+    /**
+     * Sets the key that identifies this submission, so a retried submission
+     * of the same order can be recognised. The key is not part of the order
+     * details and is not shown.
+     *
+     * @param idempotencyKey the key, or null for none
+     */
+    public void setIdempotencyKey(String idempotencyKey)
+    {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    /**
+     * Returns the key that identifies this submission.
+     *
+     * @return the idempotency key, or null if none was given
+     */
+    public String getIdempotencyKey()
+    {
+        return idempotencyKey;
     }
 
     /**
@@ -47,6 +196,7 @@ public class Order
     public void setDeliveryMethod(DeliveryMethod deliveryMethod)
     {
         this.deliveryMethod = deliveryMethod;
+        description = null;
     }
 
     /**
@@ -57,6 +207,7 @@ public class Order
     public void setStudentInfo(StudentInfo studentInfo)
     {
         this.studentInfo = studentInfo;
+        description = null;
     }
 
     /**
@@ -67,36 +218,111 @@ public class Order
      */
     public double calculateTotalCost()
     {
-        double total = 0.0;
+        return Money.toDollars(calculateTotalCents());
+    }
 
-        //Add the prices of all the food items
-        for (FoodItem item : foodItems)
-        {
-            total += item.getPrice();
-        }
+    /**
+     * Calculates the exact total cost of the order in cents.
+     * The student discount is rounded half up to the nearest cent.
+     *
+     * @return final total cost in cents after fees and discounts
+     */
+    public long calculateTotalCents()
+    {
+        long total = itemsTotalCents;
 
         // Apply the delivery fee ($5) if Door Delivery was selected
         if (deliveryMethod == DeliveryMethod.DOOR_DELIVERY)
         {
-            total += DOOR_DELIVERY_FEE;
+            total += DOOR_DELIVERY_FEE_CENTS;
         }
 
         //Apply the 20% discount if valid student info is provided
         if (studentInfo != null && studentInfo.isValid())
         {
-            total *= 0.8;
+            total = Money.applyDiscount(total, STUDENT_DISCOUNT_PERCENT);
         }
 
         return total;
     }
 
     /**
-     * Determines the overall meal type of the order.
+     * Returns the overall meal type of the order.
      * Priority: MEAT > VEGETARIAN > VEGAN
      *
      * @return the meal type classification
      */
     public MealType calculateMealType()
+    {
+        return mealType;
+    }
+
+    /**
+     * Returns the food items in the order.
+     *
+     * @return an unmodifiable list of the ordered items
+     */
+    public List<FoodItem> getFoodItems()
+    {
+        return foodItems;
+    }
+
+    /**
+     * Returns the customer who placed the order.
+     *
+     * @return the customer
+     */
+    public Customer getCustomer()
+    {
+        return customer;
+    }
+
+    /**
+     * Returns the selected delivery method.
+     *
+     * @return the delivery method, or null if none has been chosen yet
+     */
+    public DeliveryMethod getDeliveryMethod()
+    {
+        return deliveryMethod;
+    }
+
+    /**
+     * Returns the student discount details.
+     *
+     * @return the student info, or null if none was given
+     */
+    public StudentInfo getStudentInfo()
+    {
+        return studentInfo;
+    }
+
+    /**
+     * Adds up the prices of all the food items.
+     *
+     * @param foodItems the items in the order
+     * @return the item subtotal in cents before fees and discounts
+     */
+    private static long calculateItemsTotalCents(List<FoodItem> foodItems)
+    {
+        long total = 0;
+
+        //Add the prices of all the food items
+        for (FoodItem item : foodItems)
+        {
+            total += item.getPriceCents();
+        }
+
+        return total;
+    }
+
+    /**
+     * Determines the overall meal type from the food items.
+     *
+     * @param foodItems the items in the order
+     * @return the meal type classification
+     */
+    private static MealType calculateMealType(List<FoodItem> foodItems)
     {
         boolean hasMeat = false;
         boolean hasVeg = false;
@@ -130,6 +356,26 @@ public class Order
         }
     }
 
+    /**
+     * Writes the same text as toString to the given output, without building
+     * a String first unless the text is already cached.
+     *
+     * @param out where to write the order
+     * @throws IOException if the output cannot be written
+     */
+    public void appendTo(Appendable out) throws IOException
+    {
+        String cached = description;
+        if (cached != null)
+        {
+            out.append(cached);
+        }
+        else
+        {
+            render(out);
+        }
+    }
+
     /**
      * Returns a full formatted string describing the order.
      *
@@ -138,10 +384,33 @@ public class Order
     @Override
     public String toString()
     {
-        StringBuilder output = new StringBuilder();
+        if (description == null)
+        {
+            StringBuilder output = new StringBuilder(256);
+            try
+            {
+                render(output);
+            }
+            catch (IOException e)
+            {
+                //A StringBuilder never throws
+                throw new UncheckedIOException(e);
+            }
+            description = output.toString();
+        }
+        return description;
+    }
 
+    /**
+     * Writes the customer details, delivery, student discount, meal type, items and total.
+     *
+     * @param output where to write the order
+     * @throws IOException if the output cannot be written
+     */
+    private void render(Appendable output) throws IOException
+    {
         //Append the customer details
-        output.append(customer.toString());
+        customer.appendTo(output);
 
         //Append the delivery method
         if (deliveryMethod != null)
@@ -160,16 +429,23 @@ public class Order
         //Append the student discount info if applicable
         if (studentInfo != null && studentInfo.isValid())
         {
-            output.append("\nStudent: ").append(studentInfo.toString()).append(" (20% discount applied)");
+            output.append("\nStudent: ");
+            studentInfo.appendTo(output);
+            output.append(" (20% discount applied)");
         }
 
         //Append the meal classification and item list
-        output.append("\nMeal type: ").append(calculateMealType());
-        output.append("\nItems: ").append(foodItems.toString());
+        output.append("\nMeal type: ").append(mealType.name());
+        output.append("\nItems: [");
+        for (int i = 0; i < foodItems.size(); i++)
+        {
+            if (i > 0) output.append(", ");
+            foodItems.get(i).appendTo(output);
+        }
+        output.append(']');
 
         //Append the total cost
-        output.append("\nTotal: $").append(String.format("%.2f", calculateTotalCost()));
-
-        return output.toString();
+        output.append("\nTotal: $");
+        Money.appendTo(output, calculateTotalCents());
     }
 }
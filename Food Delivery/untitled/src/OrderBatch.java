@@ -0,0 +1,396 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A batch of orders flattened into primitive arrays so they can all be
+ * priced in one pass.
+ *
+ * Each order is reduced to a range of items, each item to a kind and a
+ * range of topping ids, plus a door delivery flag and a student flag. A
+ * pizza with at least as many toppings as a packed pizza has price tables
+ * has them packed into one long instead (see PackedPizza), so it costs
+ * eight bytes and a fixed number of lookups however many toppings it has.
+ * Pricing the batch is then a loop over plain arrays: a table lookup for
+ * the base price of each kind, one per byte of each packed pizza and one
+ * for the price of each other topping id, with no virtual calls to Pizza or
+ * Pasta and no branches on fees or discounts.
+ *
+ * Toppings are kept by catalog id, not by price, so when menu prices change
+ * the same batch can be repriced against a new catalog with the same
+ * toppings in the same order, keeping each item's own base price, or
+ * against a new Menu, which also sets the base prices. Toppings that are
+ * not part of the catalog, and food items other than pizza and pasta, keep
+ * the price they had when the batch was built.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public final class OrderBatch
+{
+    /** Item kind of a Pizza */
+    private static final byte PIZZA = 0;
+
+    /** Item kind of a Pasta */
+    private static final byte PASTA = 1;
+
+    /** Item kind of any other food item, priced from its fixed cents only */
+    private static final byte OTHER = 2;
+
+    /** The catalog whose topping ids the batch holds */
+    private final ToppingCatalog catalog;
+
+    /** Fewest toppings a pizza needs to be packed, or Integer.MAX_VALUE if pizzas are never packed */
+    private final int packFrom;
+
+    /** Id of each order */
+    private final long[] orderIds;
+
+    /** Index of each order's first item; the last entry is the item count */
+    private final int[] itemStart;
+
+    /** 1 for orders with door delivery, 0 otherwise */
+    private final byte[] doorDelivery;
+
+    /** 1 for orders with a valid student discount, 0 otherwise */
+    private final byte[] students;
+
+    /** Kind of each item */
+    private final byte[] itemKinds;
+
+    /** Index of each item's first topping; the last entry is the topping count */
+    private final int[] toppingStart;
+
+    /** Base price in cents each pizza and pasta was ordered at, 0 for other items */
+    private final long[] baseCents;
+
+    /** Price in cents of each item that does not depend on the catalog */
+    private final long[] fixedCents;
+
+    /** Catalog pizza toppings of each pizza packed by PackedPizza, PackedPizza.PLAIN for other items */
+    private final long[] pizzaToppings;
+
+    /** Catalog id of each topping not held in pizzaToppings, item after item */
+    private short[] toppingIds;
+
+    private OrderBatch(ToppingCatalog catalog, int packFrom, int orders, int items, int toppings)
+    {
+        this.catalog = catalog;
+        this.packFrom = packFrom;
+        orderIds = new long[orders];
+        itemStart = new int[orders + 1];
+        doorDelivery = new byte[orders];
+        students = new byte[orders];
+        itemKinds = new byte[items];
+        toppingStart = new int[items + 1];
+        baseCents = new long[items];
+        fixedCents = new long[items];
+        pizzaToppings = new long[items];
+        toppingIds = new short[toppings];
+    }
+
+    /**
+     * Flattens some orders into a batch.
+     *
+     * @param orders the orders, in the order their prices are wanted
+     * @param catalog the catalog their toppings come from
+     * @return the batch
+     */
+    public static OrderBatch of(Collection<Order> orders, ToppingCatalog catalog)
+    {
+        //Size the arrays with a first pass, so they are not copied while filling them
+        int packFrom = packFrom(catalog);
+        int items = 0;
+        int toppings = 0;
+        for (Order order : orders)
+        {
+            for (FoodItem item : order.getFoodItems())
+            {
+                items++;
+                if (item instanceof Pizza && ((Pizza) item).getToppings().size() < packFrom)
+                {
+                    toppings += ((Pizza) item).getToppings().size();
+                }
+                else if (item instanceof Pasta)
+                {
+                    toppings++;
+                }
+            }
+        }
+
+        OrderBatch batch = new OrderBatch(catalog, packFrom, orders.size(), items, toppings);
+        int o = 0;
+        int i = 0;
+        int t = 0;
+        for (Order order : orders)
+        {
+            batch.orderIds[o] = order.getId();
+            batch.itemStart[o] = i;
+            batch.doorDelivery[o] = (byte) (order.getDeliveryMethod() == DeliveryMethod.DOOR_DELIVERY ? 1 : 0);
+            StudentInfo student = order.getStudentInfo();
+            batch.students[o] = (byte) (student != null && student.isValid() ? 1 : 0);
+            o++;
+
+            for (FoodItem item : order.getFoodItems())
+            {
+                batch.toppingStart[i] = t;
+                if (item instanceof Pizza)
+                {
+                    batch.itemKinds[i] = PIZZA;
+                    batch.baseCents[i] = ((Pizza) item).getBasePriceCents();
+                    List<Topping> pizzaToppings = ((Pizza) item).getToppings();
+                    boolean pack = pizzaToppings.size() >= packFrom;
+                    long pizza = PackedPizza.PLAIN;
+                    for (Topping topping : pizzaToppings)
+                    {
+                        if (pack && PackedPizza.isPizzaTopping(topping, catalog)
+                                && PackedPizza.count(pizza, topping.getId()) < PackedPizza.MAX_COUNT)
+                        {
+                            pizza = PackedPizza.add(pizza, topping, catalog);
+                        }
+                        else
+                        {
+                            t = batch.addTopping(i, t, topping);
+                        }
+                    }
+                    batch.pizzaToppings[i] = pizza;
+                }
+                else if (item instanceof Pasta)
+                {
+                    batch.itemKinds[i] = PASTA;
+                    batch.baseCents[i] = ((Pasta) item).getBasePriceCents();
+                    t = batch.addTopping(i, t, ((Pasta) item).getTopping());
+                }
+                else
+                {
+                    batch.itemKinds[i] = OTHER;
+                    batch.fixedCents[i] = item.getPriceCents();
+                }
+                i++;
+            }
+        }
+        batch.itemStart[o] = i;
+        batch.toppingStart[i] = t;
+        return batch;
+    }
+
+    /**
+     * Returns the number of orders in the batch.
+     *
+     * @return the order count
+     */
+    public int size()
+    {
+        return orderIds.length;
+    }
+
+    /**
+     * Returns the id of an order in the batch.
+     *
+     * @param index the order's position in the batch
+     * @return the order id
+     */
+    public long getOrderId(int index)
+    {
+        return orderIds[index];
+    }
+
+    /**
+     * Prices every order in the batch, by the same rules as Order.calculateTotalCents.
+     *
+     * @param prices a catalog with the same toppings, in the same order, as the
+     *               one the batch was built with, holding the prices to use
+     * @return the total of each order in cents, in batch order
+     * @throws IllegalArgumentException if the catalog does not match the batch
+     */
+    public long[] priceCents(ToppingCatalog prices)
+    {
+        long[] totals = new long[orderIds.length];
+        priceCents(prices, totals);
+        return totals;
+    }
+
+    /**
+     * Prices every order in the batch into an existing array, so repeated
+     * repricing does not allocate.
+     *
+     * @param prices a catalog with the same toppings as the batch's catalog
+     * @param totals receives the total of each order in cents, in batch order
+     * @throws IllegalArgumentException if the catalog does not match the batch,
+     *         or the array is shorter than the batch
+     */
+    public void priceCents(ToppingCatalog prices, long[] totals)
+    {
+        price(toppingPrices(prices), pizzaPriceTables(prices), null, totals);
+    }
+
+    /**
+     * Prices every order in the batch at a menu's prices, base prices included.
+     *
+     * @param menu a menu whose catalog has the same toppings as the batch's catalog
+     * @return the total of each order in cents, in batch order
+     * @throws IllegalArgumentException if the menu's catalog does not match the batch
+     */
+    public long[] priceCents(Menu menu)
+    {
+        long[] totals = new long[orderIds.length];
+        priceCents(menu, totals);
+        return totals;
+    }
+
+    /**
+     * Prices every order in the batch at a menu's prices into an existing array.
+     *
+     * @param menu a menu whose catalog has the same toppings as the batch's catalog
+     * @param totals receives the total of each order in cents, in batch order
+     * @throws IllegalArgumentException if the menu's catalog does not match the
+     *         batch, or the array is shorter than the batch
+     */
+    public void priceCents(Menu menu, long[] totals)
+    {
+        long[] kindCents = {menu.getPizzaBasePriceCents(), menu.getPastaBasePriceCents(), 0};
+        price(toppingPrices(menu.getCatalog()), pizzaPriceTables(menu.getCatalog()), kindCents, totals);
+    }
+
+    /**
+     * Adds up the totals of every order in the batch.
+     *
+     * @param prices a catalog with the same toppings as the batch's catalog
+     * @return the sum of the order totals in cents
+     * @throws IllegalArgumentException if the catalog does not match the batch
+     */
+    public long totalCents(ToppingCatalog prices)
+    {
+        long sum = 0;
+        for (long total : priceCents(prices))
+        {
+            sum += total;
+        }
+        return sum;
+    }
+
+    /**
+     * The pricing loop shared by both kinds of repricing.
+     *
+     * @param toppingCents topping prices in cents, indexed by topping id
+     * @param pizzaTables the catalog's packed pizza price tables, or null if pizzas are not packed
+     * @param kindCents base price of each item kind, or null to keep each item's own
+     * @param totals receives the total of each order in cents
+     */
+    private void price(long[] toppingCents, long[][] pizzaTables, long[] kindCents, long[] totals)
+    {
+        if (totals.length < orderIds.length)
+        {
+            throw new IllegalArgumentException("Need room for " + orderIds.length + " totals");
+        }
+
+        //Orders and items are both walked in array order, so every read is sequential
+        int item = 0;
+        for (int o = 0; o < orderIds.length; o++)
+        {
+            long total = 0;
+            for (int end = itemStart[o + 1]; item < end; item++)
+            {
+                long price = (kindCents == null ? baseCents[item] : kindCents[itemKinds[item]]) + fixedCents[item];
+                if (pizzaToppings[item] != PackedPizza.PLAIN)
+                {
+                    price += PackedPizza.toppingPriceCents(pizzaToppings[item], pizzaTables);
+                }
+                for (int t = toppingStart[item], last = toppingStart[item + 1]; t < last; t++)
+                {
+                    price += toppingCents[toppingIds[t]];
+                }
+                total += price;
+            }
+
+            //Fee and discount are multiplied by 0 or 1, and a 0% discount leaves the total unchanged
+            total += doorDelivery[o] * Order.DOOR_DELIVERY_FEE_CENTS;
+            totals[o] = Money.applyDiscount(total, students[o] * Order.STUDENT_DISCOUNT_PERCENT);
+        }
+    }
+
+    /**
+     * Records one topping of an item, by catalog id if the catalog has it.
+     *
+     * @param item the item index
+     * @param next where to store the topping id
+     * @param topping the topping
+     * @return where the next topping id goes
+     */
+    private int addTopping(int item, int next, Topping topping)
+    {
+        int id = topping.getId();
+        if (id >= 0 && id < catalog.size() && catalog.get(id).getName().equals(topping.getName()))
+        {
+            if (next == toppingIds.length)
+            {
+                //Only a pizza with more than PackedPizza.MAX_COUNT of one topping spills past the first pass's count
+                toppingIds = Arrays.copyOf(toppingIds, Math.max(8, next * 2));
+            }
+            toppingIds[next] = (short) id;
+            return next + 1;
+        }
+
+        //A topping from outside the catalog cannot be repriced, so it keeps its own price
+        fixedCents[item] += topping.getPriceCents();
+        return next;
+    }
+
+    /**
+     * Works out which pizzas are worth packing. A packed pizza is priced with
+     * one lookup per table whatever it holds, so only pizzas with at least
+     * that many toppings are packed; smaller ones are cheaper as topping ids.
+     *
+     * @param catalog the catalog the batch is built with
+     * @return the fewest toppings a packed pizza has, or Integer.MAX_VALUE if
+     *         the catalog has too many pizza toppings to pack
+     */
+    private static int packFrom(ToppingCatalog catalog)
+    {
+        int pizzaToppings = catalog.getPizzaToppings().size();
+        if (pizzaToppings > PackedPizza.MAX_TOPPINGS)
+        {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(1, (pizzaToppings + 1) / 2);
+    }
+
+    /**
+     * Returns the packed pizza price tables of a catalog that matches the batch.
+     *
+     * @param prices the catalog holding the prices
+     * @return the tables, or null if the batch does not pack its pizzas
+     */
+    private long[][] pizzaPriceTables(ToppingCatalog prices)
+    {
+        return packFrom == Integer.MAX_VALUE ? null : prices.pizzaPriceTables();
+    }
+
+    /**
+     * Builds the price of each topping id from a catalog, checking that the
+     * catalog has the same toppings as the one the batch was built with.
+     *
+     * @param prices the catalog holding the prices
+     * @return topping prices in cents, indexed by topping id
+     */
+    private long[] toppingPrices(ToppingCatalog prices)
+    {
+        if (prices.size() != catalog.size())
+        {
+            throw new IllegalArgumentException("Catalog has " + prices.size() + " toppings, batch expects " + catalog.size());
+        }
+
+        long[] cents = new long[prices.size()];
+        for (int id = 0; id < cents.length; id++)
+        {
+            Topping topping = prices.get(id);
+            if (!topping.getName().equals(catalog.get(id).getName()))
+            {
+                throw new IllegalArgumentException("Catalog has " + topping.getName() + " at id " + id
+                        + ", batch expects " + catalog.get(id).getName());
+            }
+            cents[id] = topping.getPriceCents();
+        }
+        return cents;
+    }
+}
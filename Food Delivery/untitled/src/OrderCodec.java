@@ -0,0 +1,328 @@
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of an Order, its Customer and its FoodItems,
+ * used by the order journal and snapshots.
+ *
+ * Strings are written as a char count followed by the raw chars, so
+ * encoding writes straight into the target buffer without building any
+ * intermediate byte arrays. Toppings carry their catalog id along with
+ * their name, price and type, so an order keeps the prices it was created
+ * with even if the menu has changed since; when a decoded topping still
+ * matches the catalog, the shared catalog instance is used. Items from a
+ * menu with a non-standard base price are written with their base price, so
+ * they also come back at the price they were ordered at.
+ *
+ * An order's idempotency key is not encoded. Keys only matter for the
+ * short time a terminal may retry, and IdempotencyIndex keeps them in
+ * memory, so a recovered order comes back without one.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public final class OrderCodec
+{
+    /** Item kind marker for a pizza */
+    private static final byte PIZZA = 1;
+
+    /** Item kind marker for a pasta */
+    private static final byte PASTA = 2;
+
+    /** Item kind marker for a pizza followed by its base price */
+    private static final byte PRICED_PIZZA = 3;
+
+    /** Item kind marker for a pasta followed by its base price */
+    private static final byte PRICED_PASTA = 4;
+
+    /** Longest string that fits in the char-count prefix */
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+
+    /** OrderCodec is only used through its static methods */
+    private OrderCodec()
+    {
+    }
+
+    /**
+     * Works out exactly how many bytes encode will write for an order.
+     *
+     * @param order the order to measure
+     * @return the encoded size in bytes
+     */
+    public static int encodedSize(Order order)
+    {
+        Customer customer = order.getCustomer();
+        StudentInfo student = order.getStudentInfo();
+
+        //id, creation time, delivery method, student flag and item count
+        int size = 8 + 8 + 1 + 1 + 2;
+        size += stringSize(customer.getName()) + stringSize(customer.getContactNumber())
+                + stringSize(customer.getAddress());
+        if (student != null)
+        {
+            size += stringSize(student.getUniversity()) + stringSize(student.getStudentId());
+        }
+
+        for (FoodItem item : order.getFoodItems())
+        {
+            size += 1;
+            if (item instanceof Pizza)
+            {
+                Pizza pizza = (Pizza) item;
+                size += 2 + basePriceSize(pizza.getBasePriceCents());
+                for (Topping topping : pizza.getToppings())
+                {
+                    size += toppingSize(topping);
+                }
+            }
+            else
+            {
+                Pasta pasta = (Pasta) item;
+                size += basePriceSize(pasta.getBasePriceCents()) + toppingSize(pasta.getTopping());
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Writes an order at the buffer's position and advances it.
+     *
+     * @param order the order to write
+     * @param buffer the buffer to write into
+     * @throws BufferOverflowException if the buffer has less than encodedSize bytes left
+     * @throws IllegalArgumentException if the order has an item type or string the codec cannot store
+     */
+    public static void encode(Order order, ByteBuffer buffer)
+    {
+        Customer customer = order.getCustomer();
+        StudentInfo student = order.getStudentInfo();
+        DeliveryMethod method = order.getDeliveryMethod();
+
+        buffer.putLong(order.getId());
+        buffer.putLong(order.getCreatedAtMillis());
+        buffer.put((byte) (method == null ? 0 : method.ordinal() + 1));
+        putString(buffer, customer.getName());
+        putString(buffer, customer.getContactNumber());
+        putString(buffer, customer.getAddress());
+
+        //Student details are optional
+        buffer.put((byte) (student == null ? 0 : 1));
+        if (student != null)
+        {
+            putString(buffer, student.getUniversity());
+            putString(buffer, student.getStudentId());
+        }
+
+        List<FoodItem> items = order.getFoodItems();
+        buffer.putShort((short) items.size());
+        for (FoodItem item : items)
+        {
+            if (item instanceof Pizza)
+            {
+                Pizza pizza = (Pizza) item;
+                List<Topping> toppings = pizza.getToppings();
+                putKind(buffer, PIZZA, PRICED_PIZZA, pizza.getBasePriceCents());
+                buffer.putShort((short) toppings.size());
+                for (Topping topping : toppings)
+                {
+                    putTopping(buffer, topping);
+                }
+            }
+            else if (item instanceof Pasta)
+            {
+                Pasta pasta = (Pasta) item;
+                putKind(buffer, PASTA, PRICED_PASTA, pasta.getBasePriceCents());
+                putTopping(buffer, pasta.getTopping());
+            }
+            else
+            {
+                throw new IllegalArgumentException("Cannot encode food item: " + item);
+            }
+        }
+    }
+
+    /**
+     * Reads an order written by encode from the buffer's position and advances it.
+     *
+     * @param buffer the buffer to read from
+     * @param catalog the catalog used to share topping instances
+     * @return the decoded order, with the same id as the original
+     */
+    public static Order decode(ByteBuffer buffer, ToppingCatalog catalog)
+    {
+        return decode(buffer, catalog, true);
+    }
+
+    /**
+     * Reads an order written before orders recorded their creation time,
+     * as in version 1 snapshots and journals. The order is treated as placed when it is read.
+     *
+     * @param buffer the buffer to read from
+     * @param catalog the catalog used to share topping instances
+     * @return the decoded order, with the same id as the original
+     */
+    static Order decodeWithoutCreationTime(ByteBuffer buffer, ToppingCatalog catalog)
+    {
+        return decode(buffer, catalog, false);
+    }
+
+    private static Order decode(ByteBuffer buffer, ToppingCatalog catalog, boolean hasCreationTime)
+    {
+        long id = buffer.getLong();
+        long createdAtMillis = hasCreationTime ? buffer.getLong() : System.currentTimeMillis();
+        int method = buffer.get();
+        Customer customer = new Customer(getString(buffer), getString(buffer), getString(buffer));
+
+        StudentInfo student = null;
+        if (buffer.get() != 0)
+        {
+            student = new StudentInfo(getString(buffer), getString(buffer));
+        }
+
+        int itemCount = buffer.getShort() & 0xFFFF;
+        List<FoodItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++)
+        {
+            byte kind = buffer.get();
+            long basePriceCents = kind == PRICED_PIZZA || kind == PRICED_PASTA
+                    ? buffer.getInt()
+                    : FoodItem.BASE_PRICE_CENTS;
+            if (kind == PIZZA || kind == PRICED_PIZZA)
+            {
+                int toppingCount = buffer.getShort() & 0xFFFF;
+                List<Topping> toppings = new ArrayList<>(toppingCount);
+                for (int t = 0; t < toppingCount; t++)
+                {
+                    toppings.add(getTopping(buffer, catalog));
+                }
+                items.add(new Pizza(toppings, basePriceCents));
+            }
+            else
+            {
+                items.add(new Pasta(getTopping(buffer, catalog), basePriceCents));
+            }
+        }
+
+        Order order = new Order(id, createdAtMillis, items, customer);
+        if (method != 0)
+        {
+            order.setDeliveryMethod(DeliveryMethod.values()[method - 1]);
+        }
+        if (student != null)
+        {
+            order.setStudentInfo(student);
+        }
+        return order;
+    }
+
+    private static int basePriceSize(long basePriceCents)
+    {
+        //Standard base prices are implied by the kind marker
+        return basePriceCents == FoodItem.BASE_PRICE_CENTS ? 0 : 4;
+    }
+
+    private static void putKind(ByteBuffer buffer, byte kind, byte pricedKind, long basePriceCents)
+    {
+        if (basePriceCents == FoodItem.BASE_PRICE_CENTS)
+        {
+            buffer.put(kind);
+        }
+        else
+        {
+            buffer.put(pricedKind);
+            buffer.putInt((int) basePriceCents);
+        }
+    }
+
+    private static int toppingSize(Topping topping)
+    {
+        //id, price and type, then the name
+        return 2 + 4 + 1 + stringSize(topping.getName());
+    }
+
+    private static void putTopping(ByteBuffer buffer, Topping topping)
+    {
+        buffer.putShort((short) topping.getId());
+        buffer.putInt((int) topping.getPriceCents());
+        buffer.put((byte) topping.getType().ordinal());
+        putString(buffer, topping.getName());
+    }
+
+    private static Topping getTopping(ByteBuffer buffer, ToppingCatalog catalog)
+    {
+        int id = buffer.getShort();
+        long priceCents = buffer.getInt();
+        MealType type = MealType.values()[buffer.get()];
+
+        //Reuse the catalog topping if nothing about it has changed
+        if (id >= 0 && id < catalog.size())
+        {
+            Topping shared = catalog.get(id);
+            if (shared.getPriceCents() == priceCents && shared.getType() == type
+                    && skipStringIfEqual(buffer, shared.getName()))
+            {
+                return shared;
+            }
+        }
+        return new Topping(id, getString(buffer), priceCents, type);
+    }
+
+    private static int stringSize(String value)
+    {
+        return 2 + 2 * value.length();
+    }
+
+    private static void putString(ByteBuffer buffer, String value)
+    {
+        int length = value.length();
+        if (length > MAX_STRING_LENGTH)
+        {
+            throw new IllegalArgumentException("String too long to encode: " + length + " chars");
+        }
+
+        buffer.putChar((char) length);
+        for (int i = 0; i < length; i++)
+        {
+            buffer.putChar(value.charAt(i));
+        }
+    }
+
+    private static String getString(ByteBuffer buffer)
+    {
+        int length = buffer.getChar();
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++)
+        {
+            chars[i] = buffer.getChar();
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Compares the next string in the buffer with an expected value without
+     * creating a String. The buffer only moves past it if it matches.
+     */
+    private static boolean skipStringIfEqual(ByteBuffer buffer, String expected)
+    {
+        int start = buffer.position();
+        int length = buffer.getChar(start);
+        if (length != expected.length())
+        {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++)
+        {
+            if (buffer.getChar(start + 2 + 2 * i) != expected.charAt(i))
+            {
+                return false;
+            }
+        }
+
+        buffer.position(start + 2 + 2 * length);
+        return true;
+    }
+}
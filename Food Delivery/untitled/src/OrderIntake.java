@@ -0,0 +1,34 @@
+/**
+ * Where orders taken from terminals are sent: a single OrderManager, or a
+ * ShardedOrderManager that spreads them over several.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public interface OrderIntake
+{
+    /**
+     * Returns whether orders can be sent from many threads at once.
+     *
+     * @return true if the intake is safe to share between threads
+     */
+    boolean isConcurrent();
+
+    /**
+     * Adds an order unless an order with the same idempotency key was added recently.
+     *
+     * @param order the order to add
+     * @return the id of this order if it was added, or the id of the earlier
+     *         order with the same key if it was a duplicate
+     * @throws IllegalStateException if the order could not be queued
+     */
+    long addOrderIfAbsent(Order order);
+
+    /**
+     * Cancels a pending order.
+     *
+     * @param orderId the id of the order to cancel
+     * @return the cancelled order, or null if it is not pending
+     */
+    Order cancelOrder(long orderId);
+}
@@ -0,0 +1,228 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A TCP server that accepts orders from many point-of-sale terminals at once
+ * and adds them to a concurrent OrderManager, or a ShardedOrderManager.
+ *
+ * The protocol is line based. A client sends one order per line in the
+ * OrderLineParser format and gets one reply line back for each:
+ * "OK id" when the order was queued, or "ERROR message" when it broke a
+ * validation rule, was already queued or could not be written to the journal. A line resent with the same idempotency key as an
+ * earlier order gets "DUP id" with the earlier order's id and is not
+ * queued again. When the manager's queue is at its pending limit and stays
+ * full, the reply is "BUSY message" and the terminal should resend the
+ * line later with the same key. "CANCEL id" cancels an order that has not
+ * left the queue yet and gets "CANCELLED id", or "GONE id" if it is no
+ * longer pending. Sending "QUIT" closes the connection.
+ *
+ * Each connection is served by its own task. On Java 21 and later the tasks
+ * run on virtual threads, so thousands of mostly idle terminals cost very
+ * little memory; on older runtimes they fall back to pooled platform threads.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class OrderIntakeServer implements Closeable
+{
+    /** Command that ends a session */
+    private static final String QUIT = "QUIT";
+
+    /** Command that cancels a pending order, followed by its id */
+    private static final String CANCEL = "CANCEL ";
+
+    /** The manager that receives the orders */
+    private final OrderIntake manager;
+
+    /** Parser shared by every connection (it holds no per-call state) */
+    private final OrderLineParser parser;
+
+    /** Runs one task per connection */
+    private final ExecutorService connections;
+
+    /** The listening socket */
+    private final ServerSocket serverSocket;
+
+    /** Thread accepting new connections */
+    private final Thread acceptor;
+
+    /** Whether close has been called */
+    private volatile boolean closed;
+
+    /**
+     * Starts a server on the loopback interface.
+     *
+     * @param port the port to listen on, or 0 to pick a free one
+     * @param manager a concurrent manager that receives the orders
+     * @param parser the parser used to validate each order line
+     * @throws IOException if the port cannot be opened
+     */
+    public OrderIntakeServer(int port, OrderIntake manager, OrderLineParser parser) throws IOException
+    {
+        if (!manager.isConcurrent())
+        {
+            throw new IllegalArgumentException("The intake server needs a concurrent OrderManager");
+        }
+
+        this.manager = manager;
+        this.parser = parser;
+        connections = newTaskPerThreadExecutor("order-intake");
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+
+        acceptor = new Thread(this::acceptLoop, "order-intake-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the local port
+     */
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and waits briefly for open sessions to end.
+     *
+     * @throws IOException if the listening socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+        serverSocket.close();
+        connections.shutdownNow();
+        try
+        {
+            connections.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates an executor that runs every task on its own thread: a virtual
+     * thread when the runtime supports them, otherwise a pooled daemon thread.
+     *
+     * @param name the name given to platform threads
+     * @return the executor
+     */
+    static ExecutorService newTaskPerThreadExecutor(String name)
+    {
+        try
+        {
+            //Looked up reflectively so the code still builds and runs on Java 17
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return Executors.newCachedThreadPool(task ->
+            {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void acceptLoop()
+    {
+        while (!closed)
+        {
+            try
+            {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            }
+            catch (IOException e)
+            {
+                if (!closed)
+                {
+                    System.err.println("Order intake accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads order lines from one terminal until it quits or disconnects.
+     *
+     * @param socket the client connection
+     */
+    private void serve(Socket socket)
+    {
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = in.readLine()) != null && !line.equals(QUIT))
+            {
+                if (line.isBlank()) continue;
+
+                try
+                {
+                    if (line.startsWith(CANCEL))
+                    {
+                        long id = Long.parseLong(line.substring(CANCEL.length()).trim());
+                        out.write((manager.cancelOrder(id) != null ? "CANCELLED " : "GONE ") + id + "\n");
+                    }
+                    else
+                    {
+                        Order order = parser.parse(line);
+                        long id = manager.addOrderIfAbsent(order);
+                        out.write((id == order.getId() ? "OK " : "DUP ") + id + "\n");
+                    }
+                }
+                catch (OrderQueueFullException e)
+                {
+                    out.write("BUSY " + e.getMessage() + "\n");
+                }
+                catch (IllegalArgumentException | IllegalStateException e)
+                {
+                    out.write("ERROR " + e.getMessage() + "\n");
+                }
+                catch (UncheckedIOException e)
+                {
+                    //The order is queued but may not survive a restart; a retry with its key gets DUP
+                    out.write("ERROR " + e.getMessage() + "\n");
+                }
+
+                //Only flush once the client has no more lines waiting, so pipelined orders share a write
+                if (!in.ready())
+                {
+                    out.flush();
+                }
+            }
+            out.flush();
+        }
+        catch (IOException e)
+        {
+            //The terminal went away; nothing more to do for it
+        }
+    }
+}
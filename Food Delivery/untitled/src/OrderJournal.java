@@ -0,0 +1,507 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, memory-mapped journal of order events, so pending orders
+ * survive a restart.
+ *
+ * Each addOrder and deliverOrder is written as a record straight into a
+ * MappedByteBuffer: no per-order system call and no intermediate byte arrays.
+ * Dirty pages are forced to disk together (group commit) by a background
+ * thread every sync interval, so a crash can lose at most that window.
+ *
+ * The file starts with a header of a magic number and the format version.
+ * Version 2 ADD records carry the order's creation time. Journals written
+ * before the header existed count as version 1: they can still be replayed,
+ * their orders counting as placed when they are loaded, but new records are
+ * never appended to them.
+ *
+ * Record layout after the header, all big-endian:
+ * <pre>
+ * int length   - bytes after the header (type + payload), 0 marks the end
+ * int crc      - CRC32 of type + payload, to detect torn writes
+ * byte type    - ADD (payload: encoded Order) or DELIVER (payload: long order id)
+ * payload
+ * </pre>
+ * The file is mapped in fixed-size regions. A record never straddles two
+ * regions; a length of -1 (or too little room for a header) means the rest
+ * of the region is unused and reading continues at the next region.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class OrderJournal implements Closeable
+{
+    /** Record type for an order being added */
+    static final byte ADD = 1;
+
+    /** Record type for an order leaving the queue */
+    static final byte DELIVER = 2;
+
+    /** Current file format version */
+    static final int VERSION = 2;
+
+    /** Format of journals without a header; their ADD records lack the creation time */
+    static final int VERSION_1 = 1;
+
+    /** Identifies an order journal file */
+    private static final int MAGIC = 0x4F524A4C;
+
+    /** Size of the file header: magic and version */
+    private static final int FILE_HEADER_SIZE = 4 + 4;
+
+    /** Size of each mapped region of the file */
+    private static final int REGION_SIZE = 16 * 1024 * 1024;
+
+    /** Bytes before the type byte: length and CRC */
+    private static final int HEADER_SIZE = 8;
+
+    /** Length marker meaning the rest of the region is unused */
+    private static final int SKIP_TO_NEXT_REGION = -1;
+
+    /** Default time between group commits */
+    private static final long DEFAULT_SYNC_MILLIS = 50;
+
+    /** The journal file */
+    private final Path file;
+
+    /** Channel the regions are mapped from */
+    private final FileChannel channel;
+
+    /** Checksum reused for every record */
+    private final CRC32 crc = new CRC32();
+
+    /** Background thread that performs the group commits */
+    private final ScheduledExecutorService syncer;
+
+    /** Format version of the file */
+    private int version;
+
+    /** File offset of the first record, just after the header if there is one */
+    private long recordsStart;
+
+    /** The region currently being written */
+    private MappedByteBuffer region;
+
+    /** File offset of the current region */
+    private long regionStart;
+
+    /** Whether records have been written since the last sync */
+    private boolean dirty;
+
+    /**
+     * Opens (or creates) a journal with the default group commit interval.
+     *
+     * @param file the journal file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public OrderJournal(Path file) throws IOException
+    {
+        this(file, DEFAULT_SYNC_MILLIS);
+    }
+
+    /**
+     * Opens (or creates) a journal. New records are appended after the last
+     * complete record already in the file. A journal without a header and
+     * without any records is given the current header.
+     *
+     * @param file the journal file
+     * @param syncMillis milliseconds between group commits, or 0 to only sync on close
+     * @throws IOException if the file cannot be opened or mapped, or has an unknown version
+     */
+    public OrderJournal(Path file, long syncMillis) throws IOException
+    {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        readHeader();
+
+        //Find where the existing records end so new ones go after them
+        long end = scan(null);
+        if (end == 0)
+        {
+            //Empty, or an old journal with nothing worth keeping, so it can start over in the current format
+            channel.write(ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), 0);
+            version = VERSION;
+            recordsStart = FILE_HEADER_SIZE;
+            end = FILE_HEADER_SIZE;
+        }
+        regionStart = end - end % REGION_SIZE;
+        region = map(regionStart);
+        region.position((int) (end - regionStart));
+
+        if (syncMillis > 0)
+        {
+            syncer = Executors.newSingleThreadScheduledExecutor(task ->
+            {
+                Thread thread = new Thread(task, "order-journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncQuietly, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+        }
+        else
+        {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Returns the format version of the file. Only a journal in the current
+     * version accepts new records.
+     *
+     * @return the format version
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Records that an order was added to the queue, or changed while in it.
+     * Callers that need the record to match a queue change can make the change
+     * while holding this journal's lock, which every record method takes.
+     *
+     * @param order the order that was added
+     * @throws IOException if a new region cannot be mapped
+     * @throws IllegalStateException if the journal is in an older format
+     */
+    public synchronized void recordAdd(Order order) throws IOException
+    {
+        int start = reserve(1 + OrderCodec.encodedSize(order));
+        region.put(ADD);
+        OrderCodec.encode(order, region);
+        seal(start);
+    }
+
+    /**
+     * Records that an order left the queue.
+     *
+     * @param orderId the id of the order that was delivered
+     * @throws IOException if a new region cannot be mapped
+     * @throws IllegalStateException if the journal is in an older format
+     */
+    public synchronized void recordDeliver(long orderId) throws IOException
+    {
+        int start = reserve(1 + 8);
+        region.put(DELIVER);
+        region.putLong(orderId);
+        seal(start);
+    }
+
+    /**
+     * Replays the journal and returns the orders that are still pending,
+     * in the order they were added.
+     *
+     * @param catalog the catalog used to share topping instances
+     * @return the pending orders keyed by order id
+     * @throws IOException if the file cannot be read
+     */
+    public LinkedHashMap<Long, Order> replay(ToppingCatalog catalog) throws IOException
+    {
+        LinkedHashMap<Long, Order> pending = new LinkedHashMap<>();
+        replayInto(pending, new HashSet<>(), catalog);
+        return pending;
+    }
+
+    /**
+     * Replays the journal on top of orders recovered from earlier sources
+     * (a snapshot or older journals).
+     * <p>
+     * Records are applied in the order they were written: an add record queues
+     * the order, or replaces it if it is already pending, and a delivery drops
+     * it. OrderManager writes an order's add record before anyone can take the
+     * order, so a delivery always comes after the add it ends, and an order
+     * that was cancelled and then added again under the same id is pending
+     * again. An add record for an order a snapshot already holds just replaces it.
+     * </p>
+     *
+     * @param pending the pending orders so far, updated in place
+     * @param delivered ids whose latest record is a delivery, updated in place
+     * @param catalog the catalog used to share topping instances
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized void replayInto(LinkedHashMap<Long, Order> pending, Set<Long> delivered,
+                                        ToppingCatalog catalog) throws IOException
+    {
+        scan(new Replay(pending, delivered, catalog, version));
+    }
+
+    /**
+     * Forces every record written so far to disk. The lock is only held long
+     * enough to see what needs flushing, so intake is not blocked while the
+     * disk catches up.
+     *
+     * @throws IOException if the data cannot be written
+     */
+    public void sync() throws IOException
+    {
+        MappedByteBuffer toForce;
+        synchronized (this)
+        {
+            if (!dirty) return;
+            dirty = false;
+            toForce = region;
+        }
+
+        //Force the whole region by index so concurrent writes to its position and limit do not matter
+        toForce.force(0, REGION_SIZE);
+    }
+
+    /**
+     * Returns the path of the journal file.
+     *
+     * @return the file
+     */
+    public Path getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Syncs outstanding records and closes the file.
+     *
+     * @throws IOException if the final sync fails
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (syncer != null)
+        {
+            syncer.shutdown();
+        }
+        sync();
+        channel.close();
+    }
+
+    /**
+     * Makes room for a record and positions the region after its header.
+     *
+     * @param length the number of bytes after the header
+     * @return the position of the record within the region
+     */
+    private int reserve(int length) throws IOException
+    {
+        if (version != VERSION)
+        {
+            throw new IllegalStateException("Order journal " + file + " is in format version " + version
+                    + " and can only be replayed");
+        }
+        if (HEADER_SIZE + length > REGION_SIZE)
+        {
+            throw new IllegalArgumentException("Journal record too large: " + length + " bytes");
+        }
+
+        //Move on to a fresh region if the record will not fit in this one
+        if (region.remaining() < HEADER_SIZE + length)
+        {
+            if (region.remaining() >= 4)
+            {
+                region.putInt(region.position(), SKIP_TO_NEXT_REGION);
+            }
+            region.force();
+            regionStart += REGION_SIZE;
+            region = map(regionStart);
+        }
+
+        int start = region.position();
+        region.position(start + HEADER_SIZE);
+        return start;
+    }
+
+    /**
+     * Fills in the header of the record just written and marks the new end of the journal.
+     *
+     * @param start the position of the record within the region
+     */
+    private void seal(int start)
+    {
+        int end = region.position();
+
+        //Checksum the type and payload in place
+        crc.reset();
+        region.position(start + HEADER_SIZE);
+        region.limit(end);
+        crc.update(region);
+        region.limit(region.capacity());
+        region.position(end);
+
+        region.putInt(start + 4, (int) crc.getValue());
+        region.putInt(start, end - start - HEADER_SIZE);
+        if (region.remaining() >= 4)
+        {
+            region.putInt(end, 0);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Reads the file header, if there is one, to find the format version and
+     * where the records start.
+     *
+     * @throws IOException if the file cannot be read or has an unknown version
+     */
+    private void readHeader() throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+
+        //The magic number is larger than any record, so an old journal never starts with it
+        if (header.remaining() < FILE_HEADER_SIZE || header.getInt(0) != MAGIC)
+        {
+            version = VERSION_1;
+            recordsStart = 0;
+            return;
+        }
+
+        version = header.getInt(4);
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported order journal version " + version + ": " + file);
+        }
+        recordsStart = FILE_HEADER_SIZE;
+    }
+
+    /**
+     * Walks the records from the start of the file, stopping at the end marker
+     * or at the first record that is incomplete or fails its checksum.
+     *
+     * @param visitor receives each good record, or null to only find the end
+     * @return the file offset just after the last good record
+     */
+    private long scan(Replay visitor) throws IOException
+    {
+        long size = channel.size();
+        long start = 0;
+        int position = (int) recordsStart;
+
+        while (start < size)
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(REGION_SIZE, size - start));
+
+            while (true)
+            {
+                if (buffer.limit() - position < HEADER_SIZE)
+                {
+                    break;
+                }
+
+                int length = buffer.getInt(position);
+                if (length == SKIP_TO_NEXT_REGION)
+                {
+                    break;
+                }
+                if (length <= 0 || length > buffer.limit() - position - HEADER_SIZE
+                        || !checksumMatches(buffer, position, length))
+                {
+                    return start + position;
+                }
+
+                if (visitor != null)
+                {
+                    buffer.position(position + HEADER_SIZE);
+                    visitor.accept(buffer);
+                }
+                position += HEADER_SIZE + length;
+            }
+
+            start += REGION_SIZE;
+            position = 0;
+        }
+
+        return Math.min(start, size);
+    }
+
+    private boolean checksumMatches(MappedByteBuffer buffer, int position, int length)
+    {
+        crc.reset();
+        buffer.position(position + HEADER_SIZE);
+        buffer.limit(position + HEADER_SIZE + length);
+        crc.update(buffer);
+        buffer.limit(buffer.capacity());
+        return (int) crc.getValue() == buffer.getInt(position + 4);
+    }
+
+    private MappedByteBuffer map(long offset) throws IOException
+    {
+        return channel.map(FileChannel.MapMode.READ_WRITE, offset, REGION_SIZE);
+    }
+
+    private void syncQuietly()
+    {
+        try
+        {
+            sync();
+        }
+        catch (IOException e)
+        {
+            System.err.println("Order journal sync failed: " + e.getMessage());
+        }
+    }
+
+    /** Applies journal records to a map of pending orders */
+    private static final class Replay
+    {
+        private final LinkedHashMap<Long, Order> pending;
+
+        private final Set<Long> delivered;
+
+        private final ToppingCatalog catalog;
+
+        private final int version;
+
+        Replay(LinkedHashMap<Long, Order> pending, Set<Long> delivered, ToppingCatalog catalog, int version)
+        {
+            this.pending = pending;
+            this.delivered = delivered;
+            this.catalog = catalog;
+            this.version = version;
+        }
+
+        void accept(MappedByteBuffer record)
+        {
+            try
+            {
+                byte type = record.get();
+                if (type == ADD)
+                {
+                    Order order = version == VERSION
+                            ? OrderCodec.decode(record, catalog)
+                            : OrderCodec.decodeWithoutCreationTime(record, catalog);
+                    Order.reserveIdsThrough(order.getId());
+
+                    //A later add for a delivered id is the same order added again, e.g. after a cancel
+                    delivered.remove(order.getId());
+                    pending.put(order.getId(), order);
+                }
+                else if (type == DELIVER)
+                {
+                    long id = record.getLong();
+                    pending.remove(id);
+                    delivered.add(id);
+                }
+            }
+            catch (BufferUnderflowException | IndexOutOfBoundsException e)
+            {
+                //The checksum matched, so this can only be a record from a newer version
+                System.err.println("Skipping unreadable order journal record: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Parses one order written on a single line, for batch files and other
+ * non-interactive sources. The same rules as the interactive menu apply.
+ *
+ * The format is seven fields separated by '|':
+ * <pre>
+ * name|contact number|address|items|delivery|university|student ID
+ * </pre>
+ * Items are separated by ';'. Each item is "pizza" or "pasta", optionally
+ * followed by ':' and its toppings. Pizza toppings are separated by ','
+ * (none means a vegan pizza); a pasta takes one topping or "none".
+ * Delivery is "door", "pickup" or empty. The student fields may both be
+ * empty, or either may be "N/A", when there is no student discount. Empty
+ * items and toppings, such as one left by a trailing ';' or ',', are
+ * ignored. For example:
+ * <pre>
+ * Jane Doe|0123456789|12 High St|pizza:ham,cheese;pasta:none|door|Uni of X|S123
+ * </pre>
+ * An optional eighth field carries an idempotency key, so a terminal that
+ * resends a line after a timeout does not queue the order twice.
+ * Invalid lines are reported with an OrderValidationException naming the rule broken.
+ * Each line is priced from one snapshot of the menu, so a menu reloaded
+ * while a line is being parsed cannot mix old and new prices in one order.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class OrderLineParser
+{
+    /** Number of '|' separated fields on each line */
+    private static final int FIELD_COUNT = 7;
+
+    /** Index of the optional idempotency key field after the required ones */
+    private static final int KEY_FIELD = FIELD_COUNT;
+
+    /** Supplies the menu the toppings are looked up in and priced from */
+    private final Supplier<Menu> menus;
+
+    /** Constructs a parser that uses the standard menu */
+    public OrderLineParser()
+    {
+        this(Menu::getDefault);
+    }
+
+    /**
+     * Constructs a parser that looks toppings up in the given catalog, at the
+     * standard base prices.
+     *
+     * @param catalog the topping catalog
+     */
+    public OrderLineParser(ToppingCatalog catalog)
+    {
+        Menu menu = new Menu("Custom menu", catalog, FoodItem.BASE_PRICE_CENTS, FoodItem.BASE_PRICE_CENTS);
+        this.menus = () -> menu;
+    }
+
+    /**
+     * Constructs a parser that uses whichever menu is current when each line
+     * is parsed, such as a LiveMenu.
+     *
+     * @param menus supplies the current menu
+     */
+    public OrderLineParser(Supplier<Menu> menus)
+    {
+        this.menus = menus;
+    }
+
+    /**
+     * Parses and validates one order line.
+     * The line is scanned in place; the only Strings created are the ones the
+     * Customer and StudentInfo keep.
+     *
+     * @param line the line to parse
+     * @return the parsed order, with delivery method and student info applied
+     * @throws OrderValidationException if the line breaks any validation rule
+     */
+    public Order parse(String line)
+    {
+        //Find where each '|' separated field starts
+        int[] bounds = new int[KEY_FIELD + 2];
+        int fields = 0;
+        bounds[0] = -1;
+        for (int i = 0; i < line.length(); i++)
+        {
+            if (line.charAt(i) == '|')
+            {
+                if (++fields > KEY_FIELD)
+                {
+                    throw new OrderValidationException(ValidationError.WRONG_FIELD_COUNT, "more than " + (KEY_FIELD + 1));
+                }
+                bounds[fields] = i;
+            }
+        }
+        if (fields < FIELD_COUNT - 1)
+        {
+            throw new OrderValidationException(ValidationError.WRONG_FIELD_COUNT, (fields + 1) + " of " + FIELD_COUNT);
+        }
+        bounds[fields + 1] = line.length();
+
+        //Same customer rules as the interactive menu
+        String name = field(line, bounds, 0);
+        ValidationError error = OrderValidator.checkName(name);
+        if (error == null)
+        {
+            error = OrderValidator.checkContactNumber(line, bounds[1] + 1, bounds[2]);
+        }
+        if (error != null)
+        {
+            throw new OrderValidationException(error, null);
+        }
+        String number = field(line, bounds, 1);
+        String address = field(line, bounds, 2);
+        if ((error = OrderValidator.checkAddress(address)) != null)
+        {
+            throw new OrderValidationException(error, null);
+        }
+
+        Order order = new Order(parseItems(menus.get(), line, bounds[3] + 1, bounds[4]),
+                new Customer(name, number, address));
+
+        //Delivery method
+        int start = bounds[4] + 1;
+        int end = bounds[5];
+        if (OrderValidator.matchesWord(line, start, end, "door"))
+        {
+            order.setDeliveryMethod(DeliveryMethod.DOOR_DELIVERY);
+        }
+        else if (OrderValidator.matchesWord(line, start, end, "pickup"))
+        {
+            order.setDeliveryMethod(DeliveryMethod.PICKUP);
+        }
+        else if (!OrderValidator.isBlank(line, start, end))
+        {
+            throw new OrderValidationException(ValidationError.UNKNOWN_DELIVERY_METHOD, field(line, bounds, 4));
+        }
+
+        //Student discount, skipped if both fields are empty or either is N/A
+        String uni = field(line, bounds, 5);
+        String sid = field(line, bounds, 6);
+        if ((error = OrderValidator.checkStudentInfo(uni, sid)) != null)
+        {
+            throw new OrderValidationException(error, null);
+        }
+        if (OrderValidator.isGiven(uni) && OrderValidator.isGiven(sid))
+        {
+            order.setStudentInfo(new StudentInfo(uni, sid));
+        }
+
+        if (fields == KEY_FIELD && !OrderValidator.isBlank(line, bounds[KEY_FIELD] + 1, bounds[KEY_FIELD + 1]))
+        {
+            order.setIdempotencyKey(field(line, bounds, KEY_FIELD));
+        }
+
+        return order;
+    }
+
+    /**
+     * Parses the ';' separated food items between start and end.
+     *
+     * @param menu the menu snapshot to take toppings and prices from
+     * @param line the order line
+     * @param start index of the first character of the items field
+     * @param end index just after the items field
+     * @return the food items
+     */
+    private static List<FoodItem> parseItems(Menu menu, String line, int start, int end)
+    {
+        ToppingCatalog catalog = menu.getCatalog();
+        List<FoodItem> foodItems = new ArrayList<>();
+        if (OrderValidator.isBlank(line, start, end))
+        {
+            return foodItems;
+        }
+
+        while (start <= end)
+        {
+            int itemEnd = indexOf(line, ';', start, end);
+            int colon = indexOf(line, ':', start, itemEnd);
+
+            if (OrderValidator.isBlank(line, start, itemEnd))
+            {
+                //Nothing between two ';', e.g. after a trailing one
+                start = itemEnd + 1;
+                continue;
+            }
+
+            if (OrderValidator.matchesWord(line, start, colon, "pizza"))
+            {
+                List<Topping> pizzaToppings = new ArrayList<>();
+                if (colon < itemEnd && !OrderValidator.isBlank(line, colon + 1, itemEnd))
+                {
+                    int toppingStart = colon + 1;
+                    while (toppingStart <= itemEnd)
+                    {
+                        int toppingEnd = indexOf(line, ',', toppingStart, itemEnd);
+                        if (OrderValidator.isBlank(line, toppingStart, toppingEnd))
+                        {
+                            //Nothing between two ',', e.g. after a trailing one
+                            toppingStart = toppingEnd + 1;
+                            continue;
+                        }
+
+                        Topping topping = OrderValidator.findPizzaTopping(catalog, line, toppingStart, toppingEnd);
+                        if (topping == null)
+                        {
+                            throw new OrderValidationException(ValidationError.UNKNOWN_PIZZA_TOPPING,
+                                    line.substring(toppingStart, toppingEnd).trim());
+                        }
+                        pizzaToppings.add(topping);
+                        toppingStart = toppingEnd + 1;
+                    }
+                }
+                foodItems.add(menu.newPizza(pizzaToppings));
+            }
+            else if (OrderValidator.matchesWord(line, start, colon, "pasta"))
+            {
+                if (colon >= itemEnd || OrderValidator.isBlank(line, colon + 1, itemEnd)
+                        || OrderValidator.matchesWord(line, colon + 1, itemEnd, "none"))
+                {
+                    foodItems.add(menu.newPasta(catalog.noTopping()));
+                }
+                else
+                {
+                    Topping topping = OrderValidator.findPastaTopping(catalog, line, colon + 1, itemEnd);
+                    if (topping == null)
+                    {
+                        throw new OrderValidationException(ValidationError.UNKNOWN_PASTA_TOPPING,
+                                line.substring(colon + 1, itemEnd).trim());
+                    }
+                    foodItems.add(menu.newPasta(topping));
+                }
+            }
+            else
+            {
+                throw new OrderValidationException(ValidationError.UNKNOWN_FOOD_ITEM,
+                        line.substring(start, itemEnd).trim());
+            }
+
+            start = itemEnd + 1;
+        }
+
+        return foodItems;
+    }
+
+    /**
+     * Returns a field with surrounding spaces removed.
+     */
+    private static String field(String line, int[] bounds, int index)
+    {
+        int start = OrderValidator.trimStart(line, bounds[index] + 1, bounds[index + 1]);
+        return line.substring(start, OrderValidator.trimEnd(line, start, bounds[index + 1]));
+    }
+
+    /**
+     * Finds a character between start and end.
+     *
+     * @return its index, or end if it is not there
+     */
+    private static int indexOf(String line, char c, int start, int end)
+    {
+        int index = line.indexOf(c, start);
+        return index < 0 || index > end ? end : index;
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A test client that floods a local OrderIntakeServer with orders from many
+ * simulated terminals at once and reports the throughput it achieved.
+ *
+ * Usage: java OrderLoadGenerator PORT [TERMINALS] [ORDERS_PER_TERMINAL]
+ *
+ * Each terminal opens its own connection and sends its orders in small
+ * pipelined batches, reading back one reply per order. Every order carries
+ * its own idempotency key, so the server's duplicate check is exercised too.
+ * Orders the server is too busy to take are resent after a short pause,
+ * with the same key.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class OrderLoadGenerator
+{
+    /** Orders sent before waiting for their replies */
+    private static final int PIPELINE_DEPTH = 16;
+
+    /** Pause before resending orders the server was too busy to take */
+    private static final long BUSY_PAUSE_MILLIS = 20;
+
+    /** A few valid order lines to cycle through */
+    private static final String[] SAMPLE_ORDERS = {
+            "|12 High St|pizza:ham,cheese;pasta:none|door||",
+            "|3 Mill Lane|pizza:tomato,mushrooms|pickup||",
+            "|8 Park Rd|pasta:bolognese;pasta:primavera|door|Uni of X|S42",
+            "|21 Quay St|pizza:seafood,pineapple,cheese|pickup||",
+    };
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: java OrderLoadGenerator PORT [TERMINALS] [ORDERS_PER_TERMINAL]");
+            System.exit(2);
+        }
+
+        int port = Integer.parseInt(args[0]);
+        int terminals = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int ordersPerTerminal = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        LongAdder accepted = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        ExecutorService executor = OrderIntakeServer.newTaskPerThreadExecutor("order-load-terminal");
+        List<Future<?>> results = new ArrayList<>(terminals);
+
+        long start = System.nanoTime();
+        for (int t = 0; t < terminals; t++)
+        {
+            int terminal = t;
+            results.add(executor.submit(() ->
+            {
+                runTerminal(port, terminal, ordersPerTerminal, accepted, rejected);
+                return null;
+            }));
+        }
+        for (Future<?> result : results)
+        {
+            result.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        double seconds = elapsed / 1e9;
+        System.out.printf("%d terminals sent %d orders in %.2f s: %d accepted, %d rejected, %.0f orders/s%n",
+                terminals, (long) terminals * ordersPerTerminal, seconds, accepted.sum(), rejected.sum(),
+                (accepted.sum() + rejected.sum()) / seconds);
+    }
+
+    /**
+     * Sends one terminal's orders over its own connection.
+     */
+    private static void runTerminal(int port, int terminal, int orders, LongAdder accepted, LongAdder rejected)
+            throws IOException, InterruptedException
+    {
+        String contact = String.format("%010d", 1000000000L + terminal);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)))
+        {
+            int sent = 0;
+            List<Integer> batch = new ArrayList<Integer>(PIPELINE_DEPTH);
+            List<Integer> busy = new ArrayList<Integer>(PIPELINE_DEPTH);
+            while (sent < orders)
+            {
+                batch.clear();
+                for (int i = sent; i < Math.min(sent + PIPELINE_DEPTH, orders); i++)
+                {
+                    batch.add(i);
+                }
+
+                while (!batch.isEmpty())
+                {
+                    for (int n : batch)
+                    {
+                        String sample = SAMPLE_ORDERS[n % SAMPLE_ORDERS.length];
+                        out.write("Terminal " + terminal + "|" + contact + sample + "|T" + terminal + "-" + n + "\n");
+                    }
+                    out.flush();
+
+                    busy.clear();
+                    for (int n : batch)
+                    {
+                        String reply = in.readLine();
+                        if (reply == null)
+                        {
+                            throw new IOException("Server closed the connection");
+                        }
+                        if (reply.startsWith("BUSY "))
+                        {
+                            busy.add(n);
+                            continue;
+                        }
+                        (reply.startsWith("OK ") || reply.startsWith("DUP ") ? accepted : rejected).increment();
+                    }
+
+                    //Resend only what the server turned away, after giving it a moment
+                    batch.clear();
+                    batch.addAll(busy);
+                    if (!batch.isEmpty())
+                    {
+                        Thread.sleep(BUSY_PAUSE_MILLIS);
+                    }
+                }
+                sent += Math.min(PIPELINE_DEPTH, orders - sent);
+            }
+
+            out.write("QUIT\n");
+            out.flush();
+        }
+    }
+}
@@ -1,36 +1,299 @@
-import java.util.LinkedList;
-import java.util.Queue;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Manages the queue of orders for a takeaway system.
  *
  * Provides functionality to add orders, deliver the next order in FIFO order,
- * and display all currently pending orders.
+ * and display all currently pending orders, a page at a time if needed.
+ * Pending orders are indexed by id, so any of them can be cancelled or
+ * changed in constant time however long the queue is (see OrderQueue).
+ *
+ * In concurrent mode several intake threads can add orders while
+ * dispatchers take them. A DispatchPolicy can replace FIFO order, for
+ * example to send urgent door deliveries ahead of pickups that are not due yet.
+ *
+ * An OrderJournal can be attached so every order added or delivered is
+ * recorded on disk and the queue can be rebuilt after a restart. A
+ * ColumnarOrderStore can be attached to keep delivered orders for reporting,
+ * and OrderMetrics to count orders and time how long they wait. With an
+ * IdempotencyIndex attached, addOrderIfAbsent drops resubmitted orders,
+ * and with a DeliveryBatcher attached door deliveries leaving the queue
+ * are grouped into driver runs. A pending limit keeps the queue from
+ * growing without bound when the kitchen falls behind.
  *
  * Author: Reyan
  * Version: 1.0
  */
-public class OrderManager
+public class OrderManager implements OrderIntake
 {
-    /** A queue to store orders in FIFO (first-in, first-out) order */
-    private Queue<Order> orderQueue;
+    /** A queue to store orders in FIFO (first-in, first-out) order, indexed by order id */
+    private final OrderQueue orderQueue;
+
+    /** Whether the manager is shared between threads */
+    private final boolean concurrent;
+
+    /** Journal that records queue changes, or null if orders are kept in memory only */
+    private volatile OrderJournal journal;
+
+    /** Store that keeps delivered orders for reporting, or null if they are not kept */
+    private volatile ColumnarOrderStore deliveredOrders;
+
+    /** Metrics updated as orders come and go, or null if not measured */
+    private volatile OrderMetrics metrics;
+
+    /** Recently used idempotency keys, or null if submissions are not deduplicated */
+    private volatile IdempotencyIndex idempotencyKeys;
+
+    /** Groups delivered door deliveries into driver runs, or null if each goes alone */
+    private volatile DeliveryBatcher deliveryBatcher;
+
+    /** Free places in the queue when it has a pending limit, or null if it is unbounded */
+    private volatile Semaphore pendingSlots;
+
+    /** How long addOrder waits for a free place before giving up, in nanoseconds */
+    private volatile long pendingWaitNanos;
 
     /** Constructs an OrderManager and initializes the order queue */
     public OrderManager()
     {
-        //Initialize the queue using LinkedList implementation
-        orderQueue = new LinkedList<Order>();
+        this(false);
+    }
+
+    /**
+     * Constructs an OrderManager, optionally safe for use from many threads.
+     *
+     * @param concurrent true if several threads will add and take orders
+     */
+    public OrderManager(boolean concurrent)
+    {
+        //Threads share a lock-free queue; on its own a manager uses the plain linked queue
+        this.orderQueue = concurrent ? new ConcurrentOrderQueue() : new IndexedOrderQueue();
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * Constructs a concurrent OrderManager that dispatches orders in the order
+     * chosen by the given policy instead of first-in, first-out.
+     *
+     * @param policy decides which pending order is delivered next
+     */
+    public OrderManager(DispatchPolicy policy)
+    {
+        orderQueue = new DispatchQueue(policy);
+        concurrent = true;
+    }
+
+    /**
+     * Returns whether this manager can be shared between threads.
+     *
+     * @return true if the manager was created in concurrent mode
+     */
+    @Override
+    public boolean isConcurrent()
+    {
+        return concurrent;
+    }
+
+    /**
+     * Rebuilds the queue from a journal and then records all further changes in it.
+     * Orders already in the queue are not written to the journal.
+     *
+     * @param journal the journal to replay and attach
+     * @param catalog the catalog used to share topping instances
+     * @return the number of pending orders restored
+     * @throws IOException if the journal cannot be read
+     */
+    public int recoverFrom(OrderJournal journal, ToppingCatalog catalog) throws IOException
+    {
+        LinkedHashMap<Long, Order> pending = journal.replay(catalog);
+        restore(pending.values(), journal);
+        return pending.size();
+    }
+
+    /**
+     * Puts recovered orders back in the queue without journaling them again,
+     * then records all further changes in the given journal.
+     *
+     * @param pending the recovered orders in queue order
+     * @param journal the journal to attach, or null
+     */
+    public void restore(Collection<Order> pending, OrderJournal journal)
+    {
+        OrderMetrics currentMetrics = metrics;
+        if (currentMetrics != null)
+        {
+            long now = System.nanoTime();
+            for (Order order : pending)
+            {
+                order.markEnqueued(now);
+            }
+            currentMetrics.ordersRestored(pending.size());
+        }
+        orderQueue.addAll(pending);
+        this.journal = journal;
+    }
+
+    /**
+     * Starts recording changes in a new journal and returns a copy of the
+     * pending orders, which together with the new journal describe the queue.
+     * <p>
+     * The journal is switched and the queue copied while holding the old
+     * journal's lock, so no order can be added and recorded in the old journal
+     * after the copy is taken. Deliveries look the journal up after touching
+     * the queue, so anything the copy misses is recorded in the new journal;
+     * at worst an order appears in both, which replay tolerates.
+     * </p>
+     *
+     * @param next the journal to record changes in from now on
+     * @return the pending orders in queue order
+     */
+    public List<Order> rotateJournal(OrderJournal next)
+    {
+        OrderJournal previous = journal;
+        if (previous == null)
+        {
+            journal = next;
+            return new ArrayList<Order>(orderQueue);
+        }
+
+        synchronized (previous)
+        {
+            journal = next;
+            return new ArrayList<Order>(orderQueue);
+        }
     }
 
     /**
-     * Adds a new order to the end of the queue.
+     * Adds a new order to the end of the queue. With a pending limit set,
+     * waits for a place in the queue first.
      *
      * @param order the Order object to add
+     * @throws OrderQueueFullException if the queue stayed full for the whole wait
+     * @throws IllegalStateException if an order with the same id is already pending
+     * @throws UncheckedIOException if the journal could not record the order,
+     *         which is in the queue by then
      */
     public void addOrder(Order order)
     {
-        //Add the order to the queue
-        orderQueue.add(order);
+        Semaphore slots = pendingSlots;
+        if (slots != null)
+        {
+            awaitSlot(slots, order);
+        }
+
+        //Time stamp before queueing so a dispatcher can never take the order unstamped
+        OrderMetrics currentMetrics = metrics;
+        if (currentMetrics != null)
+        {
+            order.markEnqueued(System.nanoTime());
+        }
+
+        //Add the order to the queue and the journal together
+        try
+        {
+            journalAdd(() ->
+            {
+                orderQueue.add(order);
+                return order;
+            });
+        }
+        catch (IllegalStateException e)
+        {
+            //Already pending; give back the place it was waiting for
+            if (slots != null)
+            {
+                slots.release();
+            }
+            throw e;
+        }
+        if (currentMetrics != null)
+        {
+            currentMetrics.orderAdded();
+        }
+    }
+
+    /**
+     * Waits for a free place in a queue with a pending limit.
+     *
+     * @param slots the free places
+     * @param order the order waiting to be added
+     */
+    private void awaitSlot(Semaphore slots, Order order)
+    {
+        boolean acquired;
+        try
+        {
+            acquired = slots.tryAcquire(pendingWaitNanos, TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired)
+        {
+            throw new OrderQueueFullException(order.getId());
+        }
+    }
+
+    /**
+     * Adds an order unless an order with the same idempotency key was added
+     * recently, so a submission retried by a terminal is only queued once.
+     * Orders without a key, or added while no IdempotencyIndex is attached,
+     * are always added. Keys are only kept in memory, so a retry that arrives
+     * after a restart is queued again.
+     *
+     * @param order the Order object to add
+     * @return the id of this order if it was added, or the id of the earlier
+     *         order with the same key if it was a duplicate
+     * @throws IllegalStateException if the order was not queued; its key can be used again
+     * @throws UncheckedIOException if the journal could not record the order,
+     *         which is queued and keeps its key
+     */
+    @Override
+    public long addOrderIfAbsent(Order order)
+    {
+        String key = order.getIdempotencyKey();
+        IdempotencyIndex index = idempotencyKeys;
+        if (key != null && index != null)
+        {
+            long existing = index.claim(key, order.getId());
+            if (existing != IdempotencyIndex.NEW_KEY)
+            {
+                OrderMetrics currentMetrics = metrics;
+                if (currentMetrics != null)
+                {
+                    currentMetrics.duplicateRejected();
+                }
+                return existing;
+            }
+
+            try
+            {
+                addOrder(order);
+            }
+            catch (IllegalStateException e)
+            {
+                //The queue was full or already held the order, so a retry must be allowed through
+                index.release(key, order.getId());
+                throw e;
+            }
+            return order.getId();
+        }
+
+        addOrder(order);
+        return order.getId();
     }
 
     /**
@@ -41,7 +304,374 @@ public class OrderManager
     public Order deliverOrder()
     {
         //Remove and return the order at the front of the queue
-        return orderQueue.poll();
+        return removed(orderQueue.poll());
+    }
+
+    /**
+     * Delivers the next order with the delivery details the customer chose
+     * at the door, so they are in place before the order is recorded.
+     *
+     * @param method the delivery method, or null to leave it unset
+     * @param studentInfo the student details, or null for no discount
+     * @return the delivered Order, or null if the queue is empty
+     */
+    public Order deliverOrder(DeliveryMethod method, StudentInfo studentInfo)
+    {
+        Order order = orderQueue.poll();
+        if (order != null)
+        {
+            if (method != null)
+            {
+                order.setDeliveryMethod(method);
+            }
+            if (studentInfo != null)
+            {
+                order.setStudentInfo(studentInfo);
+            }
+        }
+        return removed(order);
+    }
+
+    /**
+     * Removes and returns the next order, waiting up to the given time for one to arrive.
+     * In non-concurrent mode there is nobody else to add orders, so this does not wait.
+     *
+     * @param timeout how long to wait before giving up
+     * @param unit the unit of the timeout argument
+     * @return the next Order, or null if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Order takeOrder(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        if (concurrent)
+        {
+            return removed(orderQueue.poll(timeout, unit));
+        }
+        return removed(orderQueue.poll());
+    }
+
+    /**
+     * Removes up to the given number of orders in one batch, for dispatchers
+     * that hand several orders to drivers at once.
+     *
+     * @param maxOrders the maximum number of orders to remove
+     * @return the removed orders in queue order, possibly empty
+     */
+    public List<Order> drainTo(int maxOrders)
+    {
+        List<Order> batch = new ArrayList<Order>(Math.min(maxOrders, 64));
+        orderQueue.drainTo(batch, maxOrders);
+
+        for (Order order : batch)
+        {
+            removed(order);
+        }
+        return batch;
+    }
+
+    /**
+     * Records in the journal that an order has left the queue, adds it to
+     * the delivered order store and the metrics, and hands door deliveries
+     * to the delivery batcher.
+     *
+     * @param order the order that was removed, or null
+     * @return the same order
+     */
+    private Order removed(Order order)
+    {
+        Semaphore slots = pendingSlots;
+        if (order != null && slots != null)
+        {
+            slots.release();
+        }
+
+        OrderMetrics currentMetrics = metrics;
+        ColumnarOrderStore store = deliveredOrders;
+        DeliveryBatcher batcher = deliveryBatcher;
+        if (order != null && (currentMetrics != null || store != null || batcher != null))
+        {
+            //One clock read serves them all; it is a large part of the cost here
+            long nowMillis = System.currentTimeMillis();
+            if (currentMetrics != null)
+            {
+                currentMetrics.orderRemoved(order, nowMillis);
+            }
+            if (store != null)
+            {
+                store.append(order, nowMillis);
+            }
+            if (batcher != null && order.getDeliveryMethod() == DeliveryMethod.DOOR_DELIVERY)
+            {
+                batcher.add(order, nowMillis);
+            }
+        }
+
+        if (order != null)
+        {
+            journalDeliver(order);
+        }
+        return order;
+    }
+
+    /**
+     * Cancels a pending order, wherever it is in the queue. The order is not
+     * counted as delivered, kept for reports or handed to the delivery batcher.
+     *
+     * @param orderId the id of the order to cancel
+     * @return the cancelled order, or null if it is not pending (already
+     *         delivered, already cancelled or never added)
+     */
+    @Override
+    public Order cancelOrder(long orderId)
+    {
+        Order order = orderQueue.remove(orderId);
+        if (order == null)
+        {
+            return null;
+        }
+
+        Semaphore slots = pendingSlots;
+        if (slots != null)
+        {
+            slots.release();
+        }
+        OrderMetrics currentMetrics = metrics;
+        if (currentMetrics != null)
+        {
+            currentMetrics.orderCancelled();
+        }
+
+        //Replay drops a cancelled order the same way as a delivered one
+        journalDeliver(order);
+        return order;
+    }
+
+    /**
+     * Replaces the food items of a pending order. The order keeps its id,
+     * its customer, its delivery details and its place in the queue.
+     *
+     * @param orderId the id of the order to change
+     * @param foodItems the new food items
+     * @return the changed order, or null if the order is no longer pending
+     */
+    public Order changeFoodItems(long orderId, List<FoodItem> foodItems)
+    {
+        //A newer add record for the same id replaces the order on replay
+        return journalAdd(() -> orderQueue.update(orderId, order -> order.withFoodItems(foodItems)));
+    }
+
+    /**
+     * Changes the delivery method of a pending order.
+     *
+     * @param orderId the id of the order to change
+     * @param method the new delivery method
+     * @return the changed order, or null if the order is no longer pending
+     */
+    public Order changeDeliveryMethod(long orderId, DeliveryMethod method)
+    {
+        return journalAdd(() -> orderQueue.update(orderId, order ->
+        {
+            order.setDeliveryMethod(method);
+            return order;
+        }));
+    }
+
+    /**
+     * Returns a pending order.
+     *
+     * @param orderId the order id
+     * @return the order, or null if it is not pending
+     */
+    public Order getPendingOrder(long orderId)
+    {
+        return orderQueue.get(orderId);
+    }
+
+    /**
+     * Makes a change to the queue and records the order it leaves behind, new
+     * or changed, in the journal if there is one. The change and the record are
+     * made under the journal's lock, so nobody can take or cancel the order and
+     * record that before its add record is written, and replay can simply
+     * apply records in the order they appear.
+     *
+     * @param change changes the queue and returns the order as it now stands, or null if nothing changed
+     * @return the order returned by the change
+     */
+    private Order journalAdd(Supplier<Order> change)
+    {
+        while (true)
+        {
+            OrderJournal current = journal;
+            if (current == null)
+            {
+                return change.get();
+            }
+
+            synchronized (current)
+            {
+                //Rotated while waiting for the lock; the old journal is no longer replayed
+                if (journal != current)
+                {
+                    continue;
+                }
+
+                Order order = change.get();
+                if (order != null)
+                {
+                    try
+                    {
+                        current.recordAdd(order);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new UncheckedIOException("Could not journal order " + order.getId(), e);
+                    }
+                }
+                return order;
+            }
+        }
+    }
+
+    /**
+     * Records in the journal, if there is one, that an order left the queue.
+     *
+     * @param order the order that left
+     */
+    private void journalDeliver(Order order)
+    {
+        OrderJournal current = journal;
+        if (current != null)
+        {
+            try
+            {
+                current.recordDeliver(order.getId());
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("Could not journal delivery of order " + order.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Attaches a store that every delivered order is appended to.
+     *
+     * @param store the store, or null to stop keeping delivered orders
+     */
+    public void setDeliveredOrders(ColumnarOrderStore store)
+    {
+        deliveredOrders = store;
+    }
+
+    /**
+     * Returns the store delivered orders are appended to.
+     *
+     * @return the store, or null if delivered orders are not kept
+     */
+    public ColumnarOrderStore getDeliveredOrders()
+    {
+        return deliveredOrders;
+    }
+
+    /**
+     * Attaches metrics that are updated as orders are added and removed.
+     * Orders already in the queue are not counted in the queue depth.
+     *
+     * @param metrics the metrics, or null to stop measuring
+     */
+    public void setMetrics(OrderMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the metrics updated by this manager.
+     *
+     * @return the metrics, or null if not measured
+     */
+    public OrderMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Attaches an index of idempotency keys used by addOrderIfAbsent.
+     *
+     * @param index the index, or null to stop deduplicating submissions
+     */
+    public void setIdempotencyIndex(IdempotencyIndex index)
+    {
+        idempotencyKeys = index;
+    }
+
+    /**
+     * Attaches a batcher that every door delivery leaving the queue is handed to.
+     *
+     * @param batcher the batcher, or null to send each door delivery on its own
+     */
+    public void setDeliveryBatcher(DeliveryBatcher batcher)
+    {
+        deliveryBatcher = batcher;
+    }
+
+    /**
+     * Returns the attached delivery batcher.
+     *
+     * @return the batcher, or null if none is attached
+     */
+    public DeliveryBatcher getDeliveryBatcher()
+    {
+        return deliveryBatcher;
+    }
+
+    /**
+     * Limits how many orders can wait in the queue. Once it is full, addOrder
+     * waits for an order to leave, and fails if none does within the given
+     * time, which pushes back on intake instead of letting the queue grow.
+     * Only a concurrent manager can have a limit, since nothing else would
+     * take orders off the queue while addOrder waits. Set the limit after
+     * any pending orders have been restored.
+     *
+     * @param maxPending the most orders waiting at once
+     * @param maxWait how long addOrder waits for a place
+     * @param unit the unit of maxWait
+     * @throws IllegalStateException if the manager is not concurrent
+     */
+    public void setPendingLimit(int maxPending, long maxWait, TimeUnit unit)
+    {
+        if (!isConcurrent())
+        {
+            throw new IllegalStateException("Only a concurrent order manager can limit its queue");
+        }
+        if (maxPending < 1)
+        {
+            throw new IllegalArgumentException("The pending limit must be at least 1");
+        }
+
+        //Orders already waiting use up places; the count may start negative until they leave
+        pendingWaitNanos = unit.toNanos(maxWait);
+        pendingSlots = new Semaphore(maxPending - getPendingCount());
+    }
+
+    /**
+     * Returns the number of orders waiting to be delivered.
+     *
+     * @return the current queue size
+     */
+    public int getPendingCount()
+    {
+        return orderQueue.size();
+    }
+
+    /**
+     * Returns a copy of the orders waiting to be delivered, for example to
+     * reprice them all as an OrderBatch.
+     *
+     * @return the pending orders in queue order
+     */
+    public List<Order> getPendingOrders()
+    {
+        return new ArrayList<Order>(orderQueue);
     }
 
     /**
@@ -50,19 +680,58 @@ public class OrderManager
      */
     public void viewOrders()
     {
-        //If no orders are in the queue notify the user
-        if (orderQueue.isEmpty())
-        {
-            System.out.println("No orders to display.");
-        }
-        else
+        //Buffer the whole listing and flush once instead of on every line
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024));
+        viewOrders(out, null, null, 0, Integer.MAX_VALUE);
+        out.flush();
+    }
+
+    /**
+     * Writes one page of the pending orders that match the filters.
+     * Orders are streamed straight into the output without building a String
+     * for each one, and the output is not flushed. Every page walks the whole
+     * queue, since the orders after it are still counted for the total.
+     *
+     * @param out where to write the orders
+     * @param mealType only show orders of this meal type, or null for all
+     * @param method only show orders with this delivery method, or null for all
+     * @param offset the number of matching orders to skip
+     * @param limit the most orders to write
+     * @return the total number of matching orders, for working out the page count
+     */
+    public int viewOrders(Appendable out, MealType mealType, DeliveryMethod method, int offset, int limit)
+    {
+        String newLine = System.lineSeparator();
+        int matched = 0;
+
+        try
         {
-            //Print each order in the queue with a separator
             for (Order order : orderQueue)
             {
-                System.out.println("--------");
-                System.out.println(order.toString());
+                if (mealType != null && order.calculateMealType() != mealType) continue;
+                if (method != null && order.getDeliveryMethod() != method) continue;
+
+                //Only orders on the requested page are written, the rest are just counted
+                if (matched >= offset && matched - offset < limit)
+                {
+                    out.append("--------").append(newLine);
+                    order.appendTo(out);
+                    out.append(newLine);
+                }
+                matched++;
             }
+
+            //If no orders match notify the user
+            if (matched == 0)
+            {
+                out.append("No orders to display.").append(newLine);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not write orders", e);
         }
+
+        return matched;
     }
 }
@@ -0,0 +1,271 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts orders going through an OrderManager and how long they wait.
+ *
+ * Counters are LongAdders, which spread contended increments over
+ * per-thread cells, and latencies go into striped LatencyHistograms, so
+ * intake and dispatch threads recording at full rate do not serialise on
+ * the metrics. The numbers can be read over JMX or printed periodically as
+ * one line of text.
+ *
+ * Two latencies are tracked: the wait from an order joining the queue to
+ * leaving it, and the delivery latency from the order being placed to
+ * being delivered.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class OrderMetrics implements OrderMetricsMXBean
+{
+    /** Orders added to the queue */
+    private final LongAdder added = new LongAdder();
+
+    /** Orders taken off the queue */
+    private final LongAdder delivered = new LongAdder();
+
+    /** Orders cancelled while still in the queue */
+    private final LongAdder cancelled = new LongAdder();
+
+    /** Resubmitted orders that were not queued again */
+    private final LongAdder duplicates = new LongAdder();
+
+    /** Orders put back in the queue after being recovered from disk */
+    private final LongAdder restored = new LongAdder();
+
+    /** Time from queueing to leaving the queue, in microseconds */
+    private final LatencyHistogram waitMicros = new LatencyHistogram();
+
+    /** Time from being placed to being delivered, in milliseconds */
+    private final LatencyHistogram deliveryLatencyMillis = new LatencyHistogram();
+
+    /** Runs the periodic dump, or null if none was started */
+    private ScheduledExecutorService dumper;
+
+    /**
+     * Records that an order was added to the queue.
+     */
+    public void orderAdded()
+    {
+        added.increment();
+    }
+
+    /**
+     * Records that a pending order was cancelled and taken off the queue.
+     */
+    public void orderCancelled()
+    {
+        cancelled.increment();
+    }
+
+    /**
+     * Records that a resubmitted order was recognised and not queued again.
+     */
+    public void duplicateRejected()
+    {
+        duplicates.increment();
+    }
+
+    /**
+     * Records that orders recovered from disk were put back in the queue.
+     *
+     * @param count the number of orders restored
+     */
+    public void ordersRestored(int count)
+    {
+        restored.add(count);
+    }
+
+    /**
+     * Records that an order left the queue.
+     *
+     * @param order the order that was removed
+     * @param nowMillis the current wall-clock time, in milliseconds since the epoch
+     */
+    public void orderRemoved(Order order, long nowMillis)
+    {
+        delivered.increment();
+
+        //Orders queued before the metrics were attached have no queueing time
+        long enqueued = order.getEnqueuedAtNanos();
+        if (enqueued != 0)
+        {
+            waitMicros.record((System.nanoTime() - enqueued) / 1000);
+        }
+        deliveryLatencyMillis.record(nowMillis - order.getCreatedAtMillis());
+    }
+
+    @Override
+    public long getAddedCount()
+    {
+        return added.sum();
+    }
+
+    @Override
+    public long getDeliveredCount()
+    {
+        return delivered.sum();
+    }
+
+    @Override
+    public long getCancelledCount()
+    {
+        return cancelled.sum();
+    }
+
+    @Override
+    public long getDuplicateCount()
+    {
+        return duplicates.sum();
+    }
+
+    @Override
+    public long getQueueDepth()
+    {
+        //Read removals first so a racing add can only make the depth look larger, never negative
+        long out = delivered.sum() + cancelled.sum();
+        return added.sum() + restored.sum() - out;
+    }
+
+    @Override
+    public long getWaitP50Micros()
+    {
+        return waitMicros.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getWaitP99Micros()
+    {
+        return waitMicros.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getWaitMaxMicros()
+    {
+        return waitMicros.getMax();
+    }
+
+    @Override
+    public long getDeliveryLatencyP50Millis()
+    {
+        return deliveryLatencyMillis.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getDeliveryLatencyP99Millis()
+    {
+        return deliveryLatencyMillis.getValueAtPercentile(99);
+    }
+
+    /**
+     * Returns the histogram of queue wait times.
+     *
+     * @return wait times in microseconds
+     */
+    public LatencyHistogram getWaitHistogram()
+    {
+        return waitMicros;
+    }
+
+    /**
+     * Returns the histogram of delivery latencies.
+     *
+     * @return delivery latencies in milliseconds
+     */
+    public LatencyHistogram getDeliveryLatencyHistogram()
+    {
+        return deliveryLatencyMillis;
+    }
+
+    /**
+     * Publishes these metrics on the platform MBean server.
+     *
+     * @param name the name to register under, e.g. "orders"
+     * @throws IllegalStateException if the metrics cannot be registered
+     */
+    public void register(String name)
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("fooddelivery:type=OrderMetrics,name=" + ObjectName.quote(name)));
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException("Could not register order metrics " + name, e);
+        }
+    }
+
+    /**
+     * Starts printing a line of metrics at a fixed rate on a background thread.
+     * Calling this again while a dump is running does nothing.
+     *
+     * @param out where to print
+     * @param period time between lines
+     * @param unit the unit of the period
+     */
+    public synchronized void dumpEvery(PrintStream out, long period, TimeUnit unit)
+    {
+        if (dumper != null)
+        {
+            return;
+        }
+
+        dumper = Executors.newSingleThreadScheduledExecutor(task ->
+        {
+            Thread thread = new Thread(task, "order-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodMillis = Math.max(1, unit.toMillis(period));
+        long[] lastDelivered = {getDeliveredCount()};
+        dumper.scheduleAtFixedRate(() ->
+        {
+            //Throughput is worked out over the last period only
+            long now = getDeliveredCount();
+            long rate = (now - lastDelivered[0]) * 1000 / periodMillis;
+            lastDelivered[0] = now;
+            out.println(this + " rate=" + rate + "/s");
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops the periodic dump, if one was started.
+     */
+    public synchronized void stopDump()
+    {
+        if (dumper != null)
+        {
+            dumper.shutdown();
+            dumper = null;
+        }
+    }
+
+    /**
+     * Returns the metrics as one line of text.
+     *
+     * @return the current metrics
+     */
+    @Override
+    public String toString()
+    {
+        return "orders added=" + getAddedCount()
+                + " delivered=" + getDeliveredCount()
+                + " cancelled=" + getCancelledCount()
+                + " duplicates=" + getDuplicateCount()
+                + " depth=" + getQueueDepth()
+                + " wait(us) p50=" + getWaitP50Micros()
+                + " p99=" + getWaitP99Micros()
+                + " p99.9=" + waitMicros.getValueAtPercentile(99.9)
+                + " max=" + getWaitMaxMicros()
+                + " latency(ms) p50=" + getDeliveryLatencyP50Millis()
+                + " p99=" + getDeliveryLatencyP99Millis();
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * The order queue metrics published over JMX, for jconsole, VisualVM or
+ * any other JMX client.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public interface OrderMetricsMXBean
+{
+    /**
+     * Returns the number of orders added to the queue.
+     *
+     * @return the added count
+     */
+    long getAddedCount();
+
+    /**
+     * Returns the number of orders taken off the queue.
+     *
+     * @return the delivered count
+     */
+    long getDeliveredCount();
+
+    /**
+     * Returns the number of orders cancelled before they left the queue.
+     *
+     * @return the cancelled count
+     */
+    long getCancelledCount();
+
+    /**
+     * Returns the number of resubmitted orders that were not queued again.
+     *
+     * @return the duplicate count
+     */
+    long getDuplicateCount();
+
+    /**
+     * Returns the number of orders waiting in the queue.
+     *
+     * @return the queue depth
+     */
+    long getQueueDepth();
+
+    /**
+     * Returns the median time orders waited in the queue.
+     *
+     * @return the 50th percentile wait in microseconds
+     */
+    long getWaitP50Micros();
+
+    /**
+     * Returns the time 99% of orders were taken off the queue within.
+     *
+     * @return the 99th percentile wait in microseconds
+     */
+    long getWaitP99Micros();
+
+    /**
+     * Returns the longest time an order waited in the queue.
+     *
+     * @return the maximum wait in microseconds
+     */
+    long getWaitMaxMicros();
+
+    /**
+     * Returns the median time from an order being placed to being delivered.
+     *
+     * @return the 50th percentile delivery latency in milliseconds
+     */
+    long getDeliveryLatencyP50Millis();
+
+    /**
+     * Returns the time 99% of orders were delivered within, from being placed.
+     *
+     * @return the 99th percentile delivery latency in milliseconds
+     */
+    long getDeliveryLatencyP99Millis();
+}
@@ -0,0 +1,232 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps an OrderManager's pending orders in a data directory using a
+ * snapshot plus a journal of the changes made since.
+ *
+ * The directory holds "snapshot.bin" and one or more "journal-N.log" files,
+ * where N is the journal generation. Compaction switches the manager to a new
+ * journal generation, writes a snapshot of the pending orders, and then deletes
+ * the older journals, so restarting only loads the snapshot and replays the
+ * short journal written after it.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class OrderPersistence implements Closeable
+{
+    /** Name of the snapshot file in the data directory */
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    /** Prefix of the journal file names */
+    private static final String JOURNAL_PREFIX = "journal-";
+
+    /** Suffix of the journal file names */
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    /** The data directory */
+    private final Path directory;
+
+    /** The manager whose orders are persisted */
+    private final OrderManager manager;
+
+    /** Number of orders restored when the directory was opened */
+    private final int recoveredCount;
+
+    /** The journal currently attached to the manager */
+    private OrderJournal journal;
+
+    /** Generation number of the current journal */
+    private long generation;
+
+    /** Thread that runs periodic compaction, if started */
+    private ScheduledExecutorService compactor;
+
+    /**
+     * Opens a data directory, restores its pending orders into the manager and
+     * attaches a journal for further changes.
+     *
+     * @param directory the data directory, created if it does not exist
+     * @param manager the manager to restore into
+     * @param catalog the catalog used to share topping instances
+     * @throws IOException if the directory cannot be read
+     */
+    public OrderPersistence(Path directory, OrderManager manager, ToppingCatalog catalog) throws IOException
+    {
+        this.directory = directory;
+        this.manager = manager;
+        Files.createDirectories(directory);
+
+        //Start from the snapshot, if there is one
+        OrderSnapshot snapshot = OrderSnapshot.read(directory.resolve(SNAPSHOT_FILE), catalog);
+        LinkedHashMap<Long, Order> pending = snapshot != null ? snapshot.getOrders() : new LinkedHashMap<>();
+        long firstGeneration = snapshot != null ? snapshot.getJournalGeneration() : 0;
+
+        //Replay the journals written after it, oldest first
+        Set<Long> delivered = new HashSet<>();
+        generation = firstGeneration;
+        boolean latestIsCurrent = true;
+        for (Map.Entry<Long, Path> entry : journalFiles().entrySet())
+        {
+            if (entry.getKey() < firstGeneration)
+            {
+                //Left behind by a compaction that finished its snapshot but not its cleanup
+                Files.deleteIfExists(entry.getValue());
+                continue;
+            }
+
+            try (OrderJournal old = new OrderJournal(entry.getValue(), 0))
+            {
+                old.replayInto(pending, delivered, catalog);
+                latestIsCurrent = old.getVersion() == OrderJournal.VERSION;
+            }
+            generation = entry.getKey();
+        }
+
+        //A journal in an older format is only replayed, so new records start a new generation
+        if (!latestIsCurrent)
+        {
+            generation++;
+        }
+
+        journal = new OrderJournal(journalFile(generation));
+        recoveredCount = pending.size();
+        manager.restore(pending.values(), journal);
+    }
+
+    /**
+     * Returns the number of pending orders restored when the directory was opened.
+     *
+     * @return the restored order count
+     */
+    public int getRecoveredCount()
+    {
+        return recoveredCount;
+    }
+
+    /**
+     * Writes a snapshot of the pending orders and deletes the journals it replaces.
+     * For a manager that is not concurrent this must be called from the thread
+     * that uses the manager.
+     *
+     * @throws IOException if the snapshot or new journal cannot be written
+     */
+    public synchronized void compact() throws IOException
+    {
+        long nextGeneration = generation + 1;
+        OrderJournal next = new OrderJournal(journalFile(nextGeneration));
+        OrderJournal previous = journal;
+
+        List<Order> pending = manager.rotateJournal(next);
+        journal = next;
+        generation = nextGeneration;
+
+        //Only once the snapshot is safely on disk can the old journals go
+        OrderSnapshot.write(directory.resolve(SNAPSHOT_FILE), nextGeneration, pending);
+        previous.close();
+        for (Map.Entry<Long, Path> entry : journalFiles().entrySet())
+        {
+            if (entry.getKey() < nextGeneration)
+            {
+                Files.deleteIfExists(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Compacts the data directory in the background at a fixed interval.
+     * Only valid for a concurrent OrderManager.
+     *
+     * @param period time between compactions
+     * @param unit the unit of the period
+     */
+    public synchronized void compactEvery(long period, TimeUnit unit)
+    {
+        if (!manager.isConcurrent())
+        {
+            throw new IllegalStateException("Background compaction needs a concurrent OrderManager");
+        }
+        if (compactor != null)
+        {
+            return;
+        }
+
+        compactor = Executors.newSingleThreadScheduledExecutor(task ->
+        {
+            Thread thread = new Thread(task, "order-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() ->
+        {
+            try
+            {
+                compact();
+            }
+            catch (IOException e)
+            {
+                System.err.println("Order compaction failed: " + e.getMessage());
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops background compaction and closes the current journal.
+     *
+     * @throws IOException if the journal cannot be synced
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (compactor != null)
+        {
+            compactor.shutdown();
+        }
+        journal.close();
+    }
+
+    private Path journalFile(long journalGeneration)
+    {
+        return directory.resolve(JOURNAL_PREFIX + journalGeneration + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Lists the journal files in the directory.
+     *
+     * @return the journal files keyed and sorted by generation
+     */
+    private TreeMap<Long, Path> journalFiles() throws IOException
+    {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX))
+        {
+            for (Path file : stream)
+            {
+                String name = file.getFileName().toString();
+                String number = name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length());
+                try
+                {
+                    files.put(Long.parseLong(number), file);
+                }
+                catch (NumberFormatException e)
+                {
+                    //Not one of ours, leave it alone
+                }
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.concurrent.BlockingQueue;
+import java.util.function.UnaryOperator;
+
+/**
+ * A queue of pending orders that can also find, cancel and change any
+ * order by its id without scanning the queue.
+ *
+ * An order id can only be in the queue once; adding an order whose id is
+ * already pending is refused. Changes made through update happen
+ * atomically with respect to dispatch, so an order is either changed
+ * while still pending or taken off the queue unchanged, never both.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public interface OrderQueue extends BlockingQueue<Order>
+{
+    /**
+     * Returns a pending order.
+     *
+     * @param orderId the order id
+     * @return the order, or null if it is not in the queue
+     */
+    Order get(long orderId);
+
+    /**
+     * Takes an order off the queue wherever it is.
+     *
+     * @param orderId the order id
+     * @return the removed order, or null if it is not in the queue
+     */
+    Order remove(long orderId);
+
+    /**
+     * Changes a pending order in place. The change may modify the order or
+     * return a replacement with the same id, which then takes the original's
+     * place in the queue.
+     *
+     * @param orderId the order id
+     * @param change applied to the pending order, returning the order to keep
+     * @return the order now in the queue, or null if the id was not pending
+     * @throws IllegalArgumentException if the replacement has a different id
+     */
+    Order update(long orderId, UnaryOperator<Order> change);
+}
@@ -0,0 +1,22 @@
+/**
+ * Thrown when an order cannot be added because the queue stayed at its
+ * pending limit for the whole wait. The order was not queued and can be
+ * sent again later.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class OrderQueueFullException extends IllegalStateException
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs an exception for an order that found no place in the queue.
+     *
+     * @param orderId the id of the order that was not added
+     */
+    public OrderQueueFullException(long orderId)
+    {
+        super("Order queue is full, order " + orderId + " was not added");
+    }
+}
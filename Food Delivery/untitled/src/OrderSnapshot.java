@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+/**
+ * A compact binary copy of every pending order at one moment, so a restart
+ * only has to replay the journal written after it.
+ *
+ * The file holds a header (magic number, format version, the first journal
+ * generation that is not covered by the snapshot, and the order count)
+ * followed by one length-prefixed OrderCodec record per order. Version 1
+ * files, written before orders recorded their creation time, can still be
+ * read; their orders count as placed when the snapshot is loaded, and the
+ * next snapshot rewrites them as version 2. Snapshots are
+ * written to a temporary file, forced to disk and then renamed over the old
+ * one, so a crash part way through always leaves a complete snapshot behind.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public final class OrderSnapshot
+{
+    /** Identifies an order snapshot file */
+    private static final int MAGIC = 0x4F524453;
+
+    /** Current file format version */
+    private static final int VERSION = 2;
+
+    /** Oldest file format version that can still be read; its records lack the creation time */
+    private static final int VERSION_1 = 1;
+
+    /** Size of the header: magic, version, generation and count */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+
+    /** Size of the I/O buffer used to stream records */
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    /** The journal generation replay should start from */
+    private final long journalGeneration;
+
+    /** The pending orders in queue order, keyed by id */
+    private final LinkedHashMap<Long, Order> orders;
+
+    private OrderSnapshot(long journalGeneration, LinkedHashMap<Long, Order> orders)
+    {
+        this.journalGeneration = journalGeneration;
+        this.orders = orders;
+    }
+
+    /**
+     * Returns the first journal generation not covered by this snapshot.
+     *
+     * @return the generation replay should start from
+     */
+    public long getJournalGeneration()
+    {
+        return journalGeneration;
+    }
+
+    /**
+     * Returns the orders that were pending when the snapshot was taken.
+     *
+     * @return the pending orders in queue order, keyed by id
+     */
+    public LinkedHashMap<Long, Order> getOrders()
+    {
+        return orders;
+    }
+
+    /**
+     * Writes a snapshot and atomically replaces any existing one.
+     *
+     * @param file the snapshot file
+     * @param journalGeneration the first journal generation not covered by these orders
+     * @param orders the pending orders in queue order
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Path file, long journalGeneration, Collection<Order> orders) throws IOException
+    {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(journalGeneration).putLong(orders.size());
+
+            for (Order order : orders)
+            {
+                int size = OrderCodec.encodedSize(order);
+                if (buffer.remaining() < 4 + size)
+                {
+                    flush(channel, buffer);
+                    if (buffer.remaining() < 4 + size)
+                    {
+                        buffer = ByteBuffer.allocateDirect(4 + size);
+                    }
+                }
+                buffer.putInt(size);
+                OrderCodec.encode(order, buffer);
+            }
+
+            flush(channel, buffer);
+            channel.force(true);
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot written by write.
+     *
+     * @param file the snapshot file
+     * @param catalog the catalog used to share topping instances
+     * @return the snapshot, or null if the file does not exist
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static OrderSnapshot read(Path file, ToppingCatalog catalog) throws IOException
+    {
+        if (!Files.exists(file))
+        {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.flip();
+
+            buffer = fill(channel, buffer, HEADER_SIZE);
+            if (buffer.getInt() != MAGIC)
+            {
+                throw new IOException("Not an order snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION && version != VERSION_1)
+            {
+                throw new IOException("Unsupported order snapshot version " + version + ": " + file);
+            }
+            long generation = buffer.getLong();
+            long count = buffer.getLong();
+
+            LinkedHashMap<Long, Order> orders = new LinkedHashMap<>((int) Math.min(count * 4 / 3 + 1, 1 << 30));
+            for (long i = 0; i < count; i++)
+            {
+                buffer = fill(channel, buffer, 4);
+                int size = buffer.getInt();
+                buffer = fill(channel, buffer, size);
+
+                Order order = version == VERSION
+                        ? OrderCodec.decode(buffer, catalog)
+                        : OrderCodec.decodeWithoutCreationTime(buffer, catalog);
+                orders.put(order.getId(), order);
+                Order.reserveIdsThrough(order.getId());
+            }
+
+            return new OrderSnapshot(generation, orders);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Makes sure at least the given number of unread bytes are in the buffer,
+     * growing it if a single record is larger than the buffer.
+     *
+     * @return the buffer to keep reading from, in read mode
+     */
+    private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException
+    {
+        if (buffer.remaining() >= needed)
+        {
+            return buffer;
+        }
+
+        if (buffer.capacity() < needed)
+        {
+            ByteBuffer larger = ByteBuffer.allocateDirect(needed);
+            larger.put(buffer);
+            buffer = larger;
+        }
+        else
+        {
+            buffer.compact();
+        }
+
+        while (buffer.position() < needed)
+        {
+            if (channel.read(buffer) < 0)
+            {
+                throw new IOException("Order snapshot is truncated");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
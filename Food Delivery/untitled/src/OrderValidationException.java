@@ -0,0 +1,36 @@
+/**
+ * Thrown when order input breaks a validation rule.
+ * Carries the structured reason as well as the message.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class OrderValidationException extends IllegalArgumentException
+{
+    private static final long serialVersionUID = 1L;
+
+    /** The rule that was broken */
+    private final ValidationError error;
+
+    /**
+     * Constructs an exception for a broken rule.
+     *
+     * @param error the rule that was broken
+     * @param detail the offending input, or null
+     */
+    public OrderValidationException(ValidationError error, String detail)
+    {
+        super(detail == null ? error.getMessage() : error.getMessage() + " (" + detail + ")");
+        this.error = error;
+    }
+
+    /**
+     * Returns the rule that was broken.
+     *
+     * @return the validation error
+     */
+    public ValidationError getError()
+    {
+        return error;
+    }
+}
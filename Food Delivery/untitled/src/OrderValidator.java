@@ -0,0 +1,220 @@
+/**
+ * Validation rules for customer, student and topping input, shared by the
+ * interactive menu, batch ingestion and the intake server.
+ *
+ * Every check scans the characters of its input directly: no regular
+ * expressions, and no trimmed or lower-cased copies of the input. Checks
+ * return the ValidationError that applies, or null when the input is valid.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public final class OrderValidator
+{
+    /** Number of digits in a contact number */
+    private static final int CONTACT_NUMBER_DIGITS = 10;
+
+    /** OrderValidator is only used through its static methods */
+    private OrderValidator()
+    {
+    }
+
+    /**
+     * Checks a customer name.
+     *
+     * @param name the name, trimmed or not
+     * @return EMPTY_NAME if the name is blank, otherwise null
+     */
+    public static ValidationError checkName(CharSequence name)
+    {
+        return isBlank(name, 0, name.length()) ? ValidationError.EMPTY_NAME : null;
+    }
+
+    /**
+     * Checks that a contact number is exactly 10 digits, ignoring surrounding spaces.
+     *
+     * @param number the contact number
+     * @return INVALID_CONTACT_NUMBER if it is not 10 digits, otherwise null
+     */
+    public static ValidationError checkContactNumber(CharSequence number)
+    {
+        return checkContactNumber(number, 0, number.length());
+    }
+
+    /**
+     * Checks that part of some text is a 10 digit contact number, ignoring surrounding spaces.
+     *
+     * @param text the text holding the number
+     * @param start index of the first character
+     * @param end index just after the last character
+     * @return INVALID_CONTACT_NUMBER if it is not 10 digits, otherwise null
+     */
+    public static ValidationError checkContactNumber(CharSequence text, int start, int end)
+    {
+        start = trimStart(text, start, end);
+        end = trimEnd(text, start, end);
+        if (end - start != CONTACT_NUMBER_DIGITS)
+        {
+            return ValidationError.INVALID_CONTACT_NUMBER;
+        }
+
+        for (int i = start; i < end; i++)
+        {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return ValidationError.INVALID_CONTACT_NUMBER;
+        }
+        return null;
+    }
+
+    /**
+     * Checks a delivery address.
+     *
+     * @param address the address, trimmed or not
+     * @return EMPTY_ADDRESS if the address is blank, otherwise null
+     */
+    public static ValidationError checkAddress(CharSequence address)
+    {
+        return isBlank(address, 0, address.length()) ? ValidationError.EMPTY_ADDRESS : null;
+    }
+
+    /**
+     * Checks student details: either both are given or neither is.
+     * A blank field counts as not given. As in the interactive menu, "N/A"
+     * in either field skips the student discount, whatever the other holds.
+     *
+     * @param university the university
+     * @param studentId the student ID
+     * @return INCOMPLETE_STUDENT_INFO if only one is given, otherwise null
+     */
+    public static ValidationError checkStudentInfo(CharSequence university, CharSequence studentId)
+    {
+        if (isNotApplicable(university) || isNotApplicable(studentId))
+        {
+            return null;
+        }
+        return isGiven(university) == isGiven(studentId) ? null : ValidationError.INCOMPLETE_STUDENT_INFO;
+    }
+
+    /**
+     * Returns whether an optional field has a real value, meaning it is not blank and not "N/A".
+     *
+     * @param value the field
+     * @return true if a value was given
+     */
+    public static boolean isGiven(CharSequence value)
+    {
+        return !isBlank(value, 0, value.length()) && !isNotApplicable(value);
+    }
+
+    /**
+     * Returns whether a field says "N/A", ignoring case and surrounding spaces.
+     *
+     * @param value the field
+     * @return true if the field is "N/A"
+     */
+    public static boolean isNotApplicable(CharSequence value)
+    {
+        int start = trimStart(value, 0, value.length());
+        return equalsIgnoreCase(value, start, trimEnd(value, start, value.length()), "n/a");
+    }
+
+    /**
+     * Finds a pizza topping named by the input, ignoring case and surrounding spaces.
+     *
+     * @param catalog the topping catalog
+     * @param input the text holding the name
+     * @param start index of the first character
+     * @param end index just after the last character
+     * @return the shared Topping, or null if it is not a pizza topping
+     */
+    public static Topping findPizzaTopping(ToppingCatalog catalog, CharSequence input, int start, int end)
+    {
+        start = trimStart(input, start, end);
+        return catalog.pizzaTopping(input, start, trimEnd(input, start, end));
+    }
+
+    /**
+     * Finds a pasta topping named by the input, ignoring case and surrounding spaces.
+     *
+     * @param catalog the topping catalog
+     * @param input the text holding the name
+     * @param start index of the first character
+     * @param end index just after the last character
+     * @return the shared Topping, or null if it is not a pasta topping
+     */
+    public static Topping findPastaTopping(ToppingCatalog catalog, CharSequence input, int start, int end)
+    {
+        start = trimStart(input, start, end);
+        return catalog.pastaTopping(input, start, trimEnd(input, start, end));
+    }
+
+    /**
+     * Returns whether part of some text is blank.
+     *
+     * @param text the text
+     * @param start index of the first character
+     * @param end index just after the last character
+     * @return true if every character is whitespace
+     */
+    public static boolean isBlank(CharSequence text, int start, int end)
+    {
+        return trimStart(text, start, end) == end;
+    }
+
+    /**
+     * Compares part of some text with a lower-case word, ignoring case and surrounding spaces.
+     *
+     * @param text the text
+     * @param start index of the first character
+     * @param end index just after the last character
+     * @param lowerCaseWord the word to compare with, in lower case
+     * @return true if they match
+     */
+    public static boolean matchesWord(CharSequence text, int start, int end, String lowerCaseWord)
+    {
+        start = trimStart(text, start, end);
+        return equalsIgnoreCase(text, start, trimEnd(text, start, end), lowerCaseWord);
+    }
+
+    /**
+     * Skips leading whitespace.
+     *
+     * @return the index of the first non-whitespace character, or end
+     */
+    static int trimStart(CharSequence text, int start, int end)
+    {
+        while (start < end && text.charAt(start) <= ' ')
+        {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Skips trailing whitespace.
+     *
+     * @return the index just after the last non-whitespace character, or start
+     */
+    static int trimEnd(CharSequence text, int start, int end)
+    {
+        while (end > start && text.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean equalsIgnoreCase(CharSequence text, int start, int end, String lowerCaseWord)
+    {
+        if (end - start != lowerCaseWord.length())
+        {
+            return false;
+        }
+
+        for (int i = 0; i < lowerCaseWord.length(); i++)
+        {
+            if (Character.toLowerCase(text.charAt(start + i)) != lowerCaseWord.charAt(i)) return false;
+        }
+        return true;
+    }
+}
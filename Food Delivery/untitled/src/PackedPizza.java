@@ -0,0 +1,223 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper methods for pizzas packed into a single long.
+ *
+ * A packed pizza holds a 4-bit count for each pizza topping in a
+ * ToppingCatalog, the topping with catalog id i in bits 4i to 4i+3, so a
+ * pizza with any mix of up to 15 of each topping is one primitive value
+ * instead of a Pizza, a list and its toppings. The meal type is two mask
+ * tests against the catalog's meat and vegetarian nibbles, and the price is
+ * one table lookup per byte of the packed value, with no loop over toppings
+ * and no branches on topping type. OrderBatch keeps the pizzas of a batch
+ * this way.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public final class PackedPizza
+{
+    /** Number of pizza toppings that fit in a packed pizza */
+    public static final int MAX_TOPPINGS = 16;
+
+    /** Most of one topping a packed pizza can hold */
+    public static final int MAX_COUNT = 15;
+
+    /** A pizza with no toppings */
+    public static final long PLAIN = 0;
+
+    /** Bits used by each topping count */
+    static final int COUNT_BITS = 4;
+
+    /** Mask of one topping count */
+    static final long COUNT_MASK = 0xF;
+
+    /** Low nibble of every byte, for adding up counts in parallel */
+    private static final long LOW_NIBBLES = 0x0F0F0F0F0F0F0F0FL;
+
+    /** Meal type by (has meat ? 2 : 0) + (has vegetarian ? 1 : 0) */
+    private static final MealType[] MEAL_TYPES =
+            {MealType.VEGAN, MealType.VEGETARIAN, MealType.MEAT, MealType.MEAT};
+
+    /** PackedPizza is only used through its static methods */
+    private PackedPizza()
+    {
+    }
+
+    /**
+     * Packs a list of pizza toppings. Repeated toppings are counted.
+     *
+     * @param toppings the toppings, all pizza toppings of the catalog
+     * @param catalog the catalog the toppings come from
+     * @return the packed pizza
+     * @throws IllegalArgumentException if a topping is not one of the catalog's
+     *         pizza toppings, or appears more than MAX_COUNT times
+     */
+    public static long pack(List<Topping> toppings, ToppingCatalog catalog)
+    {
+        long pizza = PLAIN;
+        for (Topping topping : toppings)
+        {
+            pizza = add(pizza, topping, catalog);
+        }
+        return pizza;
+    }
+
+    /**
+     * Packs the toppings of a pizza.
+     *
+     * @param pizza the pizza
+     * @param catalog the catalog its toppings come from
+     * @return the packed pizza
+     * @throws IllegalArgumentException if the pizza cannot be packed
+     */
+    public static long of(Pizza pizza, ToppingCatalog catalog)
+    {
+        return pack(pizza.getToppings(), catalog);
+    }
+
+    /**
+     * Adds one topping to a packed pizza.
+     *
+     * @param pizza the packed pizza
+     * @param topping a pizza topping of the catalog
+     * @param catalog the catalog the topping comes from
+     * @return the packed pizza with the topping added
+     * @throws IllegalArgumentException if the topping is not one of the
+     *         catalog's pizza toppings, or there are already MAX_COUNT of it
+     */
+    public static long add(long pizza, Topping topping, ToppingCatalog catalog)
+    {
+        if (!isPizzaTopping(topping, catalog))
+        {
+            throw new IllegalArgumentException("Not a pizza topping of this catalog: " + topping);
+        }
+        int id = topping.getId();
+        if (count(pizza, id) == MAX_COUNT)
+        {
+            throw new IllegalArgumentException("More than " + MAX_COUNT + " of " + topping.getName());
+        }
+        return pizza + (1L << (id * COUNT_BITS));
+    }
+
+    /**
+     * Returns whether a topping can be packed against a catalog: it has to
+     * be one of the catalog's first MAX_TOPPINGS pizza toppings. A topping
+     * from another version of the same menu counts if its name is at the
+     * same id.
+     *
+     * @param topping the topping
+     * @param catalog the catalog
+     * @return true if the topping has a place in a packed pizza
+     */
+    static boolean isPizzaTopping(Topping topping, ToppingCatalog catalog)
+    {
+        int id = topping.getId();
+        if (id < 0 || id >= catalog.getPizzaToppings().size() || id >= MAX_TOPPINGS)
+        {
+            return false;
+        }
+        Topping known = catalog.get(id);
+        return known == topping || known.getName().equals(topping.getName());
+    }
+
+    /**
+     * Returns how many of a topping a packed pizza has.
+     *
+     * @param pizza the packed pizza
+     * @param toppingId the topping's catalog id
+     * @return the topping count
+     */
+    public static int count(long pizza, int toppingId)
+    {
+        return (int) ((pizza >>> (toppingId * COUNT_BITS)) & COUNT_MASK);
+    }
+
+    /**
+     * Returns the total number of toppings on a packed pizza, counting repeats.
+     *
+     * @param pizza the packed pizza
+     * @return the topping count
+     */
+    public static int toppingCount(long pizza)
+    {
+        //Add the two nibbles of each byte, then add up the bytes with one multiply
+        long bytes = (pizza & LOW_NIBBLES) + ((pizza >>> COUNT_BITS) & LOW_NIBBLES);
+        return (int) ((bytes * 0x0101010101010101L) >>> 56);
+    }
+
+    /**
+     * Returns the price of a packed pizza: the base price plus every topping.
+     *
+     * @param pizza the packed pizza
+     * @param catalog the catalog it was packed with, holding the topping prices
+     * @param basePriceCents the price of the pizza before toppings, e.g. from a Menu
+     * @return the price in cents
+     */
+    public static long priceCents(long pizza, ToppingCatalog catalog, long basePriceCents)
+    {
+        return basePriceCents + toppingPriceCents(pizza, catalog.pizzaPriceTables());
+    }
+
+    /**
+     * Returns the price of the toppings on a packed pizza.
+     *
+     * @param pizza the packed pizza
+     * @param tables the catalog's pizza price tables
+     * @return the price of the toppings in cents
+     */
+    static long toppingPriceCents(long pizza, long[][] tables)
+    {
+        long total = 0;
+        for (int b = 0; b < tables.length; b++)
+        {
+            total += tables[b][(int) (pizza >>> (b * 8)) & 0xFF];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the meal type of a packed pizza, by the same rule as Pizza:
+     * any meat makes it MEAT, otherwise any vegetarian topping makes it
+     * VEGETARIAN, otherwise it is VEGAN.
+     *
+     * @param pizza the packed pizza
+     * @param catalog the catalog it was packed with
+     * @return the meal type
+     */
+    public static MealType mealType(long pizza, ToppingCatalog catalog)
+    {
+        long meat = pizza & catalog.pizzaMeatMask();
+        long vegetarian = pizza & catalog.pizzaVegetarianMask();
+
+        //(x | -x) >>> 63 is 1 for any non-zero x and 0 otherwise
+        int index = (int) (((meat | -meat) >>> 63) << 1 | ((vegetarian | -vegetarian) >>> 63));
+        return MEAL_TYPES[index];
+    }
+
+    /**
+     * Unpacks a packed pizza into a Pizza. Toppings come out in catalog
+     * order, with repeats next to each other.
+     *
+     * @param pizza the packed pizza
+     * @param catalog the catalog it was packed with
+     * @param basePriceCents the price of the pizza before toppings
+     * @return the Pizza
+     */
+    public static Pizza toPizza(long pizza, ToppingCatalog catalog, long basePriceCents)
+    {
+        List<Topping> toppings = new ArrayList<Topping>(toppingCount(pizza));
+        for (long rest = pizza; rest != 0; rest &= rest - 1)
+        {
+            //Each set bit of a count stands for 1, 2, 4 or 8 of its topping
+            int bit = Long.numberOfTrailingZeros(rest);
+            Topping topping = catalog.get(bit / COUNT_BITS);
+            for (int i = 1 << (bit % COUNT_BITS); i > 0; i--)
+            {
+                toppings.add(topping);
+            }
+        }
+        return new Pizza(toppings, basePriceCents);
+    }
+}
@@ -1,8 +1,11 @@
+import java.io.IOException;
+
 /**
  * Represents a Pasta dish with a single topping.
  *
  * Calculates total price using the base price and the topping price.
  * Meal classification is determined entirely by the topping type.
+ * A pasta is immutable, so its price is calculated once at construction.
  *
  * Author: Reyan
  * Version: 1.0
@@ -10,7 +13,13 @@
 public class Pasta extends FoodItem
 {
     /** The only topping allowed on this pasta */
-    private Topping topping;
+    private final Topping topping;
+
+    /** Price of the pasta before its topping, in cents */
+    private final long basePriceCents;
+
+    /** Total price in cents, calculated once at construction */
+    private final long priceCents;
 
     /**
      * Constructs a Pasta object with a given topping.
@@ -18,20 +27,34 @@ public class Pasta extends FoodItem
      * @param topping the Topping object to be added to the pasta
      */
     public Pasta(Topping topping)
+    {
+        this(topping, BASE_PRICE_CENTS);
+    }
+
+    /**
+     * Constructs a Pasta with a given topping and base price, for menus
+     * that price pasta differently from the standard one.
+     *
+     * @param topping the Topping object to be added to the pasta
+     * @param basePriceCents the price of the pasta before its topping, in cents
+     */
+    public Pasta(Topping topping, long basePriceCents)
     {
         this.topping = topping;
+        this.basePriceCents = basePriceCents;
+        this.priceCents = basePriceCents + topping.getPriceCents();
     }
 
     /**
-     * Calculates the total price of the pasta.
-     * Adds topping price to the base food price.
+     * Returns the total price of the pasta.
+     * This is the topping price added to the base food price.
      *
-     * @return the total cost of the pasta
+     * @return the total cost of the pasta in cents
      */
     @Override
-    public double getPrice()
+    public long getPriceCents()
     {
-        return BASE_PRICE + topping.getPrice();
+        return priceCents;
     }
 
     /**
@@ -45,6 +68,39 @@ public class Pasta extends FoodItem
         return topping.getType();
     }
 
+    /**
+     * Returns the price of the pasta before its topping.
+     *
+     * @return the base price in cents
+     */
+    public long getBasePriceCents()
+    {
+        return basePriceCents;
+    }
+
+    /**
+     * Returns the topping on the pasta.
+     *
+     * @return the pasta topping
+     */
+    public Topping getTopping()
+    {
+        return topping;
+    }
+
+    /**
+     * Writes the same text as toString to the given output.
+     *
+     * @param out where to write the pasta
+     * @throws IOException if the output cannot be written
+     */
+    @Override
+    public void appendTo(Appendable out) throws IOException
+    {
+        out.append("Pasta with topping: ");
+        topping.appendTo(out);
+    }
+
     /**
      * Returns a string description of the pasta.
      *
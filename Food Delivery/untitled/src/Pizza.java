@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -6,13 +7,25 @@ import java.util.List;
  * Calculates total price based on the base price plus the cost of each topping.
  * Determines the meal classification based on the topping types.
  *
+ * A pizza is immutable: the price and meal type are worked out once when it
+ * is constructed, so repeated pricing or rendering does not rescan the toppings.
+ *
  * Author: Reyan
  * Version: 1.0
  */
 public class Pizza extends FoodItem
 {
     /** List of toppings selected for this pizza */
-    private List<Topping> toppings;
+    private final List<Topping> toppings;
+
+    /** Price of the pizza before toppings, in cents */
+    private final long basePriceCents;
+
+    /** Total price in cents, calculated once at construction */
+    private final long priceCents;
+
+    /** Meal classification, calculated once at construction */
+    private final MealType mealType;
 
     /**
      * Constructs a Pizza with the given list of toppings.
@@ -21,39 +34,98 @@ public class Pizza extends FoodItem
      */
     public Pizza(List<Topping> toppings)
     {
-        this.toppings = toppings;
+        this(toppings, BASE_PRICE_CENTS);
     }
 
     /**
-     * Calculates the price of the pizza.
+     * Constructs a Pizza with the given toppings and base price, for menus
+     * that price the pizza base differently from the standard one.
+     *
+     * @param toppings a list of Topping objects added to the pizza
+     * @param basePriceCents the price of the pizza before toppings, in cents
+     */
+    public Pizza(List<Topping> toppings, long basePriceCents)
+    {
+        //Take an unmodifiable copy so the cached totals can never go stale
+        this.toppings = List.copyOf(toppings);
+        this.basePriceCents = basePriceCents;
+        this.priceCents = calculatePriceCents(basePriceCents, this.toppings);
+        this.mealType = calculateMealType(this.toppings);
+    }
+
+    /**
+     * Returns the price of the pizza.
      * Includes the base price plus the price of all toppings.
      *
-     * @return the total price of the pizza
+     * @return the total price of the pizza in cents
      */
     @Override
-    public double getPrice()
+    public long getPriceCents()
     {
-        double total = BASE_PRICE;
+        return priceCents;
+    }
+
+    /**
+     * Returns the meal classification of the pizza.
+     *
+     * @return the overall meal type of the pizza
+     */
+    @Override
+    public MealType getMealType()
+    {
+        return mealType;
+    }
+
+    /**
+     * Returns the price of the pizza before toppings.
+     *
+     * @return the base price in cents
+     */
+    public long getBasePriceCents()
+    {
+        return basePriceCents;
+    }
+
+    /**
+     * Returns the toppings on the pizza.
+     *
+     * @return an unmodifiable list of toppings
+     */
+    public List<Topping> getToppings()
+    {
+        return toppings;
+    }
+
+    /**
+     * Calculates the base price plus the price of all toppings.
+     *
+     * @param basePriceCents the price before toppings
+     * @param toppings the toppings on the pizza
+     * @return the total price of the pizza in cents
+     */
+    private static long calculatePriceCents(long basePriceCents, List<Topping> toppings)
+    {
+        long total = basePriceCents;
 
         //Add the price of each topping to the base price
         for (Topping topping : toppings)
         {
-            total += topping.getPrice();
+            total += topping.getPriceCents();
         }
 
         return total;
     }
 
     /**
-     * Determines the meal classification of the pizza.
+     * Determines the meal classification from the toppings.
      * <p>
      * Priority: MEAT > VEGETARIAN > VEGAN
      * </p>
      *
+     * @param toppings the toppings on the pizza
      * @return the overall meal type of the pizza
      */
-    @Override
-    public MealType getMealType()
+    private static MealType calculateMealType(List<Topping> toppings)
     {
         boolean hasMeat = false;
         boolean hasVeg = false;
@@ -86,6 +158,24 @@ public class Pizza extends FoodItem
         }
     }
 
+    /**
+     * Writes the same text as toString to the given output.
+     *
+     * @param out where to write the pizza
+     * @throws IOException if the output cannot be written
+     */
+    @Override
+    public void appendTo(Appendable out) throws IOException
+    {
+        out.append("Pizza with toppings: [");
+        for (int i = 0; i < toppings.size(); i++)
+        {
+            if (i > 0) out.append(", ");
+            toppings.get(i).appendTo(out);
+        }
+        out.append(']');
+    }
+
     /**
      * Returns a string representation of the pizza and its toppings.
      *
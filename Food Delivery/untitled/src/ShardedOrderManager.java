@@ -0,0 +1,295 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Splits pending orders across several independent OrderManager shards so
+ * many kitchens or dispatchers can work from one process without all
+ * contending on a single queue.
+ *
+ * Orders are partitioned by a hash of the customer's contact number, so one
+ * customer's orders always land in the same shard. Each dispatcher thread owns
+ * some of the shards and serves them first; when its own shards are empty it
+ * steals from the busiest shard owned by someone else, so no dispatcher sits
+ * idle while another is behind. The busiest shard is found from each shard's
+ * own pending count, so orders that reach a shard directly (restored from
+ * disk, or cancelled through getShard) are always accounted for.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public class ShardedOrderManager implements OrderIntake
+{
+    /** How long an idle dispatcher waits on its own shard before looking to steal again */
+    private static final long IDLE_WAIT_MILLIS = 1;
+
+    /** The independent shards */
+    private final OrderManager[] shards;
+
+    /** Running dispatcher threads */
+    private final List<Thread> dispatchers = new ArrayList<>();
+
+    /** Whether the dispatcher threads should keep running */
+    private volatile boolean running;
+
+    /**
+     * Constructs a sharded manager with first-in, first-out shards.
+     *
+     * @param shardCount the number of shards
+     */
+    public ShardedOrderManager(int shardCount)
+    {
+        this(shardCount, null);
+    }
+
+    /**
+     * Constructs a sharded manager whose shards dispatch by the given policy.
+     *
+     * @param shardCount the number of shards
+     * @param policy the dispatch policy for every shard, or null for FIFO
+     */
+    public ShardedOrderManager(int shardCount, DispatchPolicy policy)
+    {
+        if (shardCount < 1)
+        {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+
+        shards = new OrderManager[shardCount];
+        for (int i = 0; i < shardCount; i++)
+        {
+            shards[i] = policy == null ? new OrderManager(true) : new OrderManager(policy);
+        }
+    }
+
+    /**
+     * Returns true, since every shard is a concurrent OrderManager.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isConcurrent()
+    {
+        return true;
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount()
+    {
+        return shards.length;
+    }
+
+    /**
+     * Returns the shard an order belongs to.
+     *
+     * @param order the order
+     * @return the shard index
+     */
+    public int shardFor(Order order)
+    {
+        //Spread the hash bits so similar numbers do not cluster in one shard
+        int hash = order.getCustomer().getContactNumber().hashCode() * 0x9E3779B1;
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    /**
+     * Adds an order to its shard.
+     *
+     * @param order the order to add
+     * @throws OrderQueueFullException if the shard stayed full
+     * @throws IllegalStateException if the shard already holds the order
+     */
+    public void addOrder(Order order)
+    {
+        shards[shardFor(order)].addOrder(order);
+    }
+
+    /**
+     * Adds an order to its shard unless an order with the same idempotency
+     * key was added recently. A resubmitted order has the same customer, so
+     * it goes to the same shard as the original.
+     *
+     * @param order the order to add
+     * @return the id of this order if it was added, or the id of the earlier
+     *         order with the same key if it was a duplicate
+     * @throws OrderQueueFullException if the shard stayed full
+     * @throws IllegalStateException if the shard already holds the order
+     */
+    @Override
+    public long addOrderIfAbsent(Order order)
+    {
+        return shards[shardFor(order)].addOrderIfAbsent(order);
+    }
+
+    /**
+     * Cancels a pending order in whichever shard holds it. Only the order id
+     * is known, so the shards are tried in turn.
+     *
+     * @param orderId the id of the order to cancel
+     * @return the cancelled order, or null if no shard has it pending
+     */
+    @Override
+    public Order cancelOrder(long orderId)
+    {
+        for (OrderManager shard : shards)
+        {
+            Order order = shard.cancelOrder(orderId);
+            if (order != null) return order;
+        }
+        return null;
+    }
+
+    /**
+     * Limits how many orders can wait in each shard, splitting the total
+     * evenly and rounding up. See OrderManager.setPendingLimit.
+     *
+     * @param maxPending the most orders waiting across all shards
+     * @param maxWait how long addOrder waits for a place
+     * @param unit the unit of maxWait
+     */
+    public void setPendingLimit(int maxPending, long maxWait, TimeUnit unit)
+    {
+        int perShard = (maxPending + shards.length - 1) / shards.length;
+        for (OrderManager shard : shards)
+        {
+            shard.setPendingLimit(perShard, maxWait, unit);
+        }
+    }
+
+    /**
+     * Takes the next order for a dispatcher: from the shards it owns first,
+     * otherwise stolen from the busiest other shard.
+     *
+     * @param dispatcher the dispatcher index, from 0 to dispatcherCount - 1
+     * @param dispatcherCount the total number of dispatchers sharing the shards
+     * @return the next order, or null if every shard is empty
+     */
+    public Order nextOrder(int dispatcher, int dispatcherCount)
+    {
+        //Serve the shards this dispatcher owns
+        for (int shard = dispatcher; shard < shards.length; shard += dispatcherCount)
+        {
+            Order order = shards[shard].deliverOrder();
+            if (order != null) return order;
+        }
+
+        //Steal from whichever other shard has the most waiting; another thread may empty it first, so retry a little
+        for (int attempt = 0; attempt < shards.length; attempt++)
+        {
+            int victim = -1;
+            int deepest = 0;
+            for (int shard = 0; shard < shards.length; shard++)
+            {
+                int depth = shards[shard].getPendingCount();
+                if (shard % dispatcherCount != dispatcher && depth > deepest)
+                {
+                    victim = shard;
+                    deepest = depth;
+                }
+            }
+
+            if (victim < 0) return null;
+
+            Order order = shards[victim].deliverOrder();
+            if (order != null) return order;
+        }
+        return null;
+    }
+
+    /**
+     * Starts dispatcher threads that take orders and pass them to the handler
+     * until stop is called. Shard i is owned by dispatcher i % count.
+     *
+     * @param count the number of dispatcher threads, at most the shard count
+     * @param handler receives each dispatched order
+     */
+    public synchronized void startDispatchers(int count, Consumer<Order> handler)
+    {
+        if (running)
+        {
+            throw new IllegalStateException("Dispatchers are already running");
+        }
+        if (count < 1 || count > shards.length)
+        {
+            throw new IllegalArgumentException("Dispatcher count must be between 1 and " + shards.length);
+        }
+
+        running = true;
+        for (int i = 0; i < count; i++)
+        {
+            int dispatcher = i;
+            Thread thread = new Thread(() -> dispatchLoop(dispatcher, count, handler), "order-dispatcher-" + i);
+            thread.setDaemon(true);
+            dispatchers.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the dispatcher threads after they finish their current order.
+     *
+     * @throws InterruptedException if interrupted while waiting for them
+     */
+    public synchronized void stop() throws InterruptedException
+    {
+        running = false;
+        for (Thread thread : dispatchers)
+        {
+            thread.join();
+        }
+        dispatchers.clear();
+    }
+
+    /**
+     * Returns the total number of pending orders across all shards.
+     *
+     * @return the pending order count
+     */
+    public int getPendingCount()
+    {
+        int total = 0;
+        for (OrderManager shard : shards)
+        {
+            total += shard.getPendingCount();
+        }
+        return total;
+    }
+
+    /**
+     * Returns one of the shards, for configuring, viewing or persisting it on its own.
+     *
+     * @param index the shard index
+     * @return the shard's OrderManager
+     */
+    public OrderManager getShard(int index)
+    {
+        return shards[index];
+    }
+
+    private void dispatchLoop(int dispatcher, int dispatcherCount, Consumer<Order> handler)
+    {
+        try
+        {
+            while (running)
+            {
+                Order order = nextOrder(dispatcher, dispatcherCount);
+                if (order == null)
+                {
+                    //Nothing anywhere, so wait briefly on our own first shard
+                    order = shards[dispatcher].takeOrder(IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (order == null) continue;
+                }
+                handler.accept(order);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
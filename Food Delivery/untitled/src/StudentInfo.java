@@ -1,3 +1,5 @@
+import java.io.IOException;
+
 /**
  * Represents student information for discount eligibility.
  * Holds the university name and student ID.
@@ -52,6 +54,27 @@ public class StudentInfo
         return university;
     }
 
+    /**
+     * Returns the student's ID number.
+     *
+     * @return the student ID
+     */
+    public String getStudentId()
+    {
+        return studentId;
+    }
+
+    /**
+     * Writes the same text as toString to the given output.
+     *
+     * @param out where to write the student information
+     * @throws IOException if the output cannot be written
+     */
+    public void appendTo(Appendable out) throws IOException
+    {
+        out.append(university).append(" (ID: ").append(studentId).append(')');
+    }
+
     /**
      * Returns a string representation of the student information.
      *
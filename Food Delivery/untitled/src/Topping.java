@@ -1,22 +1,30 @@
+import java.io.IOException;
+
 /**
  * Represents a topping that can be added to a pizza or pasta.
  *
  * Each topping has a name, price, and a meal type classification
  * (e.g., MEAT, VEGETARIAN, VEGAN).
  *
+ * Toppings are immutable, so the instances held by the ToppingCatalog
+ * are shared by every pizza and pasta that uses them.
+ *
  * Author: Reyan
  * Version: 1.0
  */
 public class Topping
 {
     /** Name of the topping (e.g., ham, cheese, mushroom) */
-    private String name;
+    private final String name;
 
-    /** Price added by this topping */
-    private double price;
+    /** Price added by this topping, in cents */
+    private final long priceCents;
 
     /** Meal type classification of the topping (MEAT, VEGETARIAN, VEGAN) */
-    private MealType type;
+    private final MealType type;
+
+    /** Position of this topping in its catalog, or -1 if it is not a catalog topping */
+    private final int id;
 
     /**
      * Constructs a Topping object with specified name, price, and type.
@@ -27,11 +35,35 @@ public class Topping
      */
     public Topping(String name, double price, MealType type)
     {
+        this(-1, name, Money.fromDollars(price), type);
+    }
+
+    /**
+     * Constructs a catalog topping with the given position in its catalog.
+     *
+     * @param id the index of this topping in the catalog
+     * @param name the name of the topping
+     * @param priceCents the additional cost of this topping in cents
+     * @param type the meal type classification for this topping
+     */
+    Topping(int id, String name, long priceCents, MealType type)
+    {
+        this.id = id;
         this.name = name;
-        this.price = price;
+        this.priceCents = priceCents;
         this.type = type;
     }
 
+    /**
+     * Gets the position of this topping in its catalog.
+     *
+     * @return the catalog index, or -1 for toppings created outside a catalog
+     */
+    public int getId()
+    {
+        return id;
+    }
+
     /**
      * Gets the name of the topping.
      *
@@ -49,7 +81,17 @@ public class Topping
      */
     public double getPrice()
     {
-        return price;
+        return Money.toDollars(priceCents);
+    }
+
+    /**
+     * Gets the price of the topping in cents.
+     *
+     * @return the price in cents
+     */
+    public long getPriceCents()
+    {
+        return priceCents;
     }
 
     /**
@@ -62,6 +104,17 @@ public class Topping
         return type;
     }
 
+    /**
+     * Writes the same text as toString to the given output.
+     *
+     * @param out where to write the topping
+     * @throws IOException if the output cannot be written
+     */
+    public void appendTo(Appendable out) throws IOException
+    {
+        out.append(name).append(" ($").append(Double.toString(getPrice())).append(')');
+    }
+
     /**
      * Returns a string representation of the topping.
      *
@@ -70,6 +123,8 @@ public class Topping
     @Override
     public String toString()
     {
-        return name + " ($" + price + ")";
+        //Prices keep their original rendering, e.g. "Ham ($2.0)"
+        return new StringBuilder(name.length() + 10).append(name).append(" ($").append(getPrice()).append(')')
+                .toString();
     }
 }
@@ -0,0 +1,406 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An immutable catalog of every topping that can be ordered.
+ *
+ * Each topping is created once and shared (flyweight) by all pizzas and pastas.
+ * Toppings are indexed by their position in the catalog and can be looked up by
+ * name through a collision-free (perfect) hash table built when the catalog loads,
+ * so a lookup is one hash, one array read and one string comparison.
+ *
+ * The catalog also holds the tables PackedPizza uses to price and classify
+ * pizzas packed into a single long.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public final class ToppingCatalog
+{
+    /** The standard menu toppings */
+    private static final ToppingCatalog DEFAULT = new ToppingCatalog(
+            List.of(new Topping("Ham", 2.00, MealType.MEAT),
+                    new Topping("Cheese", 2.00, MealType.VEGETARIAN),
+                    new Topping("Pineapple", 2.50, MealType.VEGETARIAN),
+                    new Topping("Mushrooms", 2.00, MealType.VEGETARIAN),
+                    new Topping("Tomato", 2.00, MealType.VEGAN),
+                    new Topping("Seafood", 3.50, MealType.MEAT)),
+            List.of(new Topping("Bolognese", 5.20, MealType.MEAT),
+                    new Topping("Marinara", 6.80, MealType.MEAT),
+                    new Topping("Primavera", 5.20, MealType.VEGETARIAN),
+                    new Topping("Tomato", 4.00, MealType.VEGAN)));
+
+    /** Every topping in the catalog, indexed by topping id */
+    private final Topping[] toppings;
+
+    /** The toppings that can go on a pizza */
+    private final List<Topping> pizzaToppings;
+
+    /** The toppings that can go on a pasta */
+    private final List<Topping> pastaToppings;
+
+    /** The empty topping used for plain pasta */
+    private final Topping noTopping;
+
+    /** Perfect-hash name index over the pizza toppings */
+    private final NameIndex pizzaIndex;
+
+    /** Perfect-hash name index over the pasta toppings */
+    private final NameIndex pastaIndex;
+
+    /** Nibbles of the packed pizza toppings that are meat */
+    private final long pizzaMeatMask;
+
+    /** Nibbles of the packed pizza toppings that are vegetarian */
+    private final long pizzaVegetarianMask;
+
+    /** Price in cents of each byte value (two topping counts) of a packed pizza, per byte position */
+    private final long[][] pizzaPriceTables;
+
+    /**
+     * Constructs a catalog from the given pizza and pasta toppings.
+     * Pizza toppings receive the first ids, followed by the pasta toppings
+     * and finally the empty pasta topping.
+     *
+     * @param pizzaToppings the toppings available for pizzas
+     * @param pastaToppings the toppings available for pastas
+     */
+    public ToppingCatalog(List<Topping> pizzaToppings, List<Topping> pastaToppings)
+    {
+        toppings = new Topping[pizzaToppings.size() + pastaToppings.size() + 1];
+        int id = 0;
+
+        //Copy the toppings so each one carries its id in this catalog
+        List<Topping> pizza = new ArrayList<Topping>(pizzaToppings.size());
+        for (Topping topping : pizzaToppings)
+        {
+            toppings[id] = new Topping(id, topping.getName(), topping.getPriceCents(), topping.getType());
+            pizza.add(toppings[id++]);
+        }
+
+        List<Topping> pasta = new ArrayList<Topping>(pastaToppings.size());
+        for (Topping topping : pastaToppings)
+        {
+            toppings[id] = new Topping(id, topping.getName(), topping.getPriceCents(), topping.getType());
+            pasta.add(toppings[id++]);
+        }
+
+        noTopping = new Topping(id, "No topping", 0, MealType.VEGAN);
+        toppings[id] = noTopping;
+
+        this.pizzaToppings = Collections.unmodifiableList(pizza);
+        this.pastaToppings = Collections.unmodifiableList(pasta);
+        pizzaIndex = new NameIndex(pizza);
+        pastaIndex = new NameIndex(pasta);
+
+        //Packed pizzas keep a 4-bit count per pizza topping, so only 16 fit in a long
+        long meat = 0;
+        long vegetarian = 0;
+        long[][] priceTables = null;
+        if (pizza.size() <= PackedPizza.MAX_TOPPINGS)
+        {
+            priceTables = new long[(pizza.size() + 1) / 2][256];
+            for (int i = 0; i < pizza.size(); i++)
+            {
+                MealType type = pizza.get(i).getType();
+                if (type == MealType.MEAT)
+                {
+                    meat |= PackedPizza.COUNT_MASK << (i * PackedPizza.COUNT_BITS);
+                }
+                else if (type == MealType.VEGETARIAN)
+                {
+                    vegetarian |= PackedPizza.COUNT_MASK << (i * PackedPizza.COUNT_BITS);
+                }
+            }
+            for (int b = 0; b < priceTables.length; b++)
+            {
+                long low = pizza.get(2 * b).getPriceCents();
+                long high = 2 * b + 1 < pizza.size() ? pizza.get(2 * b + 1).getPriceCents() : 0;
+                for (int value = 0; value < 256; value++)
+                {
+                    priceTables[b][value] = (value & 15) * low + (value >>> 4) * high;
+                }
+            }
+        }
+        pizzaMeatMask = meat;
+        pizzaVegetarianMask = vegetarian;
+        pizzaPriceTables = priceTables;
+    }
+
+    /**
+     * Returns the catalog of standard menu toppings.
+     *
+     * @return the default catalog
+     */
+    public static ToppingCatalog getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Looks up a pizza topping by its lower-case name.
+     *
+     * @param name the topping name, already trimmed and lower-cased
+     * @return the shared Topping, or null if there is no such pizza topping
+     */
+    public Topping pizzaTopping(String name)
+    {
+        return pizzaIndex.find(name);
+    }
+
+    /**
+     * Looks up a pasta topping by its lower-case name.
+     *
+     * @param name the topping name, already trimmed and lower-cased
+     * @return the shared Topping, or null if there is no such pasta topping
+     */
+    public Topping pastaTopping(String name)
+    {
+        return pastaIndex.find(name);
+    }
+
+    /**
+     * Looks up a pizza topping by name, ignoring case, without creating any Strings.
+     *
+     * @param text the text holding the name
+     * @param start index of the first character of the name
+     * @param end index just after the last character of the name
+     * @return the shared Topping, or null if there is no such pizza topping
+     */
+    public Topping pizzaTopping(CharSequence text, int start, int end)
+    {
+        return pizzaIndex.find(text, start, end);
+    }
+
+    /**
+     * Looks up a pasta topping by name, ignoring case, without creating any Strings.
+     *
+     * @param text the text holding the name
+     * @param start index of the first character of the name
+     * @param end index just after the last character of the name
+     * @return the shared Topping, or null if there is no such pasta topping
+     */
+    public Topping pastaTopping(CharSequence text, int start, int end)
+    {
+        return pastaIndex.find(text, start, end);
+    }
+
+    /**
+     * Returns the shared empty topping used when a pasta has no topping.
+     *
+     * @return the "No topping" topping
+     */
+    public Topping noTopping()
+    {
+        return noTopping;
+    }
+
+    /**
+     * Returns the topping with the given id.
+     *
+     * @param id the topping id
+     * @return the topping at that position in the catalog
+     */
+    public Topping get(int id)
+    {
+        return toppings[id];
+    }
+
+    /**
+     * Returns the number of toppings in the catalog, including the empty topping.
+     *
+     * @return the catalog size
+     */
+    public int size()
+    {
+        return toppings.length;
+    }
+
+    /**
+     * Returns the pizza toppings in catalog order.
+     *
+     * @return an unmodifiable list of pizza toppings
+     */
+    public List<Topping> getPizzaToppings()
+    {
+        return pizzaToppings;
+    }
+
+    /**
+     * Returns the pasta toppings in catalog order.
+     *
+     * @return an unmodifiable list of pasta toppings
+     */
+    public List<Topping> getPastaToppings()
+    {
+        return pastaToppings;
+    }
+
+    /**
+     * Returns the packed pizza nibbles that hold meat topping counts.
+     *
+     * @return the meat mask
+     */
+    long pizzaMeatMask()
+    {
+        return pizzaMeatMask;
+    }
+
+    /**
+     * Returns the packed pizza nibbles that hold vegetarian topping counts.
+     *
+     * @return the vegetarian mask
+     */
+    long pizzaVegetarianMask()
+    {
+        return pizzaVegetarianMask;
+    }
+
+    /**
+     * Returns the per-byte price tables for packed pizzas.
+     *
+     * @return the tables, indexed by byte position then byte value
+     * @throws IllegalStateException if the catalog has too many pizza toppings to pack
+     */
+    long[][] pizzaPriceTables()
+    {
+        if (pizzaPriceTables == null)
+        {
+            throw new IllegalStateException("More than " + PackedPizza.MAX_TOPPINGS
+                    + " pizza toppings cannot be packed");
+        }
+        return pizzaPriceTables;
+    }
+
+    /**
+     * A collision-free hash table from lower-case names to toppings.
+     * The multiplier is searched for when the table is built so that
+     * every name lands in its own slot.
+     */
+    private static final class NameIndex
+    {
+        /** Lower-case names, indexed by slot */
+        private final String[] keys;
+
+        /** Toppings, indexed by slot */
+        private final Topping[] values;
+
+        /** Multiplier that spreads the names without collisions */
+        private final int multiplier;
+
+        /** Right shift that reduces the mixed hash to a slot */
+        private final int shift;
+
+        /** Number of multipliers to try before doubling the table */
+        private static final int ATTEMPTS_PER_SIZE = 256;
+
+        NameIndex(List<Topping> toppings)
+        {
+            int bits = 1;
+            while ((1 << bits) < toppings.size() * 2)
+            {
+                bits++;
+            }
+
+            //Keep trying multipliers, growing the table if needed, until there are no collisions
+            int candidate = 0;
+            String[] slots = null;
+            while (slots == null)
+            {
+                if (bits > 16)
+                {
+                    throw new IllegalArgumentException("Duplicate topping names: " + toppings);
+                }
+                for (int attempt = 0; attempt < ATTEMPTS_PER_SIZE && slots == null; attempt++)
+                {
+                    candidate = 0x9E3779B1 + attempt * 0x61C88646;
+                    slots = tryPlace(toppings, candidate, bits);
+                }
+                if (slots == null)
+                {
+                    bits++;
+                }
+            }
+
+            keys = slots;
+            values = new Topping[slots.length];
+            multiplier = candidate;
+            shift = 32 - bits;
+
+            for (Topping topping : toppings)
+            {
+                values[slot(keyOf(topping).hashCode(), multiplier, shift)] = topping;
+            }
+        }
+
+        /**
+         * Finds the topping with the given name.
+         *
+         * @param name the lower-case name
+         * @return the topping, or null if the name is unknown
+         */
+        Topping find(String name)
+        {
+            int index = slot(name.hashCode(), multiplier, shift);
+            String key = keys[index];
+            return key != null && key.equals(name) ? values[index] : null;
+        }
+
+        /**
+         * Finds the topping whose name matches part of some text, ignoring case.
+         * The hash is worked out over the lower-cased characters the same way
+         * String.hashCode would, so it lands in the same slot as the key.
+         *
+         * @param text the text holding the name
+         * @param start index of the first character
+         * @param end index just after the last character
+         * @return the topping, or null if the name is unknown
+         */
+        Topping find(CharSequence text, int start, int end)
+        {
+            int hash = 0;
+            for (int i = start; i < end; i++)
+            {
+                hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+            }
+
+            int index = slot(hash, multiplier, shift);
+            String key = keys[index];
+            if (key == null || key.length() != end - start)
+            {
+                return null;
+            }
+
+            for (int i = 0; i < key.length(); i++)
+            {
+                if (key.charAt(i) != Character.toLowerCase(text.charAt(start + i))) return null;
+            }
+            return values[index];
+        }
+
+        private static String[] tryPlace(List<Topping> toppings, int multiplier, int bits)
+        {
+            String[] slots = new String[1 << bits];
+            for (Topping topping : toppings)
+            {
+                String key = keyOf(topping);
+                int index = slot(key.hashCode(), multiplier, 32 - bits);
+                if (slots[index] != null) return null;
+                slots[index] = key;
+            }
+            return slots;
+        }
+
+        private static int slot(int hash, int multiplier, int shift)
+        {
+            return (hash * multiplier) >>> shift;
+        }
+
+        private static String keyOf(Topping topping)
+        {
+            return topping.getName().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * The reasons an order, or part of one, can fail validation.
+ * Each reason carries the message shown to the user.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+public enum ValidationError
+{
+    /** The customer name is blank */
+    EMPTY_NAME("Name cannot be empty. Please enter a valid name."),
+
+    /** The contact number is not exactly 10 digits */
+    INVALID_CONTACT_NUMBER("Invalid number. Must be exactly 10 digits."),
+
+    /** The delivery address is blank */
+    EMPTY_ADDRESS("Address cannot be empty. Please enter a valid address."),
+
+    /** A pizza topping is not on the menu */
+    UNKNOWN_PIZZA_TOPPING("Invalid topping."),
+
+    /** A pasta topping is not on the menu */
+    UNKNOWN_PASTA_TOPPING("Invalid pasta topping."),
+
+    /** A food item is neither a pizza nor a pasta */
+    UNKNOWN_FOOD_ITEM("Invalid food item."),
+
+    /** The delivery method is neither door nor pickup */
+    UNKNOWN_DELIVERY_METHOD("Invalid delivery method."),
+
+    /** Only one of university and student ID was given */
+    INCOMPLETE_STUDENT_INFO("Both university and student ID are required or type 'N/A' to skip."),
+
+    /** An order line does not have the expected number of fields */
+    WRONG_FIELD_COUNT("Wrong number of fields.");
+
+    /** Message shown to the user */
+    private final String message;
+
+    ValidationError(String message)
+    {
+        this.message = message;
+    }
+
+    /**
+     * Returns the message shown to the user.
+     *
+     * @return the message
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+}
@@ -0,0 +1,40 @@
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the student flag ColumnarOrderStore keeps for delivered orders.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+class ColumnarOrderStoreTest
+{
+    private final ColumnarOrderStore store = new ColumnarOrderStore();
+
+    @Test
+    void validStudentDetailsCountAsStudent()
+    {
+        int row = store.append(order(new StudentInfo("Uni", "12345")), System.currentTimeMillis());
+
+        assertTrue(store.isStudent(row));
+    }
+
+    @Test
+    void incompleteStudentDetailsDoNotCountAsStudent()
+    {
+        int row = store.append(order(new StudentInfo("Uni", "")), System.currentTimeMillis());
+
+        assertFalse(store.isStudent(row));
+    }
+
+    private static Order order(StudentInfo student)
+    {
+        Order order = new Order(List.of(new Pizza(List.of())), new Customer("Ann", "0123456789", "1 High St"));
+        order.setStudentInfo(student);
+        return order;
+    }
+}
@@ -0,0 +1,78 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the dispatch keys of DeadlineDispatchPolicy and the order they give a DispatchQueue.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+class DeadlineDispatchPolicyTest
+{
+    private final DeadlineDispatchPolicy policy = new DeadlineDispatchPolicy();
+
+    @Test
+    void doorDeliveryStartsBeforePickupPlacedAtTheSameTime()
+    {
+        Order order = order(new Pizza(List.of()));
+
+        order.setDeliveryMethod(DeliveryMethod.PICKUP);
+        long pickup = policy.dispatchKey(order);
+        order.setDeliveryMethod(DeliveryMethod.DOOR_DELIVERY);
+        long door = policy.dispatchKey(order);
+
+        assertEquals(TimeUnit.MINUTES.toMillis(10), pickup - door);
+    }
+
+    @Test
+    void slowerOrderStartsFirst()
+    {
+        Order plain = order(new Pasta(ToppingCatalog.getDefault().noTopping()));
+        Order large = order(new Pizza(List.of()), new Pizza(List.of()));
+        plain.setDeliveryMethod(DeliveryMethod.PICKUP);
+        large.setDeliveryMethod(DeliveryMethod.PICKUP);
+
+        assertTrue(policy.dispatchKey(large) < policy.dispatchKey(plain));
+    }
+
+    @Test
+    void queueHandsOutEarliestDeadlineFirst()
+    {
+        DispatchQueue queue = new DispatchQueue(policy);
+        Order pickup = order(new Pizza(List.of()));
+        pickup.setDeliveryMethod(DeliveryMethod.PICKUP);
+        Order door = order(new Pizza(List.of()));
+        door.setDeliveryMethod(DeliveryMethod.DOOR_DELIVERY);
+
+        queue.add(pickup);
+        queue.add(door);
+
+        assertSame(door, queue.poll());
+        assertSame(pickup, queue.poll());
+    }
+
+    @Test
+    void equalKeysLeaveInArrivalOrder()
+    {
+        DispatchQueue queue = new DispatchQueue(DispatchPolicy.FIFO);
+        Order first = order(new Pizza(List.of()));
+        Order second = order(new Pizza(List.of()));
+
+        queue.add(first);
+        queue.add(second);
+
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+    }
+
+    private static Order order(FoodItem... items)
+    {
+        return new Order(List.of(items), new Customer("Ann", "0123456789", "1 High St"));
+    }
+}
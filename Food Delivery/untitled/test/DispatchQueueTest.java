@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests iterating over a DispatchQueue.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+class DispatchQueueTest
+{
+    /** Orders by customer name, so the dispatch order is known */
+    private final DispatchQueue queue = new DispatchQueue(order -> order.getCustomer().getName().charAt(0));
+
+    @Test
+    void iteratesInDispatchOrder()
+    {
+        Order carl = order("Carl");
+        Order ann = order("Ann");
+        Order ben = order("Ben");
+        Order ada = order("Ada");
+        queue.add(carl);
+        queue.add(ann);
+        queue.add(ben);
+        queue.add(ada);
+
+        //Equal keys keep their arrival order
+        assertEquals(List.of(ann, ada, ben, carl), new ArrayList<Order>(queue));
+    }
+
+    @Test
+    void removeDropsTheLastOrderReturned()
+    {
+        Order ann = order("Ann");
+        Order ben = order("Ben");
+        queue.add(ann);
+        queue.add(ben);
+
+        Iterator<Order> orders = queue.iterator();
+        assertSame(ann, orders.next());
+        orders.remove();
+
+        assertNull(queue.get(ann.getId()));
+        assertSame(ben, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void removeNeedsANextCall()
+    {
+        queue.add(order("Ann"));
+
+        Iterator<Order> orders = queue.iterator();
+        assertThrows(IllegalStateException.class, orders::remove);
+        orders.next();
+        orders.remove();
+        assertThrows(IllegalStateException.class, orders::remove);
+    }
+
+    private static Order order(String name)
+    {
+        return new Order(List.of(new Pizza(List.of())), new Customer(name, "0123456789", "1 High St"));
+    }
+}
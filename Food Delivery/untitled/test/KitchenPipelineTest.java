@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that KitchenPipeline loses no orders, whether a station fails or the
+ * kitchen closes while orders are still being submitted.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+class KitchenPipelineTest
+{
+    @Test
+    void failedOrderIsKeptWithoutAHandler() throws InterruptedException
+    {
+        Order order = order();
+        KitchenPipeline kitchen = new KitchenPipeline(dispatched -> { })
+                .configure(KitchenPipeline.Stage.COOK, 1, 1, cooking ->
+                {
+                    throw new IllegalStateException("oven broke");
+                })
+                .start();
+
+        kitchen.submit(order);
+        kitchen.close();
+
+        assertEquals(1, kitchen.getFailed(KitchenPipeline.Stage.COOK));
+        assertEquals(List.of(order), kitchen.drainFailed());
+    }
+
+    @Test
+    void failedOrderGoesToTheHandler() throws InterruptedException
+    {
+        Order order = order();
+        ConcurrentLinkedQueue<Order> failed = new ConcurrentLinkedQueue<Order>();
+        KitchenPipeline kitchen = new KitchenPipeline(dispatched ->
+        {
+            throw new IllegalStateException("no drivers");
+        }).onFailure((stage, failedOrder, cause) -> failed.add(failedOrder)).start();
+
+        kitchen.submit(order);
+        kitchen.close();
+
+        assertSame(order, failed.poll());
+        assertEquals(List.of(), kitchen.drainFailed());
+    }
+
+    @Test
+    void everyAcceptedOrderIsDispatchedWhenClosingDuringSubmits() throws InterruptedException
+    {
+        LongAdder dispatched = new LongAdder();
+        KitchenPipeline kitchen = new KitchenPipeline(order -> dispatched.increment()).start();
+        AtomicLong accepted = new AtomicLong();
+
+        Thread[] submitters = new Thread[4];
+        for (int i = 0; i < submitters.length; i++)
+        {
+            submitters[i] = new Thread(() ->
+            {
+                try
+                {
+                    while (true)
+                    {
+                        kitchen.submit(order());
+                        accepted.incrementAndGet();
+                    }
+                }
+                catch (IllegalStateException | InterruptedException e)
+                {
+                    //Closed
+                }
+            });
+            submitters[i].start();
+        }
+
+        Thread.sleep(50);
+        kitchen.close();
+        for (Thread submitter : submitters)
+        {
+            submitter.join();
+        }
+
+        assertEquals(accepted.get(), dispatched.sum());
+        assertThrows(IllegalStateException.class, () -> kitchen.submit(order()));
+    }
+
+    private static Order order()
+    {
+        return new Order(List.of(new Pizza(List.of())), new Customer("Ann", "0123456789", "1 High St"));
+    }
+}
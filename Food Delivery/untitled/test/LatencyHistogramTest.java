@@ -0,0 +1,93 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the percentiles, count and extremes reported by LatencyHistogram.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+class LatencyHistogramTest
+{
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    void emptyHistogramReportsZero()
+    {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    void smallValuesAreExact()
+    {
+        for (int value = 1; value <= 60; value++)
+        {
+            histogram.record(value);
+        }
+
+        assertEquals(30, histogram.getValueAtPercentile(50));
+        assertEquals(60, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    void largePercentilesAreWithinTheBucketError()
+    {
+        for (int value = 1; value <= 100_000; value++)
+        {
+            histogram.record(value);
+        }
+
+        assertWithinError(50_000, histogram.getValueAtPercentile(50));
+        assertWithinError(90_000, histogram.getValueAtPercentile(90));
+        assertWithinError(99_000, histogram.getValueAtPercentile(99));
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped()
+    {
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+    }
+
+    @Test
+    void recordsFromManyThreadsAreAllCounted() throws InterruptedException
+    {
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread(() ->
+            {
+                for (int value = 0; value < 10_000; value++)
+                {
+                    histogram.record(value);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(9_999, histogram.getMax());
+    }
+
+    /** The reported value may overstate the true one by one bucket width, about 3%, but never understate it */
+    private static void assertWithinError(long expected, long actual)
+    {
+        assertTrue(actual >= expected && actual <= expected + expected / 32,
+                "expected about " + expected + " but was " + actual);
+    }
+}
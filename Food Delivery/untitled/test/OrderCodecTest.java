@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that OrderCodec reads back what it writes, in both record versions.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+class OrderCodecTest
+{
+    private final ToppingCatalog catalog = ToppingCatalog.getDefault();
+
+    @Test
+    void versionTwoRecordKeepsEverything()
+    {
+        Order order = order();
+        ByteBuffer buffer = encode(order);
+
+        Order decoded = OrderCodec.decode(buffer, catalog);
+
+        assertFalse(buffer.hasRemaining());
+        assertEquals(order.getId(), decoded.getId());
+        assertEquals(order.getCreatedAtMillis(), decoded.getCreatedAtMillis());
+        assertEquals(order.toString(), decoded.toString());
+        assertSame(catalog.pizzaTopping("ham"), ((Pizza) decoded.getFoodItems().get(0)).getToppings().get(0));
+    }
+
+    @Test
+    void versionOneRecordIsReadWithoutCreationTime()
+    {
+        Order order = order();
+        ByteBuffer current = encode(order);
+
+        //A version 1 record is the same record without the creation time after the id
+        ByteBuffer old = ByteBuffer.allocate(current.remaining() - 8);
+        old.put(current.duplicate().limit(8));
+        old.put(current.duplicate().position(16));
+        old.flip();
+
+        long before = System.currentTimeMillis();
+        Order decoded = OrderCodec.decodeWithoutCreationTime(old, catalog);
+
+        assertFalse(old.hasRemaining());
+        assertEquals(order.getId(), decoded.getId());
+        assertEquals(order.toString(), decoded.toString());
+        assertTrue(decoded.getCreatedAtMillis() >= before);
+    }
+
+    private ByteBuffer encode(Order order)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(OrderCodec.encodedSize(order));
+        OrderCodec.encode(order, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private Order order()
+    {
+        Order order = new Order(List.of(new Pizza(List.of(catalog.pizzaTopping("ham"), catalog.pizzaTopping("cheese"))),
+                new Pasta(catalog.pastaTopping("marinara"))), new Customer("Ann", "0123456789", "1 High St"));
+        order.setDeliveryMethod(DeliveryMethod.DOOR_DELIVERY);
+        order.setStudentInfo(new StudentInfo("Uni", "12345"));
+        return order;
+    }
+}
@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the replies OrderIntakeServer sends to a terminal.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+class OrderIntakeServerTest
+{
+    private static final String LINE = "Jane Doe|0123456789|12 High St|pizza:ham|door||";
+
+    @Test
+    void fullQueueAnswersBusyAndBadLineAnswersError() throws IOException
+    {
+        OrderManager manager = new OrderManager(true);
+        manager.setPendingLimit(1, 0, TimeUnit.MILLISECONDS);
+
+        try (OrderIntakeServer server = new OrderIntakeServer(0, manager, new OrderLineParser());
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))
+        {
+            out.write(LINE + "\n" + LINE + "\n" + "Jane Doe|0123456789|12 High St|pizza:ham|drone||\nQUIT\n");
+            out.flush();
+
+            assertTrue(in.readLine().startsWith("OK "));
+            assertTrue(in.readLine().startsWith("BUSY "));
+            assertTrue(in.readLine().startsWith("ERROR "));
+        }
+        assertEquals(1, manager.getPendingCount());
+    }
+}
@@ -0,0 +1,135 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that replaying an OrderJournal gives back the queue the manager had.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+class OrderJournalTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void deliveredOrdersAreNotRestored() throws IOException
+    {
+        Order first = order("Ann");
+        Order second = order("Ben");
+        try (OrderJournal journal = new OrderJournal(directory.resolve("journal.log"), 0))
+        {
+            OrderManager manager = new OrderManager();
+            manager.restore(List.of(), journal);
+            manager.addOrder(first);
+            manager.addOrder(second);
+            manager.deliverOrder();
+        }
+
+        assertEquals(List.of(second.getId()), replayedIds());
+    }
+
+    @Test
+    void cancelledOrderAddedAgainIsRestored() throws IOException
+    {
+        Order first = order("Ann");
+        Order second = order("Ben");
+        try (OrderJournal journal = new OrderJournal(directory.resolve("journal.log"), 0))
+        {
+            OrderManager manager = new OrderManager();
+            manager.restore(List.of(), journal);
+            manager.addOrder(first);
+            manager.addOrder(second);
+            manager.cancelOrder(first.getId());
+            manager.addOrder(first);
+        }
+
+        //Added again at the back of the queue
+        assertEquals(List.of(second.getId(), first.getId()), replayedIds());
+    }
+
+    @Test
+    void changedOrderKeepsItsPlace() throws IOException
+    {
+        Order first = order("Ann");
+        Order second = order("Ben");
+        try (OrderJournal journal = new OrderJournal(directory.resolve("journal.log"), 0))
+        {
+            OrderManager manager = new OrderManager();
+            manager.restore(List.of(), journal);
+            manager.addOrder(first);
+            manager.addOrder(second);
+            manager.changeFoodItems(first.getId(), List.of(new Pasta(ToppingCatalog.getDefault().noTopping())));
+        }
+
+        LinkedHashMap<Long, Order> pending = replay();
+        assertEquals(List.of(first.getId(), second.getId()), new ArrayList<Long>(pending.keySet()));
+        assertTrue(pending.get(first.getId()).getFoodItems().get(0) instanceof Pasta);
+    }
+
+    @Test
+    void journalWithoutHeaderIsReplayedAsVersionOne() throws IOException
+    {
+        Order order = order("Ann");
+        ByteBuffer current = ByteBuffer.allocate(OrderCodec.encodedSize(order));
+        OrderCodec.encode(order, current);
+        current.flip();
+
+        //An ADD record as written before the header, with no creation time after the id
+        ByteBuffer record = ByteBuffer.allocate(1 + current.remaining() - 8);
+        record.put(OrderJournal.ADD).put(current.duplicate().limit(8)).put(current.duplicate().position(16)).flip();
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        ByteBuffer file = ByteBuffer.allocate(8 + record.remaining() + 4);
+        file.putInt(record.remaining()).putInt((int) crc.getValue()).put(record).putInt(0);
+        Files.write(directory.resolve("journal.log"), file.array());
+
+        try (OrderJournal journal = new OrderJournal(directory.resolve("journal.log"), 0))
+        {
+            assertEquals(OrderJournal.VERSION_1, journal.getVersion());
+            assertEquals(order.toString(), journal.replay(ToppingCatalog.getDefault()).get(order.getId()).toString());
+            assertThrows(IllegalStateException.class, () -> journal.recordDeliver(order.getId()));
+        }
+    }
+
+    @Test
+    void newJournalHasCurrentVersion() throws IOException
+    {
+        try (OrderJournal journal = new OrderJournal(directory.resolve("journal.log"), 0))
+        {
+            assertEquals(OrderJournal.VERSION, journal.getVersion());
+        }
+        assertEquals(List.of(), replayedIds());
+    }
+
+    private List<Long> replayedIds() throws IOException
+    {
+        return new ArrayList<Long>(replay().keySet());
+    }
+
+    private LinkedHashMap<Long, Order> replay() throws IOException
+    {
+        try (OrderJournal journal = new OrderJournal(directory.resolve("journal.log"), 0))
+        {
+            return journal.replay(ToppingCatalog.getDefault());
+        }
+    }
+
+    private static Order order(String name)
+    {
+        return new Order(List.of(new Pizza(List.of())), new Customer(name, "0123456789", "1 High St"));
+    }
+}
@@ -0,0 +1,41 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests how OrderLineParser reads the items field.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+class OrderLineParserTest
+{
+    private final OrderLineParser parser = new OrderLineParser();
+
+    @Test
+    void emptyToppingsAreIgnored()
+    {
+        Order order = parser.parse("Jane Doe|0123456789|12 High St|pizza:ham,,cheese,|door||");
+
+        Pizza pizza = (Pizza) order.getFoodItems().get(0);
+        assertEquals(List.of("Ham", "Cheese"), pizza.getToppings().stream().map(Topping::getName).toList());
+    }
+
+    @Test
+    void emptyItemsAreIgnored()
+    {
+        Order order = parser.parse("Jane Doe|0123456789|12 High St|pizza:ham;;pasta:none;|pickup||");
+
+        assertEquals(2, order.getFoodItems().size());
+    }
+
+    @Test
+    void unknownToppingIsRejected()
+    {
+        assertThrows(OrderValidationException.class,
+                () -> parser.parse("Jane Doe|0123456789|12 High St|pizza:ham,anchovy|door||"));
+    }
+}
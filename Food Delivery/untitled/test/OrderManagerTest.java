@@ -0,0 +1,53 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests OrderManager's handling of resubmitted orders.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+class OrderManagerTest
+{
+    @Test
+    void resubmittedOrderIsNotQueuedTwice()
+    {
+        OrderManager manager = new OrderManager(true);
+        manager.setIdempotencyIndex(new IdempotencyIndex());
+        Order first = order("key-1");
+        Order retry = order("key-1");
+
+        assertEquals(first.getId(), manager.addOrderIfAbsent(first));
+        assertEquals(first.getId(), manager.addOrderIfAbsent(retry));
+        assertEquals(1, manager.getPendingCount());
+    }
+
+    @Test
+    void orderTurnedAwayByAFullQueueCanBeRetried()
+    {
+        OrderManager manager = new OrderManager(true);
+        manager.setIdempotencyIndex(new IdempotencyIndex());
+        manager.setPendingLimit(1, 0, TimeUnit.MILLISECONDS);
+        Order waiting = order("key-1");
+        Order turnedAway = order("key-2");
+        manager.addOrderIfAbsent(waiting);
+
+        assertThrows(IllegalStateException.class, () -> manager.addOrderIfAbsent(turnedAway));
+
+        manager.deliverOrder();
+        Order retry = order("key-2");
+        assertEquals(retry.getId(), manager.addOrderIfAbsent(retry));
+    }
+
+    private static Order order(String key)
+    {
+        Order order = new Order(List.of(new Pizza(List.of())), new Customer("Ann", "0123456789", "1 High St"));
+        order.setIdempotencyKey(key);
+        return order;
+    }
+}
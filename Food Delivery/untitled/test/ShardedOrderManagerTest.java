@@ -0,0 +1,68 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests how ShardedOrderManager spreads orders and how dispatchers steal them.
+ *
+ * Author: Reyan
+ * Version: 1.0
+ */
+class ShardedOrderManagerTest
+{
+    private final ShardedOrderManager manager = new ShardedOrderManager(2);
+
+    @Test
+    void customerAlwaysUsesTheSameShard()
+    {
+        Order first = order("0123456789");
+        Order second = order("0123456789");
+        manager.addOrder(first);
+        manager.addOrder(second);
+
+        OrderManager shard = manager.getShard(manager.shardFor(first));
+        assertEquals(2, shard.getPendingCount());
+        assertEquals(2, manager.getPendingCount());
+    }
+
+    @Test
+    void idleDispatcherStealsOrdersAddedStraightToAShard()
+    {
+        //Restored orders reach a shard without going through addOrder
+        Order order = order("0123456789");
+        manager.getShard(1).addOrder(order);
+
+        assertSame(order, manager.nextOrder(0, 2));
+        assertEquals(0, manager.getPendingCount());
+    }
+
+    @Test
+    void orderCancelledInItsShardIsNotStolen()
+    {
+        Order order = order("0123456789");
+        manager.addOrder(order);
+        manager.getShard(manager.shardFor(order)).cancelOrder(order.getId());
+
+        assertNull(manager.nextOrder(0, 2));
+        assertNull(manager.nextOrder(1, 2));
+    }
+
+    @Test
+    void cancelFindsTheShardHoldingTheOrder()
+    {
+        Order order = order("0123456789");
+        manager.addOrder(order);
+
+        assertSame(order, manager.cancelOrder(order.getId()));
+        assertNull(manager.cancelOrder(order.getId()));
+    }
+
+    private static Order order(String contactNumber)
+    {
+        return new Order(List.of(new Pizza(List.of())), new Customer("Ann", contactNumber, "1 High St"));
+    }
+}